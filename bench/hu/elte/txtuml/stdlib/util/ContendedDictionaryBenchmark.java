@@ -0,0 +1,75 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of a {@link ConcurrentDictionaryImplementation}
+ * shared by all the benchmark threads; {@link DictionaryBenchmarks} runs it
+ * with several thread counts.
+ * <p>
+ * Every operation draws a key of the dictionary at random; the given
+ * percentage of the operations are reads, and the rest replace the value of
+ * the key or remove and reinsert it, evenly.
+ *
+ * @see DictionaryContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ContendedDictionaryBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	@Param({ "RANDOM", "CLUSTERED" })
+	DictionaryKeys keys;
+
+	@Param({ "100", "90", "50" })
+	int readPercent;
+
+	private Dictionary dictionary;
+
+	private int[] present;
+
+	@Setup
+	public void setUp() {
+		dictionary = new ConcurrentDictionaryImplementation();
+		present = keys.generate(size);
+		for (int key : present) {
+			dictionary.put(key, "value" + key);
+		}
+	}
+
+	@Benchmark
+	public String mixed() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int key = present[random.nextInt(present.length)];
+		int operation = random.nextInt(100);
+		if (operation < readPercent) {
+			return dictionary.get(key);
+		}
+		if ((operation & 1) == 0) {
+			return dictionary.put(key, "value");
+		}
+		String value = dictionary.remove(key);
+		dictionary.put(key, "value");
+		return value;
+	}
+
+}
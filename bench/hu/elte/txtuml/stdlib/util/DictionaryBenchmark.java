@@ -0,0 +1,157 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the single-threaded cost of the operations of the dictionary
+ * implementations, for every combination of dictionary size and key
+ * distribution.
+ * <p>
+ * The lookups cycle through a fixed array of keys in random order, so that
+ * neither the branch predictor nor the cache learns a pattern beyond what
+ * the key distribution itself offers. The modifying benchmarks leave the
+ * size of the dictionary unchanged. The traversal benchmarks visit every
+ * entry, so their time is per traversal, not per entry.
+ *
+ * @see DictionaryBenchmarks
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class DictionaryBenchmark {
+
+	/**
+	 * The number of keys the lookups cycle through, a power of two.
+	 */
+	private static final int LOOKUPS = 1 << 16;
+
+	@Param({ "10", "1000", "100000", "10000000" })
+	int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM", "CLUSTERED" })
+	DictionaryKeys keys;
+
+	@Param({ "DictionaryImplementation", "ConcurrentDictionaryImplementation" })
+	String implementation;
+
+	private Dictionary dictionary;
+
+	private int[] present;
+
+	private int[] absent;
+
+	private String[] values;
+
+	private int next;
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException {
+		dictionary = (Dictionary) Class.forName(getClass().getPackage().getName() + "." + implementation)
+				.getConstructor().newInstance();
+		int[] generated = keys.generate(size);
+		for (int key : generated) {
+			dictionary.put(key, "value" + key);
+		}
+		Random random = new Random(DictionaryKeys.SEED);
+		present = new int[LOOKUPS];
+		values = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			present[i] = generated[random.nextInt(generated.length)];
+			values[i] = "value" + i;
+		}
+		absent = DictionaryKeys.missing(generated, LOOKUPS);
+	}
+
+	private int next() {
+		return next = (next + 1) & (LOOKUPS - 1);
+	}
+
+	@Benchmark
+	public String get() {
+		return dictionary.get(present[next()]);
+	}
+
+	@Benchmark
+	public String getAbsent() {
+		return dictionary.get(absent[next()]);
+	}
+
+	/**
+	 * Replaces the value of a present key.
+	 */
+	@Benchmark
+	public String put() {
+		int i = next();
+		return dictionary.put(present[i], values[i]);
+	}
+
+	/**
+	 * Inserts an absent key and removes it again.
+	 */
+	@Benchmark
+	public String putRemove() {
+		int i = next();
+		dictionary.put(absent[i], values[i]);
+		return dictionary.remove(absent[i]);
+	}
+
+	/**
+	 * Removes a present key and inserts it again.
+	 */
+	@Benchmark
+	public String removePut() {
+		int i = next();
+		String value = dictionary.remove(present[i]);
+		dictionary.put(present[i], value);
+		return value;
+	}
+
+	@Benchmark
+	public void forEach(Blackhole blackhole) {
+		dictionary.forEach((key, value) -> {
+			blackhole.consume(key);
+			blackhole.consume(value);
+		});
+	}
+
+	@Benchmark
+	public void cursor(Blackhole blackhole) {
+		for (DictionaryCursor cursor = dictionary.cursor(); cursor.hasNext();) {
+			blackhole.consume(cursor.nextKey());
+			blackhole.consume(cursor.value());
+		}
+	}
+
+	/**
+	 * Walks the keys and the values in lockstep, as models did before the
+	 * cursors.
+	 */
+	@Benchmark
+	public void enumerations(Blackhole blackhole) {
+		Enumeration<Integer> keys = dictionary.keys();
+		Enumeration<String> elements = dictionary.elements();
+		while (keys.hasMoreElements()) {
+			blackhole.consume(keys.nextElement());
+			blackhole.consume(elements.nextElement());
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the dictionaries and writes all their results
+ * into a single JSON file: {@link DictionaryBenchmark} once, and
+ * {@link ContendedDictionaryBenchmark} once for every thread count.
+ * <p>
+ * Usage: <code>DictionaryBenchmarks [JMH options]</code>, for example
+ * <code>-p size=1000</code> to run a single size. The system property
+ * <code>bench.result</code> names the result file
+ * (<code>dictionary-benchmarks.json</code> by default), and
+ * <code>bench.threads</code> lists the thread counts of the contended
+ * benchmark (<code>1,2,4,8</code> by default).
+ */
+public class DictionaryBenchmarks {
+
+	public static void main(String[] args)
+			throws RunnerException, CommandLineOptionException, FileNotFoundException, UnsupportedEncodingException {
+		Options options = new CommandLineOptions(args);
+		String result = System.getProperty("bench.result", "dictionary-benchmarks.json");
+		String[] threads = System.getProperty("bench.threads", "1,2,4,8").split(",");
+
+		List<RunResult> results = new ArrayList<>();
+		results.addAll(new Runner(new OptionsBuilder().parent(options)
+				.include("\\." + DictionaryBenchmark.class.getSimpleName() + "\\.").build()).run());
+		for (String count : threads) {
+			results.addAll(new Runner(new OptionsBuilder().parent(options)
+					.include("\\." + ContendedDictionaryBenchmark.class.getSimpleName() + "\\.")
+					.threads(Integer.parseInt(count.trim())).build()).run());
+		}
+		try (PrintStream out = new PrintStream(result, "UTF-8")) {
+			ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+		}
+		System.out.println("Results written to " + result);
+	}
+
+}
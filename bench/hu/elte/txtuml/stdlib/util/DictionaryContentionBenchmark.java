@@ -0,0 +1,135 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of a shared dictionary under contention, comparing
+ * {@link ConcurrentDictionaryImplementation} with a Dictionary backed by a
+ * synchronized <code>java.util.Hashtable</code>, which is how
+ * {@link DictionaryImplementation} used to be implemented.
+ * <p>
+ * Every thread performs random operations on keys drawn uniformly from a
+ * fixed range, of which the given percentage are reads and the rest are
+ * split evenly between <code>put</code> and <code>remove</code>. The
+ * throughput is printed for 1, 2, 4, ..., 64 threads.
+ * <p>
+ * Usage: <code>DictionaryContentionBenchmark [readPercent] [seconds]</code>
+ */
+public class DictionaryContentionBenchmark {
+
+	private static final int KEY_RANGE = 1 << 16;
+
+	private static final int MAX_THREADS = 64;
+
+	public static void main(String[] args) throws InterruptedException {
+		int readPercent = args.length > 0 ? Integer.parseInt(args[0]) : 90;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+		System.out.println("reads: " + readPercent + "%, " + seconds + "s per measurement");
+		System.out.printf("%8s %20s %20s%n", "threads", "Hashtable (ops/ms)", "Concurrent (ops/ms)");
+		for (int threads = 1; threads <= MAX_THREADS; threads <<= 1) {
+			double locked = measure(new HashtableDictionary(), threads, readPercent, seconds);
+			double concurrent = measure(new ConcurrentDictionaryImplementation(), threads, readPercent, seconds);
+			System.out.printf("%8d %20.0f %20.0f%n", threads, locked, concurrent);
+		}
+	}
+
+	private static double measure(Dictionary dictionary, int threads, int readPercent, int seconds)
+			throws InterruptedException {
+		for (int key = 0; key < KEY_RANGE; key += 2) {
+			dictionary.put(key, "value" + key);
+		}
+		// one untimed round to let the JIT compile the hot paths
+		run(dictionary, threads, readPercent, 1000);
+		LongAdder ops = run(dictionary, threads, readPercent, seconds * 1000L);
+		return ops.sum() / (seconds * 1000.0);
+	}
+
+	private static LongAdder run(Dictionary dictionary, int threads, int readPercent, long millis)
+			throws InterruptedException {
+		LongAdder ops = new LongAdder();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		long[] deadline = new long[1];
+		for (int t = 0; t < threads; t++) {
+			Thread worker = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long count = 0;
+				try {
+					start.await();
+					while ((count & 1023) != 0 || System.nanoTime() < deadline[0]) {
+						int key = random.nextInt(KEY_RANGE);
+						int op = random.nextInt(100);
+						if (op < readPercent) {
+							dictionary.get(key);
+						} else if ((op & 1) == 0) {
+							dictionary.put(key, "value");
+						} else {
+							dictionary.remove(key);
+						}
+						count++;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					ops.add(count);
+					done.countDown();
+				}
+			});
+			worker.setDaemon(true);
+			worker.start();
+		}
+		deadline[0] = System.nanoTime() + millis * 1000000L;
+		start.countDown();
+		done.await();
+		return ops;
+	}
+
+	/**
+	 * The former Hashtable-backed implementation, kept as the baseline.
+	 */
+	private static final class HashtableDictionary implements Dictionary {
+
+		private final Hashtable<Integer, String> dictionary = new Hashtable<>();
+
+		@Override
+		public boolean isEmpty() {
+			return dictionary.isEmpty();
+		}
+
+		@Override
+		public int size() {
+			return dictionary.size();
+		}
+
+		@Override
+		public Enumeration<Integer> keys() {
+			return dictionary.keys();
+		}
+
+		@Override
+		public Enumeration<String> elements() {
+			return dictionary.elements();
+		}
+
+		@Override
+		public String get(int key) {
+			return dictionary.get(key);
+		}
+
+		@Override
+		public String put(int key, String value) {
+			return dictionary.put(key, value);
+		}
+
+		@Override
+		public String remove(int key) {
+			return dictionary.remove(key);
+		}
+	}
+
+}
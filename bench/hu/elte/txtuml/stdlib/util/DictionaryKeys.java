@@ -0,0 +1,105 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * The key distributions of the dictionary benchmarks. Every distribution
+ * yields distinct keys, and the keys are generated from a fixed seed, so
+ * every run of a benchmark works on the same keys.
+ */
+enum DictionaryKeys {
+
+	/**
+	 * The keys 0, 1, 2, ...
+	 */
+	SEQUENTIAL {
+		@Override
+		int[] generate(int count, Random random) {
+			int[] keys = new int[count];
+			for (int i = 0; i < count; i++) {
+				keys[i] = i;
+			}
+			return keys;
+		}
+	},
+
+	/**
+	 * Keys drawn uniformly from the whole <code>int</code> range.
+	 */
+	RANDOM {
+		@Override
+		int[] generate(int count, Random random) {
+			return distinct(count, random::nextInt);
+		}
+	},
+
+	/**
+	 * Runs of consecutive keys at random places, like identifiers allocated
+	 * in blocks.
+	 */
+	CLUSTERED {
+		@Override
+		int[] generate(int count, Random random) {
+			int[] keys = new int[count];
+			DictionaryImplementation clusters = new DictionaryImplementation();
+			int i = 0;
+			while (i < count) {
+				int cluster = random.nextInt(1 << 24);
+				if (clusters.putIfAbsent(cluster, "") == null) {
+					for (int j = 0; j < CLUSTER_LENGTH && i < count; j++) {
+						keys[i++] = cluster * CLUSTER_LENGTH + j;
+					}
+				}
+			}
+			return keys;
+		}
+	};
+
+	static final int CLUSTER_LENGTH = 64;
+
+	static final long SEED = 42;
+
+	abstract int[] generate(int count, Random random);
+
+	/**
+	 * Returns <code>count</code> distinct keys of this distribution.
+	 */
+	int[] generate(int count) {
+		return generate(count, new Random(SEED));
+	}
+
+	private static int[] distinct(int count, IntSupplier next) {
+		int[] keys = new int[count];
+		DictionaryImplementation seen = new DictionaryImplementation(count);
+		int i = 0;
+		while (i < count) {
+			int key = next.getAsInt();
+			if (seen.putIfAbsent(key, "") == null) {
+				keys[i++] = key;
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns <code>count</code> keys which are not among the given ones.
+	 */
+	static int[] missing(int[] keys, int count) {
+		DictionaryImplementation present = new DictionaryImplementation(keys.length);
+		for (int key : keys) {
+			present.put(key, "");
+		}
+		Random random = new Random(SEED + 1);
+		int[] missing = new int[count];
+		int i = 0;
+		while (i < count) {
+			int key = random.nextInt();
+			if (present.get(key) == null) {
+				missing[i++] = key;
+			}
+		}
+		return missing;
+	}
+
+}
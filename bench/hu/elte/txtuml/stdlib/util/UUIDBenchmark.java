@@ -0,0 +1,153 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the throughput of the UUID factories: the former one wrapping
+ * <code>java.util.UUID.randomUUID()</code>, and those of
+ * {@link RandomUUIDGenerator}, one by one and in batches, and the name-based
+ * ones of {@link NameBasedUUIDGenerator}. The parsing and formatting of
+ * {@link UUIDCodec} is compared to that of <code>java.util.UUID</code> as
+ * well.
+ * <p>
+ * Usage: <code>UUIDBenchmark [JMH options]</code> runs the benchmarks with
+ * the thread counts listed by the system property <code>bench.threads</code>
+ * (<code>1,2,4,8</code> by default), and writes the results to the file named
+ * by <code>bench.result</code> (<code>uuid-benchmarks.json</code> by default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UUIDBenchmark {
+
+	private static final int BATCH = 100;
+
+	@Benchmark
+	public UUID javaUtil() {
+		return new UUIDImplementation(java.util.UUID.randomUUID());
+	}
+
+	@Benchmark
+	public UUID generator() {
+		return RandomUUIDGenerator.randomUUID();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public UUID[] generatorBatch() {
+		return RandomUUIDGenerator.randomUUIDs(BATCH);
+	}
+
+	@Benchmark
+	public UUID nameJavaUtil(Text text) {
+		return new UUIDImplementation(java.util.UUID.nameUUIDFromBytes(text.string.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Benchmark
+	public UUID nameMd5(Text text) {
+		return NameBasedUUIDGenerator.md5UUID(null, text.string);
+	}
+
+	@Benchmark
+	public UUID nameSha1(Text text) {
+		return NameBasedUUIDGenerator.sha1UUID(NameBasedUUIDGenerator.NAMESPACE_URL, text.string);
+	}
+
+	@Benchmark
+	public UUID parseJavaUtil(Text text) {
+		return new UUIDImplementation(java.util.UUID.fromString(text.string));
+	}
+
+	@Benchmark
+	public UUID parse(Text text) {
+		return UUIDCodec.parse(text.string, 0);
+	}
+
+	@Benchmark
+	public UUID parseBytes(Text text) {
+		return UUIDCodec.parse(text.bytes, 0);
+	}
+
+	@Benchmark
+	public String toStringJavaUtil(Text text) {
+		return text.javaUtil.toString();
+	}
+
+	@Benchmark
+	public char[] format(Text text) {
+		UUIDCodec.format(text.uuid, text.chars, 0);
+		return text.chars;
+	}
+
+	@Benchmark
+	public byte[] formatBytes(Text text) {
+		UUIDCodec.format(text.uuid, text.bytes, 0);
+		return text.bytes;
+	}
+
+	/**
+	 * A UUID, its representation and the buffers of a thread.
+	 */
+	@State(Scope.Thread)
+	public static class Text {
+
+		final UUID uuid = RandomUUIDGenerator.randomUUID();
+
+		final java.util.UUID javaUtil = new java.util.UUID(uuid.getMostSignificantBits(),
+				uuid.getLeastSignificantBits());
+
+		final String string = uuid.toString();
+
+		final byte[] bytes = string.getBytes(StandardCharsets.US_ASCII);
+
+		final char[] chars = new char[UUIDCodec.LENGTH];
+	}
+
+	public static void main(String[] args)
+			throws RunnerException, CommandLineOptionException, FileNotFoundException, UnsupportedEncodingException {
+		Options options = new CommandLineOptions(args);
+		String result = System.getProperty("bench.result", "uuid-benchmarks.json");
+		String[] threads = System.getProperty("bench.threads", "1,2,4,8").split(",");
+
+		List<RunResult> results = new ArrayList<>();
+		for (String count : threads) {
+			results.addAll(new Runner(new OptionsBuilder().parent(options)
+					.include("\\." + UUIDBenchmark.class.getSimpleName() + "\\.")
+					.threads(Integer.parseInt(count.trim())).build()).run());
+		}
+		try (PrintStream out = new PrintStream(result, "UTF-8")) {
+			ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+		}
+		System.out.println("Results written to " + result);
+	}
+
+}
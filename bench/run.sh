@@ -0,0 +1,16 @@
+#!/bin/sh
+# Compiles the library with its benchmarks and runs the JMH benchmarks of
+# the dictionaries, writing the results to dictionary-benchmarks.json.
+#
+# Usage: CLASSPATH=<jars> bench/run.sh [JMH options]
+#
+# The class path must hold the txtUML API and JMH: jmh-core,
+# jmh-generator-annprocess and their dependencies jopt-simple and
+# commons-math3. The arguments are passed to JMH, e.g. "-p size=1000".
+set -e
+cd "$(dirname "$0")/.."
+out=build/bench
+rm -rf "$out"
+mkdir -p "$out"
+javac -encoding UTF-8 -d "$out" -cp "$CLASSPATH" $(find src bench -name '*.java')
+java -cp "$out:$CLASSPATH" hu.elte.txtuml.stdlib.util.DictionaryBenchmarks "$@"
@@ -0,0 +1,278 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation class of the Dictionary interface for txtUML models which
+ * look up keys by their values as well.
+ * <p>
+ * Besides the table of {@link DictionaryImplementation}, a reverse index
+ * maps every value to a key mapped to it, so {@link #keyOf(String)} and
+ * {@link #containsValue(String)} take constant time instead of scanning the
+ * entries. The index is updated by <code>put</code> and <code>remove</code>,
+ * which therefore hash the value too.
+ * <p>
+ * As in any dictionary, several keys can be mapped to equal values. The
+ * index then holds the key which was mapped to the value the earliest among
+ * them, and the later ones are kept in mapping order in an overflow set of
+ * the value, which is only allocated for values shared by several keys. So
+ * <code>keyOf</code> returns the earliest of the keys still mapped to the
+ * value. {@link #forcePut(int, String)} keeps the values unique for callers
+ * who need a one-to-one mapping. This class is not synchronized.
+ *
+ * @see DictionaryImplementation
+ */
+public class BidirectionalDictionaryImplementation implements Dictionary {
+
+	private final IntStringTable dictionary;
+
+	/**
+	 * Maps every value to the earliest key still mapped to it.
+	 */
+	private final StringIntTable inverse;
+
+	/**
+	 * The later keys of the values which several keys are mapped to, in
+	 * mapping order.
+	 */
+	private final HashMap<String, LinkedHashSet<Integer>> overflow = new HashMap<>();
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 */
+	public BidirectionalDictionaryImplementation() {
+		this(IntStringTable.DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary which holds the given number of
+	 * entries without enlarging its tables.
+	 *
+	 * @param expectedSize
+	 *            the expected number of entries
+	 * @exception IllegalArgumentException
+	 *                if the expected size is negative
+	 */
+	public BidirectionalDictionaryImplementation(int expectedSize) {
+		dictionary = new IntStringTable(expectedSize, IntStringTable.DEFAULT_LOAD_FACTOR);
+		inverse = new StringIntTable(expectedSize);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return dictionary.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return dictionary.size;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return dictionary.keys();
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return dictionary.elements();
+	}
+
+	@Override
+	public String get(int key) {
+		return dictionary.get(key);
+	}
+
+	/**
+	 * Maps the <code>key</code> to the <code>value</code> in this dictionary.
+	 * Other keys may be mapped to equal values as well.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the previous value of the key, or <code>null</code>
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 * @see #forcePut(int, String)
+	 */
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		String old = dictionary.put(key, value);
+		if (old == null) {
+			link(key, value);
+		} else if (!old.equals(value)) {
+			unlink(key, old);
+			link(key, value);
+		}
+		return old;
+	}
+
+	/**
+	 * Maps the <code>key</code> to the <code>value</code> in this dictionary,
+	 * removing the other keys which were mapped to the value before, if any,
+	 * so that the value has a single key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the previous value of the key, or <code>null</code>
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 */
+	public String forcePut(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		// remove the other keys of the value, and the value from the index
+		LinkedHashSet<Integer> later = overflow.remove(value);
+		if (later != null) {
+			for (int other : later) {
+				if (other != key) {
+					dictionary.remove(other);
+				}
+			}
+		}
+		int slot = inverse.slotOf(value);
+		if (slot >= 0) {
+			int first = inverse.ints[slot];
+			if (first != key) {
+				dictionary.remove(first);
+			}
+			inverse.removeSlot(slot);
+		}
+		String old = dictionary.put(key, value);
+		if (old != null && !old.equals(value)) {
+			unlink(key, old);
+		}
+		inverse.add(value, key);
+		return old;
+	}
+
+	/**
+	 * Adds the key of a new entry to the reverse index of its value.
+	 */
+	private void link(int key, String value) {
+		int slot = inverse.slotOf(value);
+		if (slot < 0) {
+			inverse.add(value, key);
+		} else {
+			overflow.computeIfAbsent(value, v -> new LinkedHashSet<>()).add(key);
+		}
+	}
+
+	/**
+	 * Removes the key of a replaced or removed entry from the reverse index
+	 * of its value, promoting the next key of the value if it was the
+	 * earliest one.
+	 */
+	private void unlink(int key, String value) {
+		int slot = inverse.slotOf(value);
+		LinkedHashSet<Integer> later = overflow.get(value);
+		if (inverse.ints[slot] == key) {
+			if (later == null) {
+				inverse.removeSlot(slot);
+				return;
+			}
+			Iterator<Integer> next = later.iterator();
+			inverse.ints[slot] = next.next();
+			next.remove();
+		} else {
+			later.remove(key);
+		}
+		if (later.isEmpty()) {
+			overflow.remove(value);
+		}
+	}
+
+	@Override
+	public String remove(int key) {
+		String old = dictionary.remove(key);
+		if (old != null) {
+			unlink(key, old);
+		}
+		return old;
+	}
+
+	/**
+	 * Tests if a key is mapped to the <code>value</code>, in constant time.
+	 *
+	 * @param value
+	 *            the value to be found
+	 * @return <code>true</code> if a key is mapped to the value
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 */
+	@Override
+	public boolean containsValue(String value) {
+		return inverse.slotOf(value) >= 0;
+	}
+
+	/**
+	 * Returns the key which is mapped to the <code>value</code>, in constant
+	 * time. If several keys are mapped to it, the one mapped to it the
+	 * earliest among them is returned.
+	 *
+	 * @param value
+	 *            the value whose key is to be found
+	 * @return the key mapped to the value
+	 * @exception NoSuchElementException
+	 *                if no key is mapped to the value
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 */
+	public int keyOf(String value) {
+		int slot = inverse.slotOf(value);
+		if (slot < 0) {
+			throw new NoSuchElementException("No key is mapped to " + value);
+		}
+		return inverse.ints[slot];
+	}
+
+	/**
+	 * Returns the key which is mapped to the <code>value</code>, or the
+	 * default key if there is none, in constant time. If several keys are
+	 * mapped to it, the one mapped to it the earliest among them is returned.
+	 *
+	 * @param value
+	 *            the value whose key is to be found
+	 * @param defaultKey
+	 *            the key to be returned if no key is mapped to the value
+	 * @return the key mapped to the value, or <code>defaultKey</code>
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 */
+	public int keyOf(String value, int defaultKey) {
+		int slot = inverse.slotOf(value);
+		return slot < 0 ? defaultKey : inverse.ints[slot];
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		dictionary.forEach(action);
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		return dictionary.cursor();
+	}
+
+	@Override
+	public DictionarySpliterator spliterator() {
+		return dictionary.spliterator();
+	}
+
+	@Override
+	public String toString() {
+		return dictionary.toString();
+	}
+
+}
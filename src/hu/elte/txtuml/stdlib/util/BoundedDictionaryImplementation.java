@@ -0,0 +1,648 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation class of the Dictionary interface which holds at most a
+ * fixed number of entries, so that it can be used as a cache or memo table.
+ * When a new key is put into a full dictionary, an entry is evicted as chosen
+ * by the {@link EvictionPolicy} of the dictionary.
+ * <p>
+ * Every operation takes constant time. The entries live in preallocated
+ * parallel arrays linked into the lists of the policy by index, and they are
+ * found by an open-addressing index over the primitive <code>int</code> keys,
+ * so no object is allocated per entry or per access. Both <code>get</code> and
+ * <code>put</code> count as an access of the key; traversing the dictionary
+ * does not. The numbers of hits, misses and evictions are counted. This
+ * class is not synchronized.
+ *
+ * @see EvictionPolicy
+ */
+public class BoundedDictionaryImplementation implements Dictionary {
+
+	private static final int MAXIMUM_FREQUENCY = 255;
+
+	private static final int MAXIMUM_BOUND = (int) (IntStringTable.MAXIMUM_CAPACITY * IntStringTable.DEFAULT_LOAD_FACTOR);
+
+	private final EvictionPolicy policy;
+
+	private final int capacity;
+
+	private final int[] nodeKeys;
+
+	private final String[] nodeValues;
+
+	/**
+	 * Links of the doubly linked lists of the policy. The first
+	 * <code>capacity</code> indices are entries, the rest are the list heads:
+	 * one for LRU, one per frequency for LFU, and the window and main regions
+	 * for TinyLFU.
+	 */
+	private final int[] prev;
+
+	private final int[] next;
+
+	private final int[] frequency;
+
+	private final boolean[] inMain;
+
+	private int size;
+
+	/**
+	 * Head of the free entries, chained through <code>next</code>.
+	 */
+	private int free;
+
+	private final int[] indexKeys;
+
+	/**
+	 * Entry index plus one for each slot of the key index; zero marks an empty
+	 * slot.
+	 */
+	private final int[] indexNodes;
+
+	private int minFrequency;
+
+	private final int windowCapacity;
+
+	private int windowSize;
+
+	private final FrequencySketch sketch;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	private int modCount;
+
+	/**
+	 * Constructs a new, empty dictionary evicting the least recently used
+	 * entries.
+	 *
+	 * @param capacity
+	 *            the maximal number of entries
+	 * @exception IllegalArgumentException
+	 *                if the capacity is not positive
+	 */
+	public BoundedDictionaryImplementation(int capacity) {
+		this(capacity, EvictionPolicy.LRU);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 *
+	 * @param capacity
+	 *            the maximal number of entries
+	 * @param policy
+	 *            the policy choosing the entries to be evicted
+	 * @exception IllegalArgumentException
+	 *                if the capacity is not positive
+	 */
+	public BoundedDictionaryImplementation(int capacity, EvictionPolicy policy) {
+		if (capacity <= 0 || capacity > MAXIMUM_BOUND) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+		if (policy == null) {
+			throw new NullPointerException();
+		}
+		this.policy = policy;
+		this.capacity = capacity;
+		nodeKeys = new int[capacity];
+		nodeValues = new String[capacity];
+		int heads;
+		switch (policy) {
+		case LFU:
+			heads = MAXIMUM_FREQUENCY;
+			break;
+		case TINY_LFU:
+			heads = 2;
+			break;
+		default:
+			heads = 1;
+		}
+		prev = new int[capacity + heads];
+		next = new int[capacity + heads];
+		for (int head = capacity; head < capacity + heads; head++) {
+			prev[head] = head;
+			next[head] = head;
+		}
+		for (int node = 0; node < capacity; node++) {
+			next[node] = node + 1 < capacity ? node + 1 : -1;
+		}
+		free = 0;
+		frequency = policy == EvictionPolicy.LFU ? new int[capacity] : null;
+		inMain = policy == EvictionPolicy.TINY_LFU ? new boolean[capacity] : null;
+		windowCapacity = Math.max(1, capacity / 100);
+		sketch = policy == EvictionPolicy.TINY_LFU ? new FrequencySketch(capacity) : null;
+		int indexCapacity = IntStringTable.capacityFor(capacity, IntStringTable.DEFAULT_LOAD_FACTOR);
+		indexKeys = new int[indexCapacity];
+		indexNodes = new int[indexCapacity];
+	}
+
+	/**
+	 * Returns the maximal number of entries of this dictionary.
+	 *
+	 * @return the capacity given at construction
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the eviction policy of this dictionary.
+	 *
+	 * @return the policy given at construction
+	 */
+	public EvictionPolicy policy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the number of <code>get</code> calls which found their key.
+	 *
+	 * @return the number of hits
+	 */
+	public long hitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of <code>get</code> calls which did not find their
+	 * key.
+	 *
+	 * @return the number of misses
+	 */
+	public long missCount() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of entries evicted to make room for new ones,
+	 * including new entries refused by the TinyLFU admission.
+	 *
+	 * @return the number of evictions
+	 */
+	public long evictionCount() {
+		return evictions;
+	}
+
+	// key index
+
+	private int slotOf(int key) {
+		int mask = indexKeys.length - 1;
+		int slot = IntStringTable.hash(key) & mask;
+		while (indexNodes[slot] != 0) {
+			if (indexKeys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void indexInsert(int key, int node) {
+		int mask = indexKeys.length - 1;
+		int slot = IntStringTable.hash(key) & mask;
+		while (indexNodes[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		indexKeys[slot] = key;
+		indexNodes[slot] = node + 1;
+	}
+
+	private void indexRemove(int slot) {
+		// backward-shift deletion, as in IntStringTable
+		int mask = indexKeys.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (indexNodes[next] != 0) {
+			int home = IntStringTable.hash(indexKeys[next]) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				indexKeys[gap] = indexKeys[next];
+				indexNodes[gap] = indexNodes[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		indexNodes[gap] = 0;
+	}
+
+	// policy lists
+
+	private void linkFirst(int head, int node) {
+		int first = next[head];
+		next[head] = node;
+		prev[node] = head;
+		next[node] = first;
+		prev[first] = node;
+	}
+
+	private void unlink(int node) {
+		next[prev[node]] = next[node];
+		prev[next[node]] = prev[node];
+	}
+
+	private boolean isEmptyList(int head) {
+		return next[head] == head;
+	}
+
+	private int bucket(int f) {
+		return capacity + f - 1;
+	}
+
+	private int windowHead() {
+		return capacity;
+	}
+
+	private int mainHead() {
+		return capacity + 1;
+	}
+
+	/**
+	 * Records an access of the entry.
+	 */
+	private void touch(int node) {
+		unlink(node);
+		switch (policy) {
+		case LFU:
+			int f = frequency[node];
+			if (f < MAXIMUM_FREQUENCY) {
+				if (f == minFrequency && isEmptyList(bucket(f))) {
+					minFrequency = f + 1;
+				}
+				frequency[node] = ++f;
+			}
+			linkFirst(bucket(f), node);
+			break;
+		case TINY_LFU:
+			linkFirst(inMain[node] ? mainHead() : windowHead(), node);
+			break;
+		default:
+			linkFirst(capacity, node);
+		}
+	}
+
+	/**
+	 * Removes the entry from the dictionary and returns it to the free list.
+	 */
+	private void discard(int node) {
+		unlink(node);
+		indexRemove(slotOf(nodeKeys[node]));
+		if (policy == EvictionPolicy.TINY_LFU && !inMain[node]) {
+			windowSize--;
+		}
+		nodeValues[node] = null;
+		next[node] = free;
+		free = node;
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Makes room for one more entry, evicting an entry if the dictionary or,
+	 * with TinyLFU, the window is full.
+	 */
+	private void makeRoom() {
+		switch (policy) {
+		case LFU:
+			if (size == capacity) {
+				while (isEmptyList(bucket(minFrequency))) {
+					minFrequency++;
+				}
+				discard(prev[bucket(minFrequency)]);
+				evictions++;
+			}
+			break;
+		case TINY_LFU:
+			if (windowSize == windowCapacity) {
+				int candidate = prev[windowHead()];
+				if (size < capacity) {
+					promote(candidate);
+				} else {
+					int victim = prev[mainHead()];
+					if (victim != mainHead()
+							&& sketch.frequency(nodeKeys[candidate]) > sketch.frequency(nodeKeys[victim])) {
+						discard(victim);
+						promote(candidate);
+					} else {
+						discard(candidate);
+					}
+					evictions++;
+				}
+			}
+			break;
+		default:
+			if (size == capacity) {
+				discard(prev[capacity]);
+				evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Moves an entry from the window to the main region.
+	 */
+	private void promote(int node) {
+		unlink(node);
+		windowSize--;
+		inMain[node] = true;
+		linkFirst(mainHead(), node);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return new SlotEnumeration<Integer>() {
+			@Override
+			Integer element(int node) {
+				return nodeKeys[node];
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int node) {
+				return nodeValues[node];
+			}
+		};
+	}
+
+	@Override
+	public String get(int key) {
+		if (sketch != null) {
+			sketch.increment(key);
+		}
+		int slot = slotOf(key);
+		if (slot < 0) {
+			misses++;
+			return null;
+		}
+		hits++;
+		int node = indexNodes[slot] - 1;
+		touch(node);
+		return nodeValues[node];
+	}
+
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		if (sketch != null) {
+			sketch.increment(key);
+		}
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			int node = indexNodes[slot] - 1;
+			String old = nodeValues[node];
+			nodeValues[node] = value;
+			touch(node);
+			return old;
+		}
+		makeRoom();
+		int node = free;
+		free = next[node];
+		nodeKeys[node] = key;
+		nodeValues[node] = value;
+		indexInsert(key, node);
+		switch (policy) {
+		case LFU:
+			frequency[node] = 1;
+			minFrequency = 1;
+			linkFirst(bucket(1), node);
+			break;
+		case TINY_LFU:
+			inMain[node] = false;
+			windowSize++;
+			linkFirst(windowHead(), node);
+			break;
+		default:
+			linkFirst(capacity, node);
+		}
+		size++;
+		modCount++;
+		return null;
+	}
+
+	@Override
+	public String remove(int key) {
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return null;
+		}
+		int node = indexNodes[slot] - 1;
+		String old = nodeValues[node];
+		discard(node);
+		return old;
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		int expectedModCount = modCount;
+		for (int slot = 0; slot < indexNodes.length; slot++) {
+			if (indexNodes[slot] != 0) {
+				int node = indexNodes[slot] - 1;
+				action.accept(nodeKeys[node], nodeValues[node]);
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		return new SlotCursor();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		forEach((key, value) -> {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(key).append('=').append(value);
+		});
+		return sb.append('}').toString();
+	}
+
+	private int nextSlot(int from) {
+		for (int slot = from; slot < indexNodes.length; slot++) {
+			if (indexNodes[slot] != 0) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Walks the entries in the order of the key index, without counting as an
+	 * access.
+	 */
+	private class SlotCursor implements DictionaryCursor {
+
+		private int expectedModCount;
+
+		private int slot;
+
+		private int next;
+
+		SlotCursor() {
+			reset();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public int nextKey() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next < 0) {
+				throw new NoSuchElementException();
+			}
+			slot = next;
+			next = nextSlot(slot + 1);
+			return nodeKeys[indexNodes[slot] - 1];
+		}
+
+		@Override
+		public String value() {
+			if (slot < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return nodeValues[indexNodes[slot] - 1];
+		}
+
+		@Override
+		public void reset() {
+			expectedModCount = modCount;
+			slot = -1;
+			next = nextSlot(0);
+		}
+	}
+
+	/**
+	 * Enumerates the entries in the order of the key index, without counting
+	 * as an access.
+	 */
+	private abstract class SlotEnumeration<E> implements Enumeration<E> {
+
+		private final int expectedModCount = modCount;
+
+		private int slot = nextSlot(0);
+
+		abstract E element(int node);
+
+		@Override
+		public boolean hasMoreElements() {
+			return slot >= 0;
+		}
+
+		@Override
+		public E nextElement() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (slot < 0) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			E element = element(indexNodes[slot] - 1);
+			slot = nextSlot(slot + 1);
+			return element;
+		}
+	}
+
+	/**
+	 * Count-min sketch of 4-bit counters estimating how often keys were
+	 * accessed. Each key is counted in four rows; its estimate is the minimum
+	 * of its four counters. All counters are halved after every
+	 * <code>10 * capacity</code> increments, so old accesses fade out.
+	 */
+	private static final class FrequencySketch {
+
+		private static final long[] SEEDS = { 0x97CB3127L, 0xC2B2AE35L, 0x85EBCA6BL, 0x27D4EB2FL };
+
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private final long[] table;
+
+		private final int mask;
+
+		private final int sampleSize;
+
+		private int additions;
+
+		FrequencySketch(int capacity) {
+			int length = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+			table = new long[length];
+			mask = length - 1;
+			sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Returns the counter index of the key in the given row: the word in
+		 * the high bits and the counter inside the word in the low 4 bits.
+		 */
+		private int counter(int key, int row) {
+			long h = (key + SEEDS[row]) * SEEDS[row];
+			h += h >>> 32;
+			return (int) h;
+		}
+
+		int frequency(int key) {
+			int min = 15;
+			for (int row = 0; row < 4; row++) {
+				int counter = counter(key, row);
+				int shift = (counter & 15) << 2;
+				int count = (int) ((table[(counter >>> 4) & mask] >>> shift) & 15);
+				min = Math.min(min, count);
+			}
+			return min;
+		}
+
+		void increment(int key) {
+			boolean added = false;
+			for (int row = 0; row < 4; row++) {
+				int counter = counter(key, row);
+				int index = (counter >>> 4) & mask;
+				int shift = (counter & 15) << 2;
+				if (((table[index] >>> shift) & 15) != 15) {
+					table[index] += 1L << shift;
+					added = true;
+				}
+			}
+			if (added && ++additions >= sampleSize) {
+				for (int i = 0; i < table.length; i++) {
+					table[i] = (table[i] >>> 1) & RESET_MASK;
+				}
+				additions >>>= 1;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,622 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation class of the Dictionary interface which stores its values
+ * compactly instead of keeping a <code>String</code> object per entry.
+ * <p>
+ * The values are encoded into a single shared byte arena: values which only
+ * contain characters up to <code>U+00FF</code> take one byte per character
+ * (Latin-1), other values are encoded in UTF-8. Every slot of the
+ * open-addressing key table refers to its value by offset and length, and a
+ * <code>String</code> is only created when a value is read. Optionally,
+ * equal values are deduplicated, so that a value repeated by many entries is
+ * stored once; it is counted how many entries share each stored value, and
+ * its bytes become garbage when the last of them is replaced or removed.
+ * <p>
+ * Replaced and removed values leave garbage in the arena, which is
+ * reclaimed by compacting the arena when it fills up. Values are encoded in
+ * UTF-8, so unpaired surrogate characters are not preserved. This class is
+ * not synchronized.
+ *
+ * @see Dictionary
+ * @see DictionaryImplementation
+ */
+public class CompactDictionaryImplementation implements Dictionary {
+
+	private static final int DEFAULT_ARENA_SIZE = 256;
+
+	private static final int MAXIMUM_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+	private static final long LATIN1 = 1;
+
+	private final boolean deduplicate;
+
+	private int[] keys;
+
+	/**
+	 * Value references: <code>offset + 1</code> in the high 32 bits, the
+	 * byte length shifted left by one and the Latin-1 flag in the low 32
+	 * bits. Zero marks an empty slot.
+	 */
+	private long[] refs;
+
+	private int size;
+
+	private int threshold;
+
+	private int modCount;
+
+	private byte[] arena = new byte[DEFAULT_ARENA_SIZE];
+
+	private int used;
+
+	/**
+	 * The unreferenced bytes of the arena.
+	 */
+	private int dead;
+
+	/**
+	 * Open-addressing set of the distinct values in the arena, keyed by the
+	 * hash of their bytes; only used when deduplicating.
+	 */
+	private long[] uniqueRefs;
+
+	private int[] uniqueHashes;
+
+	/**
+	 * The number of entries referring to each value of the set.
+	 */
+	private int[] uniqueCounts;
+
+	private int uniqueSize;
+
+	/**
+	 * Constructs a new, empty dictionary which does not deduplicate values.
+	 */
+	public CompactDictionaryImplementation() {
+		this(false);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 *
+	 * @param deduplicate
+	 *            whether equal values should be stored only once
+	 */
+	public CompactDictionaryImplementation(boolean deduplicate) {
+		this.deduplicate = deduplicate;
+		allocate(IntStringTable.capacityFor(IntStringTable.DEFAULT_EXPECTED_SIZE, IntStringTable.DEFAULT_LOAD_FACTOR));
+		if (deduplicate) {
+			allocateUnique(keys.length);
+		}
+	}
+
+	private void allocateUnique(int capacity) {
+		uniqueRefs = new long[capacity];
+		uniqueHashes = new int[capacity];
+		uniqueCounts = new int[capacity];
+		uniqueSize = 0;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		refs = new long[capacity];
+		threshold = (int) (capacity * IntStringTable.DEFAULT_LOAD_FACTOR);
+	}
+
+	private static int offsetOf(long ref) {
+		return (int) (ref >>> 32) - 1;
+	}
+
+	private static int lengthOf(long ref) {
+		return (int) ref >>> 1;
+	}
+
+	private static long ref(int offset, int length, boolean latin1) {
+		return ((long) (offset + 1) << 32) | ((long) length << 1) | (latin1 ? LATIN1 : 0);
+	}
+
+	private String decode(long ref) {
+		return new String(arena, offsetOf(ref), lengthOf(ref),
+				(ref & LATIN1) != 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Encodes the value at the end of the arena and returns its reference.
+	 * When deduplicating and an equal value is already stored, the encoded
+	 * bytes are discarded and the reference of the stored value is returned.
+	 * Every returned reference must be stored in a slot.
+	 */
+	private long encode(String value) {
+		int chars = value.length();
+		boolean latin1 = true;
+		long length = 0;
+		for (int i = 0; i < chars; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+				latin1 &= c <= 0xFF;
+			} else {
+				length += 3;
+				latin1 = false;
+			}
+		}
+		if (latin1) {
+			length = chars;
+		}
+		if (length > MAXIMUM_ARENA_SIZE >> 1) {
+			throw new IllegalArgumentException("Value is too long");
+		}
+		ensureArena((int) length);
+		int offset = used;
+		byte[] arena = this.arena;
+		int position = offset;
+		if (latin1) {
+			for (int i = 0; i < chars; i++) {
+				arena[position++] = (byte) value.charAt(i);
+			}
+		} else {
+			for (int i = 0; i < chars; i++) {
+				int c = value.charAt(i);
+				if (c < 0x80) {
+					arena[position++] = (byte) c;
+				} else if (c < 0x800) {
+					arena[position++] = (byte) (0xC0 | (c >> 6));
+					arena[position++] = (byte) (0x80 | (c & 0x3F));
+				} else if (Character.isHighSurrogate((char) c) && i + 1 < chars
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					// a surrogate pair takes 4 bytes instead of the 6 counted
+					int cp = Character.toCodePoint((char) c, value.charAt(++i));
+					arena[position++] = (byte) (0xF0 | (cp >> 18));
+					arena[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+					arena[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+					arena[position++] = (byte) (0x80 | (cp & 0x3F));
+				} else if (Character.isSurrogate((char) c)) {
+					arena[position++] = '?';
+				} else {
+					arena[position++] = (byte) (0xE0 | (c >> 12));
+					arena[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					arena[position++] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+		}
+		long ref = ref(offset, position - offset, latin1);
+		if (deduplicate) {
+			long existing = unique(ref);
+			if (existing != ref) {
+				return existing;
+			}
+		}
+		used = position;
+		return ref;
+	}
+
+	private static int hashBytes(byte[] arena, long ref) {
+		int h = (int) (ref & LATIN1);
+		for (int i = offsetOf(ref), end = i + lengthOf(ref); i < end; i++) {
+			h = 31 * h + arena[i];
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean sameBytes(byte[] arena, long a, byte[] bytes, long b) {
+		int length = lengthOf(a);
+		if (length != lengthOf(b) || (a & LATIN1) != (b & LATIN1)) {
+			return false;
+		}
+		for (int i = offsetOf(a), j = offsetOf(b), end = i + length; i < end; i++, j++) {
+			if (arena[i] != bytes[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the slot of the set holding the value equal to the one
+	 * referenced in <code>bytes</code>, or <code>-(slot + 1)</code> of the
+	 * empty slot where it would be inserted.
+	 */
+	private int uniqueSlotOf(byte[] bytes, long ref, int hash) {
+		int mask = uniqueRefs.length - 1;
+		int slot = hash & mask;
+		long existing;
+		while ((existing = uniqueRefs[slot]) != 0) {
+			if (uniqueHashes[slot] == hash && sameBytes(arena, existing, bytes, ref)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -(slot + 1);
+	}
+
+	/**
+	 * Returns the reference of the stored value equal to the given one, or
+	 * registers and returns the given reference if there is none, counting
+	 * one more entry referring to it.
+	 */
+	private long unique(long ref) {
+		int hash = hashBytes(arena, ref);
+		int slot = uniqueSlotOf(arena, ref, hash);
+		if (slot >= 0) {
+			uniqueCounts[slot]++;
+			return uniqueRefs[slot];
+		}
+		addUnique(-(slot + 1), ref, hash);
+		return ref;
+	}
+
+	private void addUnique(int slot, long ref, int hash) {
+		uniqueRefs[slot] = ref;
+		uniqueHashes[slot] = hash;
+		uniqueCounts[slot] = 1;
+		if (++uniqueSize > uniqueRefs.length * IntStringTable.DEFAULT_LOAD_FACTOR) {
+			long[] oldRefs = uniqueRefs;
+			int[] oldHashes = uniqueHashes;
+			int[] oldCounts = uniqueCounts;
+			int size = uniqueSize;
+			allocateUnique(oldRefs.length << 1);
+			uniqueSize = size;
+			int mask = uniqueRefs.length - 1;
+			for (int i = 0; i < oldRefs.length; i++) {
+				if (oldRefs[i] != 0) {
+					int s = oldHashes[i] & mask;
+					while (uniqueRefs[s] != 0) {
+						s = (s + 1) & mask;
+					}
+					uniqueRefs[s] = oldRefs[i];
+					uniqueHashes[s] = oldHashes[i];
+					uniqueCounts[s] = oldCounts[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases the value of a replaced or removed entry: its bytes become
+	 * garbage, unless other entries still share them.
+	 */
+	private void release(long ref) {
+		if (deduplicate) {
+			int mask = uniqueRefs.length - 1;
+			int slot = hashBytes(arena, ref) & mask;
+			while (uniqueRefs[slot] != ref) {
+				slot = (slot + 1) & mask;
+			}
+			if (--uniqueCounts[slot] > 0) {
+				return;
+			}
+			removeUnique(slot);
+		}
+		dead += lengthOf(ref);
+	}
+
+	private void removeUnique(int slot) {
+		// backward-shift deletion, as in IntStringTable
+		int mask = uniqueRefs.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (uniqueRefs[next] != 0) {
+			int home = uniqueHashes[next] & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				uniqueRefs[gap] = uniqueRefs[next];
+				uniqueHashes[gap] = uniqueHashes[next];
+				uniqueCounts[gap] = uniqueCounts[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		uniqueRefs[gap] = 0;
+		uniqueSize--;
+	}
+
+	/**
+	 * Makes room for <code>needed</code> more bytes in the arena, compacting
+	 * it first if at least half of it is garbage.
+	 */
+	private void ensureArena(int needed) {
+		if ((long) used + needed <= arena.length) {
+			return;
+		}
+		if (dead > used / 2) {
+			compact();
+			if ((long) used + needed <= arena.length) {
+				return;
+			}
+		}
+		long length = Math.max((long) arena.length * 2, (long) used + needed);
+		if ((long) used + needed > MAXIMUM_ARENA_SIZE) {
+			throw new IllegalStateException("Dictionary is full");
+		}
+		byte[] grown = new byte[(int) Math.min(length, MAXIMUM_ARENA_SIZE)];
+		System.arraycopy(arena, 0, grown, 0, used);
+		arena = grown;
+	}
+
+	/**
+	 * Copies the values still referenced into a fresh arena. A value shared
+	 * by several entries is looked up by its old bytes, and copied only once.
+	 */
+	private void compact() {
+		byte[] old = arena;
+		arena = new byte[old.length];
+		used = 0;
+		dead = 0;
+		if (deduplicate) {
+			allocateUnique(uniqueRefs.length);
+		}
+		for (int slot = 0; slot < refs.length; slot++) {
+			long ref = refs[slot];
+			if (ref != 0) {
+				int hash = 0;
+				int unique = 0;
+				if (deduplicate) {
+					hash = hashBytes(old, ref);
+					unique = uniqueSlotOf(old, ref, hash);
+					if (unique >= 0) {
+						uniqueCounts[unique]++;
+						refs[slot] = uniqueRefs[unique];
+						continue;
+					}
+				}
+				int length = lengthOf(ref);
+				System.arraycopy(old, offsetOf(ref), arena, used, length);
+				long moved = ref(used, length, (ref & LATIN1) != 0);
+				used += length;
+				refs[slot] = moved;
+				if (deduplicate) {
+					addUnique(-(unique + 1), moved, hash);
+				}
+			}
+		}
+	}
+
+	private int slotOf(int key) {
+		int mask = keys.length - 1;
+		int slot = IntStringTable.hash(key) & mask;
+		while (refs[slot] != 0) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return new SlotEnumeration<Integer>() {
+			@Override
+			Integer element(int slot) {
+				return keys[slot];
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int slot) {
+				return decode(refs[slot]);
+			}
+		};
+	}
+
+	@Override
+	public String get(int key) {
+		int slot = slotOf(key);
+		return slot < 0 ? null : decode(refs[slot]);
+	}
+
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		// encoding may compact the arena, so it precedes the lookup
+		long ref = encode(value);
+		int mask = keys.length - 1;
+		int slot = IntStringTable.hash(key) & mask;
+		while (refs[slot] != 0) {
+			if (keys[slot] == key) {
+				long old = refs[slot];
+				refs[slot] = ref;
+				String previous = decode(old);
+				release(old);
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		refs[slot] = ref;
+		modCount++;
+		if (++size > threshold) {
+			resize(keys.length << 1);
+		}
+		return null;
+	}
+
+	@Override
+	public String remove(int key) {
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return null;
+		}
+		long old = refs[slot];
+		String previous = decode(old);
+		release(old);
+		// backward-shift deletion, as in IntStringTable
+		int mask = keys.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (refs[next] != 0) {
+			int home = IntStringTable.hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				refs[gap] = refs[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		refs[gap] = 0;
+		size--;
+		modCount++;
+		return previous;
+	}
+
+	private void resize(int newCapacity) {
+		if (newCapacity > IntStringTable.MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("Dictionary is full");
+		}
+		int[] oldKeys = keys;
+		long[] oldRefs = refs;
+		allocate(newCapacity);
+		int mask = newCapacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldRefs[i] != 0) {
+				int slot = IntStringTable.hash(oldKeys[i]) & mask;
+				while (refs[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				refs[slot] = oldRefs[i];
+			}
+		}
+		modCount++;
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		int expectedModCount = modCount;
+		for (int slot = 0; slot < refs.length; slot++) {
+			if (refs[slot] != 0) {
+				action.accept(keys[slot], decode(refs[slot]));
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		return new SlotCursor();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		forEach((key, value) -> {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(key).append('=').append(value);
+		});
+		return sb.append('}').toString();
+	}
+
+	private int nextSlot(int from) {
+		for (int slot = from; slot < refs.length; slot++) {
+			if (refs[slot] != 0) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private class SlotCursor implements DictionaryCursor {
+
+		private int expectedModCount;
+
+		private int slot;
+
+		private int next;
+
+		SlotCursor() {
+			reset();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public int nextKey() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next < 0) {
+				throw new NoSuchElementException();
+			}
+			slot = next;
+			next = nextSlot(slot + 1);
+			return keys[slot];
+		}
+
+		@Override
+		public String value() {
+			if (slot < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return decode(refs[slot]);
+		}
+
+		@Override
+		public void reset() {
+			expectedModCount = modCount;
+			slot = -1;
+			next = nextSlot(0);
+		}
+	}
+
+	private abstract class SlotEnumeration<E> implements Enumeration<E> {
+
+		private final int expectedModCount = modCount;
+
+		private int slot = nextSlot(0);
+
+		abstract E element(int slot);
+
+		@Override
+		public boolean hasMoreElements() {
+			return slot >= 0;
+		}
+
+		@Override
+		public E nextElement() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (slot < 0) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			E element = element(slot);
+			slot = nextSlot(slot + 1);
+			return element;
+		}
+	}
+
+}
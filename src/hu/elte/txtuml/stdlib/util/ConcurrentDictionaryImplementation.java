@@ -0,0 +1,749 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation class of the Dictionary interface which can be shared
+ * between several threads, for example between txtUML object runtimes
+ * executed in parallel.
+ * <p>
+ * The keys are split into segments by their hash; every segment is an
+ * open-addressing table over primitive <code>int</code> keys. Reads never
+ * lock: they only perform volatile reads of the segment table. Writes lock
+ * the single segment they modify, so writers of different segments do not
+ * contend. The enumerations returned by {@link #keys()} and
+ * {@link #elements()} are weakly consistent: they never throw
+ * <code>ConcurrentModificationException</code>, never block writers, and
+ * reflect some state of every segment at or after the moment the
+ * enumeration reached it. A consistent view of all the segments is taken
+ * by {@link #snapshot()}, which copies the entries under all the locks.
+ * <p>
+ * The compute-style methods, such as {@link #merge} and {@link #compute},
+ * are atomic: they hold the lock of the segment of the key while their
+ * function runs, so the function must be short and must not modify this
+ * dictionary.
+ *
+ * @see Dictionary
+ * @see DictionaryImplementation
+ */
+public class ConcurrentDictionaryImplementation implements Dictionary {
+
+	/**
+	 * Marks the slot of a removed key. The key of a slot never changes once
+	 * the slot is claimed, so lock-free readers can never pair a key with the
+	 * value of another key; removed slots are dropped on the next rehash.
+	 */
+	private static final Object TOMBSTONE = new Object();
+
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	private static final int MAXIMUM_SEGMENTS = 1 << 16;
+
+	private final Segment[] segments;
+
+	private final int segmentShift;
+
+	/**
+	 * Constructs a new, empty dictionary with the default concurrency level
+	 * (16).
+	 */
+	public ConcurrentDictionaryImplementation() {
+		this(DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary which allows the given number of
+	 * concurrent writers without contention.
+	 *
+	 * @param concurrencyLevel
+	 *            the estimated number of concurrently writing threads, rounded
+	 *            up to a power of two.
+	 * @exception IllegalArgumentException
+	 *                if the concurrency level is not positive.
+	 */
+	public ConcurrentDictionaryImplementation(int concurrencyLevel) {
+		if (concurrencyLevel <= 0) {
+			throw new IllegalArgumentException("Illegal concurrency level: " + concurrencyLevel);
+		}
+		int count = 1;
+		int bits = 0;
+		while (count < concurrencyLevel && count < MAXIMUM_SEGMENTS) {
+			count <<= 1;
+			bits++;
+		}
+		segmentShift = 32 - bits;
+		segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	private Segment segmentFor(int hash) {
+		// the high bits choose the segment, the low bits the slot inside it
+		return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for (Segment segment : segments) {
+			if (segment.count != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int size() {
+		long sum = 0;
+		for (Segment segment : segments) {
+			sum += segment.count;
+		}
+		return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return new WeakEnumeration<Integer>() {
+			@Override
+			Integer element(int key, String value) {
+				return key;
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return new WeakEnumeration<String>() {
+			@Override
+			String element(int key, String value) {
+				return value;
+			}
+		};
+	}
+
+	@Override
+	public String get(int key) {
+		int hash = IntStringTable.hash(key);
+		return segmentFor(hash).get(key, hash);
+	}
+
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		int hash = IntStringTable.hash(key);
+		return segmentFor(hash).put(key, hash, value);
+	}
+
+	@Override
+	public String remove(int key) {
+		int hash = IntStringTable.hash(key);
+		return segmentFor(hash).remove(key, hash);
+	}
+
+	@Override
+	public String putIfAbsent(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		return update(key, (k, old) -> old != null ? old : value, true);
+	}
+
+	@Override
+	public String computeIfAbsent(int key, IntFunction<String> mappingFunction) {
+		if (mappingFunction == null) {
+			throw new NullPointerException();
+		}
+		return update(key, (k, old) -> old != null ? old : mappingFunction.apply(k), false);
+	}
+
+	@Override
+	public String compute(int key, IntStringFunction remappingFunction) {
+		if (remappingFunction == null) {
+			throw new NullPointerException();
+		}
+		return update(key, remappingFunction, false);
+	}
+
+	@Override
+	public String merge(int key, String value, BinaryOperator<String> remappingFunction) {
+		if (value == null || remappingFunction == null) {
+			throw new NullPointerException();
+		}
+		return update(key, (k, old) -> old == null ? value : remappingFunction.apply(old, value), false);
+	}
+
+	@Override
+	public boolean replace(int key, String expectedValue, String newValue) {
+		if (newValue == null) {
+			throw new NullPointerException();
+		}
+		if (expectedValue == null) {
+			return false;
+		}
+		String old = update(key, (k, current) -> expectedValue.equals(current) ? newValue : current, true);
+		return expectedValue.equals(old);
+	}
+
+	private String update(int key, IntStringFunction function, boolean returnOld) {
+		int hash = IntStringTable.hash(key);
+		return segmentFor(hash).update(key, hash, function, returnOld);
+	}
+
+	/**
+	 * Performs the given action for each entry of this dictionary. The
+	 * traversal is weakly consistent, like the enumerations.
+	 *
+	 * @param   action   the action to be performed for each entry.
+	 */
+	@Override
+	public void forEach(IntStringConsumer action) {
+		for (Segment segment : segments) {
+			Table table = segment.table;
+			for (int slot = 0; slot < table.keys.length; slot++) {
+				Object value = table.values.get(slot);
+				if (value != null && value != TOMBSTONE) {
+					action.accept(table.keys[slot], (String) value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a reusable, weakly consistent cursor over the entries of this
+	 * dictionary.
+	 *
+	 * @return  a cursor over the entries of this dictionary.
+	 */
+	@Override
+	public DictionaryCursor cursor() {
+		return new WeakCursor();
+	}
+
+	/**
+	 * Returns a weakly consistent spliterator over the entries of this
+	 * dictionary, which splits the segments first and then the slots of a
+	 * segment. The parallel operations may run while other threads modify
+	 * this dictionary.
+	 *
+	 * @return  a spliterator over the entries of this dictionary.
+	 */
+	@Override
+	public DictionarySpliterator spliterator() {
+		return new SegmentSpliterator(0, segments.length);
+	}
+
+	/**
+	 * Returns a read-only snapshot of the contents of this dictionary at a
+	 * single moment. Unlike the weakly consistent traversals, it locks all
+	 * the segments while it copies their entries, so it takes time
+	 * proportional to the size of this dictionary, and writers wait for it
+	 * meanwhile; readers do not.
+	 *
+	 * @return  a read-only dictionary holding the entries of this
+	 *          dictionary.
+	 */
+	@Override
+	public Dictionary snapshot() {
+		// the segments are locked in order, and no other method holds the
+		// locks of several segments
+		int locked = 0;
+		try {
+			long size = 0;
+			for (Segment segment : segments) {
+				segment.lock();
+				locked++;
+				size += segment.count;
+			}
+			DictionaryImplementation copy = new DictionaryImplementation((int) Math.min(size, Integer.MAX_VALUE));
+			for (Segment segment : segments) {
+				Table table = segment.table;
+				for (int slot = 0; slot < table.keys.length; slot++) {
+					Object value = table.values.get(slot);
+					if (value != null && value != TOMBSTONE) {
+						copy.put(table.keys[slot], (String) value);
+					}
+				}
+			}
+			return copy.snapshot();
+		} finally {
+			for (int i = 0; i < locked; i++) {
+				segments[i].unlock();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		for (Segment segment : segments) {
+			Table table = segment.table;
+			for (int slot = 0; slot < table.keys.length; slot++) {
+				Object value = table.values.get(slot);
+				if (value != null && value != TOMBSTONE) {
+					if (sb.length() > 1) {
+						sb.append(", ");
+					}
+					sb.append(table.keys[slot]).append('=').append(value);
+				}
+			}
+		}
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Slots of a segment. A slot is claimed by writing its key first and its
+	 * value second with a volatile write, so a reader which sees a
+	 * non-<code>null</code> value also sees the key.
+	 */
+	private static final class Table {
+
+		final int[] keys;
+
+		final AtomicReferenceArray<Object> values;
+
+		final int threshold;
+
+		Table(int capacity) {
+			keys = new int[capacity];
+			values = new AtomicReferenceArray<>(capacity);
+			threshold = (int) (capacity * IntStringTable.DEFAULT_LOAD_FACTOR);
+		}
+	}
+
+	private static final class Segment extends ReentrantLock {
+
+		private static final long serialVersionUID = 1L;
+
+		volatile Table table = new Table(IntStringTable.capacityFor(IntStringTable.DEFAULT_EXPECTED_SIZE,
+				IntStringTable.DEFAULT_LOAD_FACTOR));
+
+		/**
+		 * Number of live entries, written only while holding the lock.
+		 */
+		volatile int count;
+
+		/**
+		 * Number of claimed slots including tombstones, guarded by the lock.
+		 */
+		int used;
+
+		/**
+		 * Set while the function of an update runs, guarded by the lock.
+		 */
+		private boolean updating;
+
+		/**
+		 * Acquires the lock, rejecting modifications made by the function of
+		 * an update of the same segment.
+		 */
+		private void lockForUpdate() {
+			lock();
+			if (updating) {
+				unlock();
+				throw new IllegalStateException("Recursive update");
+			}
+		}
+
+		String get(int key, int hash) {
+			Table table = this.table;
+			int mask = table.keys.length - 1;
+			int slot = hash & mask;
+			Object value;
+			while ((value = table.values.get(slot)) != null) {
+				if (table.keys[slot] == key) {
+					return value == TOMBSTONE ? null : (String) value;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return null;
+		}
+
+		String put(int key, int hash, String value) {
+			lockForUpdate();
+			try {
+				Table table = this.table;
+				int mask = table.keys.length - 1;
+				int slot = hash & mask;
+				Object old;
+				while ((old = table.values.get(slot)) != null) {
+					if (table.keys[slot] == key) {
+						table.values.set(slot, value);
+						if (old == TOMBSTONE) {
+							count++;
+							return null;
+						}
+						return (String) old;
+					}
+					slot = (slot + 1) & mask;
+				}
+				table.keys[slot] = key;
+				table.values.set(slot, value);
+				count++;
+				if (++used > table.threshold) {
+					rehash();
+				}
+				return null;
+			} finally {
+				unlock();
+			}
+		}
+
+		String remove(int key, int hash) {
+			lockForUpdate();
+			try {
+				Table table = this.table;
+				int mask = table.keys.length - 1;
+				int slot = hash & mask;
+				Object old;
+				while ((old = table.values.get(slot)) != null) {
+					if (table.keys[slot] == key) {
+						if (old == TOMBSTONE) {
+							return null;
+						}
+						table.values.set(slot, TOMBSTONE);
+						count--;
+						return (String) old;
+					}
+					slot = (slot + 1) & mask;
+				}
+				return null;
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Replaces the value of the key by the result of the function applied
+		 * to it, with a single probe under the lock; a <code>null</code>
+		 * result removes the key. Returns the old value if
+		 * <code>returnOld</code> is set, otherwise the new one.
+		 */
+		String update(int key, int hash, IntStringFunction function, boolean returnOld) {
+			lockForUpdate();
+			try {
+				Table table = this.table;
+				int mask = table.keys.length - 1;
+				int slot = hash & mask;
+				Object current;
+				while ((current = table.values.get(slot)) != null && table.keys[slot] != key) {
+					slot = (slot + 1) & mask;
+				}
+				String old = current == null || current == TOMBSTONE ? null : (String) current;
+				String value;
+				updating = true;
+				try {
+					value = function.apply(key, old);
+				} finally {
+					updating = false;
+				}
+				if (value == null) {
+					if (old != null) {
+						table.values.set(slot, TOMBSTONE);
+						count--;
+					}
+				} else if (current == null) {
+					table.keys[slot] = key;
+					table.values.set(slot, value);
+					count++;
+					if (++used > table.threshold) {
+						rehash();
+					}
+				} else {
+					table.values.set(slot, value);
+					if (old == null) {
+						count++;
+					}
+				}
+				return returnOld ? old : value;
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Copies the live entries into a fresh table, doubling the capacity
+		 * unless most of the claimed slots were tombstones. Readers keep
+		 * using the old table until the new one is published.
+		 */
+		private void rehash() {
+			Table old = table;
+			int capacity = old.keys.length;
+			if (count > old.threshold / 2) {
+				if (capacity == IntStringTable.MAXIMUM_CAPACITY) {
+					throw new IllegalStateException("Dictionary is full");
+				}
+				capacity <<= 1;
+			}
+			Table fresh = new Table(capacity);
+			int mask = capacity - 1;
+			for (int i = 0; i < old.keys.length; i++) {
+				Object value = old.values.get(i);
+				if (value != null && value != TOMBSTONE) {
+					int key = old.keys[i];
+					int slot = IntStringTable.hash(key) & mask;
+					while (fresh.values.get(slot) != null) {
+						slot = (slot + 1) & mask;
+					}
+					fresh.keys[slot] = key;
+					fresh.values.lazySet(slot, value);
+				}
+			}
+			used = count;
+			table = fresh;
+		}
+	}
+
+	/**
+	 * Walks the segments one after the other, reading the current table of a
+	 * segment when it gets there. The next entry is always looked up in
+	 * advance, so <code>hasNext</code> is exact for the state seen.
+	 */
+	private class WeakCursor implements DictionaryCursor {
+
+		private int segment;
+
+		private Table table;
+
+		private int slot;
+
+		private int nextKey;
+
+		private String nextValue;
+
+		private String value;
+
+		WeakCursor() {
+			reset();
+		}
+
+		private void advance() {
+			nextValue = null;
+			while (true) {
+				if (table != null) {
+					while (slot < table.keys.length) {
+						Object value = table.values.get(slot);
+						int key = table.keys[slot];
+						slot++;
+						if (value != null && value != TOMBSTONE) {
+							nextKey = key;
+							nextValue = (String) value;
+							return;
+						}
+					}
+				}
+				if (++segment >= segments.length) {
+					table = null;
+					return;
+				}
+				table = segments[segment].table;
+				slot = 0;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextValue != null;
+		}
+
+		@Override
+		public int nextKey() {
+			if (nextValue == null) {
+				throw new NoSuchElementException();
+			}
+			int key = nextKey;
+			value = nextValue;
+			advance();
+			return key;
+		}
+
+		@Override
+		public String value() {
+			if (value == null) {
+				throw new IllegalStateException();
+			}
+			return value;
+		}
+
+		@Override
+		public void reset() {
+			segment = -1;
+			table = null;
+			value = null;
+			advance();
+		}
+	}
+
+	/**
+	 * Traverses a range of segments, reading the current table of a segment
+	 * when it gets there, and then a range of slots of that table. A range
+	 * of several segments splits in halves; a single segment is opened, and
+	 * its range of slots splits in halves.
+	 */
+	private class SegmentSpliterator implements DictionarySpliterator {
+
+		/**
+		 * The next segment to be opened.
+		 */
+		private int segment;
+
+		private int segmentFence;
+
+		/**
+		 * The table of the open segment, or <code>null</code>.
+		 */
+		private Table table;
+
+		private int slot;
+
+		private int slotFence;
+
+		/**
+		 * The estimated number of entries left in the open table.
+		 */
+		private long tableEstimate;
+
+		SegmentSpliterator(int segment, int segmentFence) {
+			this.segment = segment;
+			this.segmentFence = segmentFence;
+		}
+
+		SegmentSpliterator(Table table, int slot, int slotFence, long tableEstimate) {
+			this.table = table;
+			this.slot = slot;
+			this.slotFence = slotFence;
+			this.tableEstimate = tableEstimate;
+		}
+
+		private void open() {
+			Segment next = segments[segment++];
+			table = next.table;
+			slot = 0;
+			slotFence = table.keys.length;
+			tableEstimate = next.count;
+		}
+
+		@Override
+		public DictionarySpliterator trySplit() {
+			if (segmentFence - segment > 1) {
+				int middle = (segment + segmentFence) >>> 1;
+				SegmentSpliterator prefix = new SegmentSpliterator(segment, middle);
+				segment = middle;
+				return prefix;
+			}
+			if (table != null && segment < segmentFence) {
+				// split off the last segment, while the open table remains
+				SegmentSpliterator suffix = new SegmentSpliterator(segment, segmentFence);
+				segment = segmentFence;
+				return suffix;
+			}
+			if (table == null && segment < segmentFence) {
+				open();
+			}
+			if (table != null && slotFence - slot > 1) {
+				int middle = (slot + slotFence) >>> 1;
+				long half = tableEstimate >>> 1;
+				SegmentSpliterator prefix = new SegmentSpliterator(table, slot, middle, half);
+				slot = middle;
+				tableEstimate -= half;
+				return prefix;
+			}
+			return null;
+		}
+
+		@Override
+		public boolean tryAdvance(IntStringConsumer action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			while (true) {
+				if (table != null) {
+					while (slot < slotFence) {
+						Object value = table.values.get(slot);
+						int key = table.keys[slot];
+						slot++;
+						if (value != null && value != TOMBSTONE) {
+							if (tableEstimate > 0) {
+								tableEstimate--;
+							}
+							action.accept(key, (String) value);
+							return true;
+						}
+					}
+					table = null;
+				}
+				if (segment >= segmentFence) {
+					return false;
+				}
+				open();
+			}
+		}
+
+		@Override
+		public void forEachRemaining(IntStringConsumer action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			while (true) {
+				if (table != null) {
+					Table table = this.table;
+					for (int i = slot; i < slotFence; i++) {
+						Object value = table.values.get(i);
+						if (value != null && value != TOMBSTONE) {
+							action.accept(table.keys[i], (String) value);
+						}
+					}
+					this.table = null;
+				}
+				if (segment >= segmentFence) {
+					return;
+				}
+				open();
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			long estimate = table == null ? 0 : tableEstimate;
+			for (int i = segment; i < segmentFence; i++) {
+				estimate += segments[i].count;
+			}
+			return estimate;
+		}
+
+		@Override
+		public int characteristics() {
+			return DISTINCT | NONNULL | CONCURRENT;
+		}
+	}
+
+	private abstract class WeakEnumeration<E> implements Enumeration<E> {
+
+		private final WeakCursor cursor = new WeakCursor();
+
+		abstract E element(int key, String value);
+
+		@Override
+		public boolean hasMoreElements() {
+			return cursor.hasNext();
+		}
+
+		@Override
+		public E nextElement() {
+			if (!cursor.hasNext()) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			int key = cursor.nextKey();
+			return element(key, cursor.value());
+		}
+	}
+
+}
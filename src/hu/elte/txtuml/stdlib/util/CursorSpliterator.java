@@ -0,0 +1,50 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * A spliterator over the cursor of a dictionary, which cannot be split. It
+ * makes the parallel operations of {@link Dictionary} run sequentially for
+ * the implementations which do not provide a splitting spliterator.
+ */
+class CursorSpliterator implements DictionarySpliterator {
+
+	private final DictionaryCursor cursor;
+
+	private long estimate;
+
+	CursorSpliterator(DictionaryCursor cursor, int size) {
+		this.cursor = cursor;
+		this.estimate = size;
+	}
+
+	@Override
+	public boolean tryAdvance(IntStringConsumer action) {
+		if (action == null) {
+			throw new NullPointerException();
+		}
+		if (!cursor.hasNext()) {
+			return false;
+		}
+		int key = cursor.nextKey();
+		action.accept(key, cursor.value());
+		if (estimate > 0) {
+			estimate--;
+		}
+		return true;
+	}
+
+	@Override
+	public DictionarySpliterator trySplit() {
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		return estimate;
+	}
+
+	@Override
+	public int characteristics() {
+		return DISTINCT | NONNULL;
+	}
+
+}
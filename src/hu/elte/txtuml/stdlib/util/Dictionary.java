@@ -1,8 +1,17 @@
 package hu.elte.txtuml.stdlib.util;
 
 	
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
 
+	import hu.elte.txtuml.api.model.Collection;
 	import hu.elte.txtuml.api.model.external.ExternalClass;
 
 
@@ -108,6 +117,458 @@ import java.util.Enumeration;
 			 * @exception NullPointerException if <tt>key</tt> is <tt>null</tt>.
 			 */
 			public String remove(int key);
+			
+			/**
+			 * Maps each key of <code>keys</code> to the value at the same index
+			 * of <code>values</code>, as if by calling <code>put</code> for each
+			 * pair in order. The arguments are validated before the dictionary
+			 * is modified, so an invalid argument leaves it unchanged.
+			 * Implementations enlarge their storage at most once.
+			 *
+			 * @param      keys     the keys to be mapped.
+			 * @param      values   the values, one for each key.
+			 * @return     an array holding, at the index of each key, the value
+			 *             that key was previously mapped to, or <code>null</code>.
+			 * @exception  NullPointerException  if any of the arrays or any of
+			 *               the values is <code>null</code>.
+			 * @exception  IllegalArgumentException  if the arrays have different
+			 *               lengths.
+			 */
+			public default String[] putAll(int[] keys, String[] values) {
+				IntStringTable.checkEntries(keys, values);
+				String[] previous = new String[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					previous[i] = put(keys[i], values[i]);
+				}
+				return previous;
+			}
+			
+			/**
+			 * Maps each key of <code>keys</code> to the value at the same
+			 * position of <code>values</code>, as if by calling <code>put</code>
+			 * for each pair in order.
+			 *
+			 * @param      keys     the keys to be mapped.
+			 * @param      values   the values, one for each key.
+			 * @exception  NullPointerException  if any of the values is
+			 *               <code>null</code>.
+			 * @exception  IllegalArgumentException  if the collections have
+			 *               different sizes.
+			 * @see        #putAll(int[], String[])
+			 */
+			public default void putAll(Collection<Integer> keys, Collection<String> values) {
+				int count = keys.count();
+				if (count != values.count()) {
+					throw new IllegalArgumentException("Number of keys and values differ: " + count + " != " + values.count());
+				}
+				int[] keyArray = new int[count];
+				String[] valueArray = new String[count];
+				Iterator<Integer> keyIterator = keys.iterator();
+				Iterator<String> valueIterator = values.iterator();
+				for (int i = 0; i < count; i++) {
+					keyArray[i] = keyIterator.next();
+					valueArray[i] = valueIterator.next();
+				}
+				putAll(keyArray, valueArray);
+			}
+			
+			/**
+			 * Returns the values to which the given keys are mapped in this
+			 * dictionary, in a single array.
+			 *
+			 * @param   keys   the keys to be looked up.
+			 * @return  an array holding, at the index of each key, the value
+			 *          that key is mapped to, or <code>null</code> if the key
+			 *          is not mapped to any value.
+			 * @exception NullPointerException if <tt>keys</tt> is <tt>null</tt>.
+			 */
+			public default String[] getAll(int[] keys) {
+				String[] result = new String[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					result[i] = get(keys[i]);
+				}
+				return result;
+			}
+			
+			/**
+			 * Removes each of the given keys (and its corresponding value) from
+			 * this dictionary.
+			 *
+			 * @param   keys   the keys that need to be removed.
+			 * @return  an array holding, at the index of each key, the value
+			 *          that key had been mapped to, or <code>null</code> if the
+			 *          key did not have a mapping.
+			 * @exception NullPointerException if <tt>keys</tt> is <tt>null</tt>.
+			 */
+			public default String[] removeAll(int[] keys) {
+				String[] removed = new String[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					removed[i] = remove(keys[i]);
+				}
+				return removed;
+			}
+
+			
+			/**
+			 * Tests if some key is mapped to the <code>value</code> in this
+			 * dictionary.
+			 * <p>
+			 * The default implementation scans the entries;
+			 * {@link BidirectionalDictionaryImplementation} looks the value up
+			 * in its reverse index.
+			 *
+			 * @param      value   the value to be found.
+			 * @return     <code>true</code> if some key is mapped to the
+			 *             <code>value</code>.
+			 * @exception  NullPointerException  if the <code>value</code> is
+			 *               <code>null</code>.
+			 */
+			public default boolean containsValue(String value) {
+				if (value == null) {
+					throw new NullPointerException();
+				}
+				for (DictionaryCursor cursor = cursor(); cursor.hasNext();) {
+					cursor.nextKey();
+					if (value.equals(cursor.value())) {
+						return true;
+					}
+				}
+				return false;
+			}
+			
+			/**
+			 * Maps the <code>key</code> to the <code>value</code> if it is not
+			 * mapped to any value yet.
+			 * <p>
+			 * The default implementation looks up the key twice, and is not
+			 * atomic; {@link DictionaryImplementation} probes its table once,
+			 * and {@link ConcurrentDictionaryImplementation} performs it
+			 * atomically.
+			 *
+			 * @param      key     the key.
+			 * @param      value   the value to be mapped to the key.
+			 * @return     the value the key was mapped to, or <code>null</code>
+			 *             if it was absent and is now mapped to <code>value</code>.
+			 * @exception  NullPointerException  if the <code>value</code> is
+			 *               <code>null</code>.
+			 */
+			public default String putIfAbsent(int key, String value) {
+				if (value == null) {
+					throw new NullPointerException();
+				}
+				String current = get(key);
+				if (current == null) {
+					put(key, value);
+				}
+				return current;
+			}
+			
+			/**
+			 * If the <code>key</code> is not mapped to any value, computes its
+			 * value by the given function and maps the key to it, unless it is
+			 * <code>null</code>. Atomicity is as for {@link #putIfAbsent}.
+			 *
+			 * @param      key     the key.
+			 * @param      mappingFunction   computes the value of the key.
+			 * @return     the current (existing or computed) value of the key,
+			 *             or <code>null</code> if the computed value is
+			 *             <code>null</code>.
+			 * @exception  NullPointerException  if the function is
+			 *               <code>null</code>.
+			 */
+			public default String computeIfAbsent(int key, IntFunction<String> mappingFunction) {
+				if (mappingFunction == null) {
+					throw new NullPointerException();
+				}
+				String current = get(key);
+				if (current == null) {
+					current = mappingFunction.apply(key);
+					if (current != null) {
+						put(key, current);
+					}
+				}
+				return current;
+			}
+			
+			/**
+			 * Computes the new value of the <code>key</code> from its current
+			 * value, or <code>null</code> if it is absent, and maps the key to
+			 * it; a <code>null</code> result removes the key. Atomicity is as
+			 * for {@link #putIfAbsent}.
+			 *
+			 * @param      key     the key.
+			 * @param      remappingFunction   computes the new value.
+			 * @return     the new value of the key, or <code>null</code> if it
+			 *             is absent now.
+			 * @exception  NullPointerException  if the function is
+			 *               <code>null</code>.
+			 */
+			public default String compute(int key, IntStringFunction remappingFunction) {
+				if (remappingFunction == null) {
+					throw new NullPointerException();
+				}
+				String old = get(key);
+				String value = remappingFunction.apply(key, old);
+				if (value != null) {
+					put(key, value);
+				} else if (old != null) {
+					remove(key);
+				}
+				return value;
+			}
+			
+			/**
+			 * Maps the <code>key</code> to the <code>value</code> if it is
+			 * absent, otherwise to the result of the given function applied to
+			 * its current value and <code>value</code>; a <code>null</code>
+			 * result removes the key. For example,
+			 * <code>merge(key, line, (a, b) -&gt; a + "\n" + b)</code> appends
+			 * a line. Atomicity is as for {@link #putIfAbsent}.
+			 *
+			 * @param      key     the key.
+			 * @param      value   the value to be merged with the current one.
+			 * @param      remappingFunction   merges the current value with
+			 *             <code>value</code>.
+			 * @return     the new value of the key, or <code>null</code> if it
+			 *             is absent now.
+			 * @exception  NullPointerException  if the <code>value</code> or the
+			 *               function is <code>null</code>.
+			 */
+			public default String merge(int key, String value, BinaryOperator<String> remappingFunction) {
+				if (value == null || remappingFunction == null) {
+					throw new NullPointerException();
+				}
+				String old = get(key);
+				String merged = old == null ? value : remappingFunction.apply(old, value);
+				if (merged != null) {
+					put(key, merged);
+				} else {
+					remove(key);
+				}
+				return merged;
+			}
+			
+			/**
+			 * Maps the <code>key</code> to <code>newValue</code> only if it is
+			 * currently mapped to a value equal to <code>expectedValue</code>.
+			 * Atomicity is as for {@link #putIfAbsent}.
+			 *
+			 * @param      key     the key.
+			 * @param      expectedValue   the value the key is expected to be
+			 *             mapped to.
+			 * @param      newValue   the value to be mapped to the key.
+			 * @return     <code>true</code> if the value was replaced.
+			 * @exception  NullPointerException  if <code>newValue</code> is
+			 *               <code>null</code>.
+			 */
+			public default boolean replace(int key, String expectedValue, String newValue) {
+				if (newValue == null) {
+					throw new NullPointerException();
+				}
+				String current = get(key);
+				if (current == null || !current.equals(expectedValue)) {
+					return false;
+				}
+				put(key, newValue);
+				return true;
+			}
+			
+			/**
+			 * Performs the given action for each entry of this dictionary. The
+			 * keys are passed to the action as primitive <code>int</code>
+			 * values, and implementations which walk their storage directly do
+			 * not allocate anything per entry.
+			 *
+			 * @param   action   the action to be performed for each entry.
+			 * @exception NullPointerException if <tt>action</tt> is <tt>null</tt>.
+			 */
+			public default void forEach(IntStringConsumer action) {
+				for (DictionaryCursor cursor = cursor(); cursor.hasNext();) {
+					int key = cursor.nextKey();
+					action.accept(key, cursor.value());
+				}
+			}
+			
+			/**
+			 * Returns a cursor over the entries of this dictionary, which visits
+			 * the keys as primitive <code>int</code> values together with their
+			 * values. The cursor can be reused for further traversals by calling
+			 * its <code>reset</code> method.
+			 *
+			 * @return  a cursor over the entries of this dictionary.
+			 * @see     DictionaryCursor
+			 */
+			public default DictionaryCursor cursor() {
+				return new EnumerationCursor(this);
+			}
+
+			/**
+			 * Returns a spliterator over the entries of this dictionary, which
+			 * can be split into parts traversed in parallel.
+			 * <p>
+			 * The default implementation walks the {@link #cursor()} and cannot
+			 * be split, so the parallel operations of this interface run
+			 * sequentially; {@link DictionaryImplementation} and
+			 * {@link ConcurrentDictionaryImplementation} split their tables.
+			 *
+			 * @return  a spliterator over the entries of this dictionary.
+			 * @see     DictionarySpliterator
+			 */
+			public default DictionarySpliterator spliterator() {
+				return new CursorSpliterator(cursor(), size());
+			}
+			
+			/**
+			 * Performs the given action for each entry of this dictionary in
+			 * parallel, splitting the {@link #spliterator()} in the common
+			 * fork-join pool. The action may be called from several threads
+			 * at once and in no particular order, so it must be thread-safe.
+			 * This dictionary must not be modified meanwhile, unless it is a
+			 * {@link ConcurrentDictionaryImplementation}.
+			 *
+			 * @param   action   the action to be performed for each entry.
+			 * @exception NullPointerException if <tt>action</tt> is <tt>null</tt>.
+			 */
+			public default void parallelForEach(IntStringConsumer action) {
+				DictionaryTasks.forEach(spliterator(), action);
+			}
+			
+			/**
+			 * Maps every entry of this dictionary by the transformer and
+			 * combines the non-<code>null</code> results by the reducer, in
+			 * parallel like {@link #parallelForEach}. The reducer must be
+			 * associative; the results are combined in the order of the
+			 * spliterator.
+			 *
+			 * @param   transformer   maps an entry to a result, or to
+			 *          <code>null</code> to skip it.
+			 * @param   reducer   combines two results.
+			 * @return  the combined result, or <code>null</code> if there were
+			 *          no results.
+			 * @exception NullPointerException if <tt>transformer</tt> or
+			 *            <tt>reducer</tt> is <tt>null</tt>.
+			 */
+			public default <U> U reduce(IntStringTransformer<? extends U> transformer, BinaryOperator<U> reducer) {
+				return DictionaryTasks.reduce(spliterator(), transformer, reducer);
+			}
+			
+			/**
+			 * Counts the entries of this dictionary which match the predicate,
+			 * in parallel like {@link #parallelForEach}.
+			 *
+			 * @param   predicate   the predicate to be tested on each entry.
+			 * @return  the number of matching entries.
+			 * @exception NullPointerException if <tt>predicate</tt> is
+			 *            <tt>null</tt>.
+			 */
+			public default long count(IntStringPredicate predicate) {
+				return DictionaryTasks.count(spliterator(), predicate);
+			}
+
+			/**
+			 * Returns an immutable snapshot of the current contents of this
+			 * dictionary, which later modifications of this dictionary do not
+			 * affect. The snapshot is read-only: its <code>put</code> and
+			 * <code>remove</code> methods throw
+			 * <code>UnsupportedOperationException</code>.
+			 * <p>
+			 * The default implementation copies the entries into a
+			 * {@link PersistentDictionaryImplementation}, so it takes time and
+			 * memory proportional to the size of this dictionary.
+			 * <code>PersistentDictionaryImplementation</code> and
+			 * {@link DictionaryImplementation} override it to take snapshots
+			 * in constant time by sharing their structure;
+			 * {@link ConcurrentDictionaryImplementation} overrides it to copy
+			 * its entries under the locks of all its segments, so that its
+			 * snapshot is consistent even while other threads write.
+			 * <p>
+			 * A snapshot is not modified after it is returned, but it is not
+			 * published safely by itself: before other threads read it, it
+			 * must be handed to them through a synchronized or
+			 * <code>volatile</code> access, such as a concurrent collection.
+			 *
+			 * @return  a read-only dictionary holding the current entries of
+			 *          this dictionary.
+			 */
+			public default Dictionary snapshot() {
+				PersistentDictionaryImplementation copy = new PersistentDictionaryImplementation();
+				forEach(copy::put);
+				return copy.snapshot();
+			}
+
+			/**
+			 * Writes the entries of this dictionary to the given stream in a
+			 * compact binary format: length-prefixed blocks of entries with
+			 * variable-length integer keys and UTF-8 encoded values, each
+			 * block with a CRC-32 checksum. The entries are encoded directly from the
+			 * storage of this dictionary through a single buffer. The stream
+			 * is neither flushed nor closed.
+			 *
+			 * @param   out   the stream to write to.
+			 * @exception IOException if an I/O error occurs.
+			 * @exception NullPointerException if <tt>out</tt> is <tt>null</tt>.
+			 * @see     #readFrom(InputStream)
+			 */
+			public default void writeTo(OutputStream out) throws IOException {
+				DictionaryCodec.write(this, out);
+			}
+			
+			/**
+			 * Writes the entries of this dictionary to the given channel in
+			 * the format of {@link #writeTo(OutputStream)}. The channel is not
+			 * closed.
+			 *
+			 * @param   channel   the channel to write to.
+			 * @exception IOException if an I/O error occurs.
+			 * @exception NullPointerException if <tt>channel</tt> is <tt>null</tt>.
+			 * @see     #readFrom(ReadableByteChannel)
+			 */
+			public default void writeTo(WritableByteChannel channel) throws IOException {
+				DictionaryCodec.write(this, channel);
+			}
+			
+			/**
+			 * Reads entries written by {@link #writeTo(OutputStream)} from the
+			 * given stream, and puts them into this dictionary as they are
+			 * decoded. The stream is read exactly to the end of the written
+			 * data. Every block of entries is checked against its checksum
+			 * before its entries are put, so corrupt data is never put; if
+			 * the data turns out to be corrupt or truncated, the entries of
+			 * the intact blocks before have already been put. Data written in
+			 * version 1 of the format, which had only a final checksum, is
+			 * still read, but its entries are put before that checksum is
+			 * checked, so corrupt version 1 data may leave some of its
+			 * entries in this dictionary.
+			 *
+			 * @param   in   the stream to read from.
+			 * @exception java.io.StreamCorruptedException if the data is not a
+			 *            serialized dictionary, or its checksum does not match.
+			 * @exception java.io.EOFException if the stream ends before the
+			 *            end of the data.
+			 * @exception IOException if an I/O error occurs.
+			 * @exception NullPointerException if <tt>in</tt> is <tt>null</tt>.
+			 */
+			public default void readFrom(InputStream in) throws IOException {
+				DictionaryCodec.read(this, in);
+			}
+			
+			/**
+			 * Reads entries written by {@link #writeTo(WritableByteChannel)}
+			 * from the given channel, and puts them into this dictionary as
+			 * they are decoded.
+			 *
+			 * @param   channel   the channel to read from.
+			 * @exception java.io.StreamCorruptedException if the data is not a
+			 *            serialized dictionary, or its checksum does not match.
+			 * @exception java.io.EOFException if the channel ends before the
+			 *            end of the data.
+			 * @exception IOException if an I/O error occurs.
+			 * @exception NullPointerException if <tt>channel</tt> is <tt>null</tt>.
+			 * @see     #readFrom(InputStream)
+			 */
+			public default void readFrom(ReadableByteChannel channel) throws IOException {
+				DictionaryCodec.read(this, channel);
+			}
 				
 		}
 
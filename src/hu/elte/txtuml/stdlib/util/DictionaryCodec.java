@@ -0,0 +1,398 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The binary format of dictionaries written by {@link Dictionary#writeTo}.
+ * <p>
+ * A serialized dictionary starts with the magic number <code>TDIC</code> and
+ * a version byte. The entries follow in blocks, each prefixed by its length
+ * and the CRC-32 checksum of the contents of the blocks up to and including
+ * it, both as four byte big-endian integers. A block of length zero, with
+ * the checksum of all the contents, ends them. In version 2, every block is
+ * checked as soon as it is read, before its entries are decoded, so corrupt
+ * data is never put into a dictionary; as the checksum runs over the
+ * preceding blocks as well, missing or reordered blocks are detected too.
+ * Version 1 of the format, which only had the final checksum, is still
+ * read, but its entries are put as they are decoded, so a corrupt version 1
+ * stream may leave entries in the dictionary before the
+ * <code>IOException</code> is thrown.
+ * Inside the blocks, every entry is the length of the UTF-8 encoding of its
+ * value plus one as an unsigned variable-length integer, the key as a
+ * zigzag-encoded variable-length integer, and the UTF-8 bytes of the value.
+ * An entry can span blocks. Since the blocks are length-prefixed, a reader
+ * never reads beyond the end of the serialized dictionary.
+ * <p>
+ * Writing and reading use a single block buffer and allocate nothing per
+ * entry, except the strings read.
+ */
+final class DictionaryCodec {
+
+	private static final int MAGIC = 0x54444943;
+
+	private static final int VERSION = 2;
+
+	private static final int HEADER_LENGTH = 4;
+
+	/**
+	 * The length of a block header: its length and its checksum.
+	 */
+	private static final int BLOCK_HEADER_LENGTH = 8;
+
+	/**
+	 * The size of the first buffer of a value which spans blocks; it grows
+	 * as the bytes are read, so a corrupt length cannot exhaust the memory.
+	 */
+	private static final int INITIAL_VALUE_BUFFER = 1 << 16;
+
+	/**
+	 * The maximum length of the contents of a block.
+	 */
+	static final int BLOCK_SIZE = 8192;
+
+	private DictionaryCodec() {
+	}
+
+	/**
+	 * Writes the blocks to their destination.
+	 */
+	private interface BlockSink {
+
+		void write(byte[] buffer, int length) throws IOException;
+
+	}
+
+	/**
+	 * Fills a buffer from the source, throwing <code>EOFException</code> if
+	 * the source ends first.
+	 */
+	private interface BlockSource {
+
+		void readFully(byte[] buffer, int offset, int length) throws IOException;
+
+	}
+
+	static void write(Dictionary dictionary, OutputStream out) throws IOException {
+		if (out == null) {
+			throw new NullPointerException();
+		}
+		write(dictionary, (buffer, length) -> out.write(buffer, 0, length));
+	}
+
+	static void write(Dictionary dictionary, WritableByteChannel channel) throws IOException {
+		if (channel == null) {
+			throw new NullPointerException();
+		}
+		write(dictionary, (buffer, length) -> {
+			ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		});
+	}
+
+	static void read(Dictionary dictionary, InputStream in) throws IOException {
+		if (in == null) {
+			throw new NullPointerException();
+		}
+		read(dictionary, (buffer, offset, length) -> {
+			while (length > 0) {
+				int count = in.read(buffer, offset, length);
+				if (count < 0) {
+					throw new EOFException();
+				}
+				offset += count;
+				length -= count;
+			}
+		});
+	}
+
+	static void read(Dictionary dictionary, ReadableByteChannel channel) throws IOException {
+		if (channel == null) {
+			throw new NullPointerException();
+		}
+		read(dictionary, (buffer, offset, length) -> {
+			ByteBuffer bytes = ByteBuffer.wrap(buffer, offset, length);
+			while (bytes.hasRemaining()) {
+				if (channel.read(bytes) < 0) {
+					throw new EOFException();
+				}
+			}
+		});
+	}
+
+	private static void write(Dictionary dictionary, BlockSink sink) throws IOException {
+		Encoder encoder = new Encoder(sink);
+		encoder.start();
+		try {
+			dictionary.forEach(encoder);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		encoder.finish();
+	}
+
+	private static void read(Dictionary dictionary, BlockSource source) throws IOException {
+		Decoder decoder = new Decoder(source);
+		while (decoder.nextBlock()) {
+			int length = decoder.readVarint() - 1;
+			if (length < 0) {
+				throw new StreamCorruptedException("Invalid value length");
+			}
+			int key = decoder.readVarint();
+			dictionary.put((key >>> 1) ^ -(key & 1), decoder.readString(length));
+		}
+	}
+
+	private static void writeInt(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset + 1] = (byte) (value >>> 16);
+		buffer[offset + 2] = (byte) (value >>> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+
+	private static int readInt(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xFF) << 24 | (buffer[offset + 1] & 0xFF) << 16
+				| (buffer[offset + 2] & 0xFF) << 8 | (buffer[offset + 3] & 0xFF);
+	}
+
+	private static final class Encoder implements IntStringConsumer {
+
+		private final BlockSink sink;
+
+		private final CRC32 checksum = new CRC32();
+
+		/**
+		 * The block being filled, after room for its header.
+		 */
+		private final byte[] buffer = new byte[BLOCK_HEADER_LENGTH + BLOCK_SIZE];
+
+		private int position = BLOCK_HEADER_LENGTH;
+
+		Encoder(BlockSink sink) {
+			this.sink = sink;
+		}
+
+		void start() throws IOException {
+			writeInt(buffer, 0, MAGIC);
+			buffer[HEADER_LENGTH] = VERSION;
+			sink.write(buffer, HEADER_LENGTH + 1);
+		}
+
+		@Override
+		public void accept(int key, String value) {
+			try {
+				if (position > buffer.length - 10) {
+					flush();
+				}
+				writeVarint(utf8Length(value) + 1);
+				writeVarint((key << 1) ^ (key >> 31));
+				writeUtf8(value);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		void finish() throws IOException {
+			if (position > BLOCK_HEADER_LENGTH) {
+				flush();
+			}
+			writeInt(buffer, 0, 0);
+			writeInt(buffer, 4, (int) checksum.getValue());
+			sink.write(buffer, BLOCK_HEADER_LENGTH);
+		}
+
+		private void flush() throws IOException {
+			int length = position - BLOCK_HEADER_LENGTH;
+			checksum.update(buffer, BLOCK_HEADER_LENGTH, length);
+			writeInt(buffer, 0, length);
+			writeInt(buffer, 4, (int) checksum.getValue());
+			sink.write(buffer, position);
+			position = BLOCK_HEADER_LENGTH;
+		}
+
+		private void writeVarint(int value) {
+			while ((value & ~0x7F) != 0) {
+				buffer[position++] = (byte) (value | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+
+		/**
+		 * Returns the length of the UTF-8 encoding of the string, in which
+		 * unpaired surrogates are replaced by '?' as by
+		 * <code>String.getBytes</code>.
+		 */
+		private static int utf8Length(String value) {
+			int length = value.length();
+			int bytes = length;
+			for (int i = 0; i < length; i++) {
+				char c = value.charAt(i);
+				if (c >= 0x80) {
+					if (c < 0x800) {
+						bytes++;
+					} else if (Character.isHighSurrogate(c) && i + 1 < length
+							&& Character.isLowSurrogate(value.charAt(i + 1))) {
+						bytes += 2;
+						i++;
+					} else if (!Character.isSurrogate(c)) {
+						bytes += 2;
+					}
+				}
+			}
+			return bytes;
+		}
+
+		private void writeUtf8(String value) throws IOException {
+			int length = value.length();
+			for (int i = 0; i < length; i++) {
+				if (position > buffer.length - 4) {
+					flush();
+				}
+				char c = value.charAt(i);
+				if (c < 0x80) {
+					buffer[position++] = (byte) c;
+				} else if (c < 0x800) {
+					buffer[position++] = (byte) (0xC0 | c >> 6);
+					buffer[position++] = (byte) (0x80 | c & 0x3F);
+				} else if (Character.isHighSurrogate(c) && i + 1 < length
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+					buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+					buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+					buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+				} else if (Character.isSurrogate(c)) {
+					buffer[position++] = '?';
+				} else {
+					buffer[position++] = (byte) (0xE0 | c >> 12);
+					buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+					buffer[position++] = (byte) (0x80 | c & 0x3F);
+				}
+			}
+		}
+	}
+
+	private static final class Decoder {
+
+		private final BlockSource source;
+
+		private final CRC32 checksum = new CRC32();
+
+		private final byte[] buffer = new byte[BLOCK_SIZE];
+
+		private int position;
+
+		private int limit;
+
+		private boolean ended;
+
+		/**
+		 * Whether the blocks have checksums of their own, from version 2.
+		 */
+		private final boolean blockChecksums;
+
+		Decoder(BlockSource source) throws IOException {
+			this.source = source;
+			source.readFully(buffer, 0, HEADER_LENGTH + 1);
+			if (readInt(buffer, 0) != MAGIC) {
+				throw new StreamCorruptedException("Not a serialized dictionary");
+			}
+			byte version = buffer[HEADER_LENGTH];
+			if (version != 1 && version != VERSION) {
+				throw new StreamCorruptedException("Unsupported dictionary format version " + version);
+			}
+			blockChecksums = version == VERSION;
+		}
+
+		/**
+		 * Makes sure the current block has bytes left, reading and checking
+		 * the next one if needed; returns <code>false</code> at the end of
+		 * the blocks.
+		 */
+		boolean nextBlock() throws IOException {
+			while (position == limit && !ended) {
+				source.readFully(buffer, 0, blockChecksums ? BLOCK_HEADER_LENGTH : HEADER_LENGTH);
+				int length = readInt(buffer, 0);
+				if (length < 0 || length > BLOCK_SIZE) {
+					throw new StreamCorruptedException("Invalid block length " + length);
+				}
+				if (length == 0) {
+					if (!blockChecksums) {
+						source.readFully(buffer, HEADER_LENGTH, 4);
+					}
+					if (readInt(buffer, HEADER_LENGTH) != (int) checksum.getValue()) {
+						throw new StreamCorruptedException("Dictionary checksum mismatch");
+					}
+					ended = true;
+				} else {
+					int expected = readInt(buffer, HEADER_LENGTH);
+					source.readFully(buffer, 0, length);
+					checksum.update(buffer, 0, length);
+					if (blockChecksums && expected != (int) checksum.getValue()) {
+						throw new StreamCorruptedException("Dictionary block checksum mismatch");
+					}
+				}
+				position = 0;
+				limit = length;
+			}
+			return position < limit;
+		}
+
+		private byte readByte() throws IOException {
+			if (!nextBlock()) {
+				throw new StreamCorruptedException("Truncated dictionary entry");
+			}
+			return buffer[position++];
+		}
+
+		int readVarint() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				byte b = readByte();
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new StreamCorruptedException("Invalid variable-length integer");
+		}
+
+		String readString(int length) throws IOException {
+			if (length <= limit - position) {
+				String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+				position += length;
+				return value;
+			}
+			// the value spans blocks; the buffer grows with the bytes read
+			byte[] bytes = new byte[Math.min(length, INITIAL_VALUE_BUFFER)];
+			int offset = 0;
+			while (offset < length) {
+				if (!nextBlock()) {
+					throw new StreamCorruptedException("Truncated dictionary entry");
+				}
+				if (offset == bytes.length) {
+					bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+				}
+				int count = Math.min(bytes.length - offset, limit - position);
+				System.arraycopy(buffer, position, bytes, offset, count);
+				position += count;
+				offset += count;
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A reusable cursor over the entries of a {@link Dictionary}. Unlike the
+ * enumerations of the dictionary, a cursor returns the keys as primitive
+ * <code>int</code> values and gives access to the value of the current
+ * entry, so keys and values are visited in a single traversal without any
+ * per-entry allocation.
+ * <p>
+ * Typical usage:
+ * 
+ * <pre>
+ * DictionaryCursor cursor = dictionary.cursor();
+ * while (cursor.hasNext()) {
+ * 	int key = cursor.nextKey();
+ * 	String value = cursor.value();
+ * 	...
+ * }
+ * </pre>
+ *
+ * @see Dictionary#cursor()
+ */
+public interface DictionaryCursor {
+
+	/**
+	 * Tests if there are more entries to visit.
+	 *
+	 * @return <code>true</code> if {@link #nextKey()} would return an entry;
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean hasNext();
+
+	/**
+	 * Moves the cursor to the next entry and returns its key.
+	 *
+	 * @return the key of the next entry.
+	 * @throws NoSuchElementException
+	 *             if there are no more entries.
+	 */
+	public int nextKey();
+
+	/**
+	 * Returns the value of the entry whose key was last returned by
+	 * {@link #nextKey()}.
+	 *
+	 * @return the value of the current entry.
+	 * @throws IllegalStateException
+	 *             if <code>nextKey</code> has not been called since the
+	 *             cursor was created or reset.
+	 */
+	public String value();
+
+	/**
+	 * Moves the cursor back before the first entry, so that the same cursor
+	 * object can be used for another traversal.
+	 */
+	public void reset();
+
+}
@@ -1,21 +1,115 @@
 package hu.elte.txtuml.stdlib.util;
 
-import java.util.Dictionary;
+import java.lang.management.ManagementFactory;
 import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
     /**
      * This is an implementation class of all java dictionary methods for purpose of using it in txtUML models.
      * <p>
+     * The entries are stored in an open-addressing hash table specialized for
+     * <code>int</code> keys, so the keys are never boxed on <code>get</code>,
+     * <code>put</code> or <code>remove</code>. Unlike <code>Hashtable</code>,
+     * this class is not synchronized.
+     * <p>
+     * A snapshot shares the table of the dictionary, so it is taken in
+     * constant time; the first modification of the dictionary afterwards
+     * copies the table, in time proportional to its capacity.
      * 
      * @author  Kovan Rashid
      * @see     java.lang.Object#hashCode()
-     * @see     java.util.Hashtable
+     * @see     IntStringTable
      */
 	
 public class DictionaryImplementation implements hu.elte.txtuml.stdlib.util.Dictionary  {
 	
-	Dictionary<Integer, String> dictionary = new Hashtable<Integer, String>();
+	IntStringTable dictionary;
+	
+	/**
+	 * Constructs a new, empty dictionary with the default initial capacity
+	 * and load factor (0.75).
+	 */
+	public DictionaryImplementation() {
+		
+		dictionary = new IntStringTable();
+	}
+	
+	/**
+	 * Constructs a new, empty dictionary with the default initial capacity
+	 * and the specified load factor.
+	 *
+	 * @param      loadFactor   the ratio of used slots above which the
+	 *                          backing table is enlarged.
+	 * @exception  IllegalArgumentException  if the load factor is not
+	 *             strictly between <code>0</code> and <code>1</code>.
+	 */
+	public DictionaryImplementation(float loadFactor) {
+		
+		dictionary = new IntStringTable(IntStringTable.DEFAULT_EXPECTED_SIZE, loadFactor);
+	}
+	
+	/**
+	 * Constructs a new, empty dictionary which holds the given number of
+	 * entries without enlarging its table, with the default load factor
+	 * (0.75).
+	 *
+	 * @param      expectedSize   the expected number of entries.
+	 * @exception  IllegalArgumentException  if the expected size is
+	 *             negative.
+	 */
+	public DictionaryImplementation(int expectedSize) {
+		
+		dictionary = new IntStringTable(expectedSize, IntStringTable.DEFAULT_LOAD_FACTOR);
+	}
+	
+	/**
+	 * Constructs a new, empty dictionary which holds the given number of
+	 * entries without enlarging its table, with the specified load factor.
+	 *
+	 * @param      expectedSize   the expected number of entries.
+	 * @param      loadFactor   the ratio of used slots above which the
+	 *                          backing table is enlarged.
+	 * @exception  IllegalArgumentException  if the expected size is
+	 *             negative, or the load factor is not strictly between
+	 *             <code>0</code> and <code>1</code>.
+	 */
+	public DictionaryImplementation(int expectedSize, float loadFactor) {
+		
+		dictionary = new IntStringTable(expectedSize, loadFactor);
+	}
+	
+	private DictionaryImplementation(IntStringTable dictionary) {
+		
+		this.dictionary = dictionary;
+	}
+	
+	/**
+	 * Enlarges the table of this dictionary, if necessary, so that it holds
+	 * the given number of entries without further resizing. Unlike the
+	 * growth of the table caused by <code>put</code>, which moves the
+	 * entries to the enlarged table a few at a time over the following
+	 * modifications, this method rehashes all of them at once.
+	 *
+	 * @param      minimumSize   the number of entries to hold.
+	 */
+	public void ensureCapacity(int minimumSize) {
+		
+			dictionary.ensureCapacity(minimumSize);
+	}
+	
+	/**
+	 * Shrinks the table of this dictionary to the smallest capacity which
+	 * holds its current entries under its load factor, to release the
+	 * memory of a dictionary which once held many more entries.
+	 */
+	public void trimToSize() {
+		
+			dictionary.trimToSize();
+	}
 	
 	
     /**
@@ -29,7 +123,7 @@ public class DictionaryImplementation implements hu.elte.txtuml.stdlib.util.Dict
 	@Override
 	public boolean isEmpty() {
 		
-			return dictionary.isEmpty();
+			return dictionary.size == 0;
 	}
 	
 	/**
@@ -39,7 +133,7 @@ public class DictionaryImplementation implements hu.elte.txtuml.stdlib.util.Dict
 	@Override
 	public  int size() {
 		
-		return dictionary.size();
+		return dictionary.size;
 		
 	}
 	
@@ -48,6 +142,12 @@ public class DictionaryImplementation implements hu.elte.txtuml.stdlib.util.Dict
 	 * contract for the keys method is that an <tt>Enumeration</tt> object
 	 * is returned that will generate all the keys for which this dictionary
 	 * contains entries.
+	 * <p>
+	 * Unlike the enumerations of <code>Hashtable</code>, the enumeration is
+	 * fail-fast: its <tt>nextElement</tt> method throws
+	 * <code>ConcurrentModificationException</code> once a key has been added
+	 * to or removed from this dictionary since the enumeration was created.
+	 * Replacing the value of a key is not such a modification.
 	 * 
 	 * @return  an enumeration of the keys in this dictionary.
 	 * @see     java.util.Enumeration
@@ -63,6 +163,9 @@ public class DictionaryImplementation implements hu.elte.txtuml.stdlib.util.Dict
 	 * contract for the <tt>elements</tt> method is that an
 	 * <tt>Enumeration</tt> is returned that will generate all the elements
 	 * contained in entries in this dictionary.
+	 * <p>
+	 * Like the enumeration of the keys, it is fail-fast, unlike those of
+	 * <code>Hashtable</code>.
 	 * 
 	 * @return  an enumeration of the values in this dictionary.
 	 * @see java.util.Enumeration
@@ -138,10 +241,405 @@ public class DictionaryImplementation implements hu.elte.txtuml.stdlib.util.Dict
 	@Override
 	public String put(int key,String value) {
 		
+			if (value == null) {
+				throw new NullPointerException();
+			}
 			return dictionary.put(key, value);
 		
 	}
 	
+	/**
+	 * Maps each key of <code>keys</code> to the value at the same index
+	 * of <code>values</code>. The backing table is enlarged at most once,
+	 * before any of the entries is inserted.
+	 *
+	 * @param      keys     the keys to be mapped.
+	 * @param      values   the values, one for each key.
+	 * @return     an array holding, at the index of each key, the value
+	 *             that key was previously mapped to, or <code>null</code>.
+	 * @exception  NullPointerException  if any of the arrays or any of
+	 *               the values is <code>null</code>.
+	 * @exception  IllegalArgumentException  if the arrays have different
+	 *               lengths.
+	 */
+	@Override
+	public String[] putAll(int[] keys, String[] values) {
+		
+			IntStringTable.checkEntries(keys, values);
+			dictionary.ensureCapacity((int) Math.min(Integer.MAX_VALUE, (long) dictionary.size + keys.length));
+			String[] previous = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				previous[i] = dictionary.put(keys[i], values[i]);
+			}
+			return previous;
+	}
+	
+	/**
+	 * Returns the values to which the given keys are mapped in this
+	 * dictionary, in a single array.
+	 *
+	 * @param   keys   the keys to be looked up.
+	 * @return  an array holding, at the index of each key, the value
+	 *          that key is mapped to, or <code>null</code>.
+	 */
+	@Override
+	public String[] getAll(int[] keys) {
+		
+			String[] result = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				result[i] = dictionary.get(keys[i]);
+			}
+			return result;
+	}
+	
+	/**
+	 * Removes each of the given keys (and its corresponding value) from
+	 * this dictionary.
+	 *
+	 * @param   keys   the keys that need to be removed.
+	 * @return  an array holding, at the index of each key, the value
+	 *          that key had been mapped to, or <code>null</code>.
+	 */
+	@Override
+	public String[] removeAll(int[] keys) {
+		
+			String[] removed = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				removed[i] = dictionary.remove(keys[i]);
+			}
+			return removed;
+	}
+	
+	/**
+	 * Maps the <code>key</code> to the <code>value</code> if it is not
+	 * mapped to any value yet, probing the table once.
+	 *
+	 * @param      key     the key.
+	 * @param      value   the value to be mapped to the key.
+	 * @return     the value the key was mapped to, or <code>null</code>.
+	 * @exception  NullPointerException  if the <code>value</code> is
+	 *               <code>null</code>.
+	 */
+	@Override
+	public String putIfAbsent(int key, String value) {
+		
+			if (value == null) {
+				throw new NullPointerException();
+			}
+			return dictionary.putIfAbsent(key, value);
+	}
+	
+	/**
+	 * If the <code>key</code> is not mapped to any value, computes its value
+	 * by the given function and maps the key to it, probing the table once.
+	 *
+	 * @param      key     the key.
+	 * @param      mappingFunction   computes the value of the key.
+	 * @return     the current (existing or computed) value of the key, or
+	 *             <code>null</code>.
+	 * @exception  java.util.ConcurrentModificationException if the function
+	 *             modifies this dictionary.
+	 */
+	@Override
+	public String computeIfAbsent(int key, IntFunction<String> mappingFunction) {
+		
+			if (mappingFunction == null) {
+				throw new NullPointerException();
+			}
+			return dictionary.computeIfAbsent(key, mappingFunction);
+	}
+	
+	/**
+	 * Computes the new value of the <code>key</code> from its current value
+	 * and maps the key to it, probing the table once; a <code>null</code>
+	 * result removes the key.
+	 *
+	 * @param      key     the key.
+	 * @param      remappingFunction   computes the new value.
+	 * @return     the new value of the key, or <code>null</code>.
+	 * @exception  java.util.ConcurrentModificationException if the function
+	 *             modifies this dictionary.
+	 */
+	@Override
+	public String compute(int key, IntStringFunction remappingFunction) {
+		
+			if (remappingFunction == null) {
+				throw new NullPointerException();
+			}
+			return dictionary.compute(key, remappingFunction);
+	}
+	
+	/**
+	 * Maps the <code>key</code> to the <code>value</code> if it is absent,
+	 * otherwise to the result of the given function applied to its current
+	 * value and <code>value</code>, probing the table once; a
+	 * <code>null</code> result removes the key.
+	 *
+	 * @param      key     the key.
+	 * @param      value   the value to be merged with the current one.
+	 * @param      remappingFunction   merges the current value with
+	 *             <code>value</code>.
+	 * @return     the new value of the key, or <code>null</code>.
+	 * @exception  java.util.ConcurrentModificationException if the function
+	 *             modifies this dictionary.
+	 */
+	@Override
+	public String merge(int key, String value, BinaryOperator<String> remappingFunction) {
+		
+			if (value == null || remappingFunction == null) {
+				throw new NullPointerException();
+			}
+			return dictionary.merge(key, value, remappingFunction);
+	}
+	
+	/**
+	 * Maps the <code>key</code> to <code>newValue</code> only if it is
+	 * currently mapped to a value equal to <code>expectedValue</code>,
+	 * probing the table once.
+	 *
+	 * @param      key     the key.
+	 * @param      expectedValue   the value the key is expected to be mapped
+	 *             to.
+	 * @param      newValue   the value to be mapped to the key.
+	 * @return     <code>true</code> if the value was replaced.
+	 */
+	@Override
+	public boolean replace(int key, String expectedValue, String newValue) {
+		
+			if (newValue == null) {
+				throw new NullPointerException();
+			}
+			return dictionary.replace(key, expectedValue, newValue);
+	}
+	
+	/**
+	 * Performs the given action for each entry of this dictionary, walking
+	 * the backing table directly without any per-entry allocation.
+	 *
+	 * @param   action   the action to be performed for each entry.
+	 * @exception java.util.ConcurrentModificationException if the action adds or
+	 *            removes entries of this dictionary.
+	 */
+	@Override
+	public void forEach(IntStringConsumer action) {
+		
+			dictionary.forEach(action);
+	}
+	
+	/**
+	 * Returns a reusable cursor over the entries of this dictionary, which
+	 * walks the backing table directly.
+	 *
+	 * @return  a cursor over the entries of this dictionary.
+	 */
+	@Override
+	public DictionaryCursor cursor() {
+		
+			return dictionary.cursor();
+	}
+	
+	/**
+	 * Returns a spliterator over the entries of this dictionary, which splits
+	 * the backing table into ranges of slots. It fails fast if entries are
+	 * added or removed during the traversal.
+	 *
+	 * @return  a spliterator over the entries of this dictionary.
+	 */
+	@Override
+	public DictionarySpliterator spliterator() {
+		
+			return dictionary.spliterator();
+	}
+	
+	/**
+	 * Returns a read-only snapshot of the current contents of this
+	 * dictionary in constant time, by sharing its table; a resize in
+	 * progress is finished first. The next modification of this dictionary
+	 * copies the table, so the snapshot never sees it. The mutators of the
+	 * snapshot throw <code>UnsupportedOperationException</code>.
+	 *
+	 * @return  a read-only dictionary holding the current entries of
+	 *          this dictionary.
+	 */
+	@Override
+	public Dictionary snapshot() {
+		
+			return new DictionaryImplementation(dictionary.share());
+	}
+	
+	/**
+	 * Starts recording the statistics of this dictionary: the number of its
+	 * operations, the resizes of its table and their duration, and the probe
+	 * lengths of its lookups. Until then, the recording costs nothing but a
+	 * <code>null</code> check per operation. Does nothing if the statistics
+	 * are already being recorded.
+	 *
+	 * @see #statistics()
+	 */
+	public void enableStatistics() {
+		
+			if (dictionary.statistics == null) {
+				dictionary.statistics = new TableStatistics();
+			}
+	}
+	
+	/**
+	 * Stops recording the statistics of this dictionary and discards them.
+	 */
+	public void disableStatistics() {
+		
+			dictionary.statistics = null;
+	}
+	
+	/**
+	 * Sets all the recorded statistics of this dictionary to zero.
+	 *
+	 * @exception IllegalStateException if the statistics are not enabled.
+	 */
+	public void resetStatistics() {
+		
+			checkStatistics();
+			dictionary.statistics = new TableStatistics();
+	}
+	
+	/**
+	 * Returns a snapshot of the statistics recorded since they were enabled
+	 * or last reset, together with the current size and load of the table.
+	 *
+	 * @return  the statistics of this dictionary.
+	 * @exception IllegalStateException if the statistics are not enabled.
+	 * @see     #enableStatistics()
+	 */
+	public DictionaryStatistics statistics() {
+		
+			return checkStatistics().snapshot(dictionary.size, dictionary.values.length);
+	}
+	
+	/**
+	 * Enables the statistics of this dictionary, and registers them in the
+	 * platform MBean server under the name
+	 * <code>hu.elte.txtuml.stdlib.util:type=Dictionary,name=</code><i>name</i>,
+	 * so they can be watched by JMX clients. The bean keeps this dictionary
+	 * reachable until it is unregistered from the server.
+	 *
+	 * @param   name   the name of this dictionary in the object name.
+	 * @return  the object name of the registered bean.
+	 * @exception JMException if the name is already registered or the bean
+	 *            cannot be registered.
+	 * @see     DictionaryStatisticsMXBean
+	 */
+	public ObjectName registerStatistics(String name) throws JMException {
+		
+			enableStatistics();
+			ObjectName objectName = new ObjectName(
+					"hu.elte.txtuml.stdlib.util:type=Dictionary,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new StatisticsBean(), objectName);
+			return objectName;
+	}
+	
+	private TableStatistics checkStatistics() {
+		TableStatistics statistics = dictionary.statistics;
+		if (statistics == null) {
+			throw new IllegalStateException("Dictionary statistics are not enabled");
+		}
+		return statistics;
+	}
+	
+	/**
+	 * Reads the statistics of the dictionary for JMX; all zero while they
+	 * are disabled.
+	 */
+	private class StatisticsBean implements DictionaryStatisticsMXBean {
+
+		private DictionaryStatistics current() {
+			TableStatistics statistics = dictionary.statistics;
+			return (statistics == null ? new TableStatistics() : statistics).snapshot(dictionary.size,
+					dictionary.values.length);
+		}
+
+		@Override
+		public long getGetCount() {
+			return current().getGetCount();
+		}
+
+		@Override
+		public long getHitCount() {
+			return current().getHitCount();
+		}
+
+		@Override
+		public long getMissCount() {
+			return current().getMissCount();
+		}
+
+		@Override
+		public long getPutCount() {
+			return current().getPutCount();
+		}
+
+		@Override
+		public long getInsertCount() {
+			return current().getInsertCount();
+		}
+
+		@Override
+		public long getRemoveCount() {
+			return current().getRemoveCount();
+		}
+
+		@Override
+		public long getRemovedCount() {
+			return current().getRemovedCount();
+		}
+
+		@Override
+		public long getResizeCount() {
+			return current().getResizeCount();
+		}
+
+		@Override
+		public long getResizeTimeNanos() {
+			return current().getResizeTimeNanos();
+		}
+
+		@Override
+		public long getMaxResizeTimeNanos() {
+			return current().getMaxResizeTimeNanos();
+		}
+
+		@Override
+		public double getAverageProbeLength() {
+			return current().getAverageProbeLength();
+		}
+
+		@Override
+		public int getMaxProbeLength() {
+			return current().getMaxProbeLength();
+		}
+
+		@Override
+		public int getSize() {
+			return dictionary.size;
+		}
+
+		@Override
+		public int getCapacity() {
+			return dictionary.values.length;
+		}
+
+		@Override
+		public double getLoadFactor() {
+			return current().getLoadFactor();
+		}
+
+		@Override
+		public void resetStatistics() {
+			if (dictionary.statistics != null) {
+				dictionary.statistics = new TableStatistics();
+			}
+		}
+	}
+	
 	/**
 	 * Returns a string representation of the object. In general, the
 	 * {@code toString} method returns a string that
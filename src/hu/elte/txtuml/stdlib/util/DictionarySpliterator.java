@@ -0,0 +1,60 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A spliterator over the entries of a {@link Dictionary}, which can be split
+ * into parts traversed by different threads. As a
+ * <code>Spliterator.OfInt</code> it yields the keys only; the methods taking
+ * an {@link IntStringConsumer} visit the keys as primitive <code>int</code>
+ * values together with their values.
+ * <p>
+ * The spliterators of {@link DictionaryImplementation} split the backing
+ * table into ranges of slots, and fail fast if the dictionary is
+ * structurally modified during the traversal. Those of
+ * {@link ConcurrentDictionaryImplementation} split it by segments first, and
+ * are weakly consistent like its enumerations. Other implementations may
+ * return spliterators which cannot be split at all.
+ *
+ * @see Dictionary#spliterator()
+ */
+public interface DictionarySpliterator extends Spliterator.OfInt {
+
+	/**
+	 * Performs the given action on the next entry, if there is one.
+	 *
+	 * @param action
+	 *            the action to be performed on the entry
+	 * @return <code>false</code> if no entries remained
+	 * @throws NullPointerException
+	 *             if the action is <code>null</code>
+	 */
+	public boolean tryAdvance(IntStringConsumer action);
+
+	/**
+	 * Performs the given action on each remaining entry, sequentially in the
+	 * current thread.
+	 *
+	 * @param action
+	 *            the action to be performed on each entry
+	 * @throws NullPointerException
+	 *             if the action is <code>null</code>
+	 */
+	public default void forEachRemaining(IntStringConsumer action) {
+		while (tryAdvance(action)) {
+		}
+	}
+
+	@Override
+	public DictionarySpliterator trySplit();
+
+	@Override
+	public default boolean tryAdvance(IntConsumer action) {
+		if (action == null) {
+			throw new NullPointerException();
+		}
+		return tryAdvance((key, value) -> action.accept(key));
+	}
+
+}
@@ -0,0 +1,177 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * An immutable snapshot of the statistics of a dictionary: the number of
+ * its operations, the resizes of its table and the time they took, the
+ * length of the probe sequences of its lookups, and its load.
+ * <p>
+ * The probe length of an operation is the number of slots it examined. In
+ * a table with well spread keys it stays close to 1; long probe sequences
+ * show a bad key distribution, which frequent or slow resizes do not.
+ *
+ * @see DictionaryImplementation#statistics()
+ * @see DictionaryStatisticsMXBean
+ */
+public final class DictionaryStatistics {
+
+	private final long getCount;
+
+	private final long hitCount;
+
+	private final long putCount;
+
+	private final long insertCount;
+
+	private final long removeCount;
+
+	private final long removedCount;
+
+	private final long resizeCount;
+
+	private final long resizeTimeNanos;
+
+	private final long maxResizeTimeNanos;
+
+	private final double averageProbeLength;
+
+	private final int maxProbeLength;
+
+	private final int size;
+
+	private final int capacity;
+
+	DictionaryStatistics(long getCount, long hitCount, long putCount, long insertCount, long removeCount,
+			long removedCount, long resizeCount, long resizeTimeNanos, long maxResizeTimeNanos,
+			double averageProbeLength, int maxProbeLength, int size, int capacity) {
+		this.getCount = getCount;
+		this.hitCount = hitCount;
+		this.putCount = putCount;
+		this.insertCount = insertCount;
+		this.removeCount = removeCount;
+		this.removedCount = removedCount;
+		this.resizeCount = resizeCount;
+		this.resizeTimeNanos = resizeTimeNanos;
+		this.maxResizeTimeNanos = maxResizeTimeNanos;
+		this.averageProbeLength = averageProbeLength;
+		this.maxProbeLength = maxProbeLength;
+		this.size = size;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return the number of <code>get</code> calls
+	 */
+	public long getGetCount() {
+		return getCount;
+	}
+
+	/**
+	 * @return the number of <code>get</code> calls which found their key
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of <code>get</code> calls which did not find their
+	 *         key
+	 */
+	public long getMissCount() {
+		return getCount - hitCount;
+	}
+
+	/**
+	 * @return the number of <code>put</code> calls
+	 */
+	public long getPutCount() {
+		return putCount;
+	}
+
+	/**
+	 * @return the number of <code>put</code> calls which added a new key
+	 */
+	public long getInsertCount() {
+		return insertCount;
+	}
+
+	/**
+	 * @return the number of <code>remove</code> calls
+	 */
+	public long getRemoveCount() {
+		return removeCount;
+	}
+
+	/**
+	 * @return the number of <code>remove</code> calls which removed an entry
+	 */
+	public long getRemovedCount() {
+		return removedCount;
+	}
+
+	/**
+	 * @return the number of times the table was enlarged
+	 */
+	public long getResizeCount() {
+		return resizeCount;
+	}
+
+	/**
+	 * @return the total time spent enlarging the table, in nanoseconds
+	 */
+	public long getResizeTimeNanos() {
+		return resizeTimeNanos;
+	}
+
+	/**
+	 * @return the time the slowest enlargement of the table took, in
+	 *         nanoseconds
+	 */
+	public long getMaxResizeTimeNanos() {
+		return maxResizeTimeNanos;
+	}
+
+	/**
+	 * @return the average number of slots examined by an operation
+	 */
+	public double getAverageProbeLength() {
+		return averageProbeLength;
+	}
+
+	/**
+	 * @return the largest number of slots examined by an operation
+	 */
+	public int getMaxProbeLength() {
+		return maxProbeLength;
+	}
+
+	/**
+	 * @return the number of entries when the snapshot was taken
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of slots of the table when the snapshot was taken
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the ratio of used slots when the snapshot was taken
+	 */
+	public double getLoadFactor() {
+		return capacity == 0 ? 0 : size / (double) capacity;
+	}
+
+	@Override
+	public String toString() {
+		return "DictionaryStatistics[gets=" + getCount + ", hits=" + hitCount + ", puts=" + putCount
+				+ ", inserts=" + insertCount + ", removes=" + removeCount + ", removed=" + removedCount
+				+ ", resizes=" + resizeCount + ", resizeTimeNanos=" + resizeTimeNanos + ", maxResizeTimeNanos="
+				+ maxResizeTimeNanos + ", averageProbeLength=" + averageProbeLength + ", maxProbeLength="
+				+ maxProbeLength + ", size=" + size + ", capacity=" + capacity + "]";
+	}
+
+}
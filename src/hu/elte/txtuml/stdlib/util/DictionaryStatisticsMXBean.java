@@ -0,0 +1,46 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * The management interface of the statistics of a dictionary, registered by
+ * {@link DictionaryImplementation#registerStatistics(String)}. Every
+ * attribute reflects the statistics at the time it is read; see
+ * {@link DictionaryStatistics} for their meaning.
+ */
+public interface DictionaryStatisticsMXBean {
+
+	public long getGetCount();
+
+	public long getHitCount();
+
+	public long getMissCount();
+
+	public long getPutCount();
+
+	public long getInsertCount();
+
+	public long getRemoveCount();
+
+	public long getRemovedCount();
+
+	public long getResizeCount();
+
+	public long getResizeTimeNanos();
+
+	public long getMaxResizeTimeNanos();
+
+	public double getAverageProbeLength();
+
+	public int getMaxProbeLength();
+
+	public int getSize();
+
+	public int getCapacity();
+
+	public double getLoadFactor();
+
+	/**
+	 * Sets all the counters to zero.
+	 */
+	public void resetStatistics();
+
+}
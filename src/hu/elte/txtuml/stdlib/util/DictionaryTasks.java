@@ -0,0 +1,164 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * The fork-join tasks of the parallel operations of {@link Dictionary}.
+ * <p>
+ * A task splits its spliterator in halves, as long as it is larger than the
+ * threshold and can be split, and traverses the parts in parallel in the
+ * common fork-join pool. The root task runs in the calling thread, so a
+ * spliterator which cannot be split is traversed sequentially without
+ * involving the pool.
+ */
+final class DictionaryTasks {
+
+	/**
+	 * The least number of entries worth a task of its own.
+	 */
+	private static final long MINIMUM_TASK_SIZE = 1024;
+
+	private DictionaryTasks() {
+	}
+
+	/**
+	 * Returns the size below which the parts are not split any more, aiming
+	 * at four tasks per worker thread of the common pool.
+	 */
+	private static long threshold(DictionarySpliterator spliterator) {
+		long tasks = (long) ForkJoinPool.getCommonPoolParallelism() << 2;
+		return Math.max(spliterator.estimateSize() / tasks, MINIMUM_TASK_SIZE);
+	}
+
+	static void forEach(DictionarySpliterator spliterator, IntStringConsumer action) {
+		if (action == null) {
+			throw new NullPointerException();
+		}
+		new ForEachTask(spliterator, action, threshold(spliterator)).invoke();
+	}
+
+	static <U> U reduce(DictionarySpliterator spliterator, IntStringTransformer<? extends U> transformer,
+			BinaryOperator<U> reducer) {
+		if (transformer == null || reducer == null) {
+			throw new NullPointerException();
+		}
+		return new ReduceTask<U>(spliterator, transformer, reducer, threshold(spliterator)).invoke();
+	}
+
+	static long count(DictionarySpliterator spliterator, IntStringPredicate predicate) {
+		if (predicate == null) {
+			throw new NullPointerException();
+		}
+		return new CountTask(spliterator, predicate, threshold(spliterator)).invoke();
+	}
+
+	private static final class ForEachTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final DictionarySpliterator spliterator;
+
+		private final IntStringConsumer action;
+
+		private final long threshold;
+
+		ForEachTask(DictionarySpliterator spliterator, IntStringConsumer action, long threshold) {
+			this.spliterator = spliterator;
+			this.action = action;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			DictionarySpliterator prefix;
+			if (spliterator.estimateSize() > threshold && (prefix = spliterator.trySplit()) != null) {
+				invokeAll(new ForEachTask(prefix, action, threshold),
+						new ForEachTask(spliterator, action, threshold));
+			} else {
+				spliterator.forEachRemaining(action);
+			}
+		}
+	}
+
+	private static final class ReduceTask<U> extends RecursiveTask<U> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final DictionarySpliterator spliterator;
+
+		private final IntStringTransformer<? extends U> transformer;
+
+		private final BinaryOperator<U> reducer;
+
+		private final long threshold;
+
+		private U result;
+
+		ReduceTask(DictionarySpliterator spliterator, IntStringTransformer<? extends U> transformer,
+				BinaryOperator<U> reducer, long threshold) {
+			this.spliterator = spliterator;
+			this.transformer = transformer;
+			this.reducer = reducer;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected U compute() {
+			DictionarySpliterator prefix;
+			if (spliterator.estimateSize() > threshold && (prefix = spliterator.trySplit()) != null) {
+				ReduceTask<U> left = new ReduceTask<U>(prefix, transformer, reducer, threshold);
+				left.fork();
+				U right = new ReduceTask<U>(spliterator, transformer, reducer, threshold).compute();
+				U leftResult = left.join();
+				return leftResult == null ? right : right == null ? leftResult : reducer.apply(leftResult, right);
+			}
+			spliterator.forEachRemaining((key, value) -> {
+				U u = transformer.apply(key, value);
+				if (u != null) {
+					result = result == null ? u : reducer.apply(result, u);
+				}
+			});
+			return result;
+		}
+	}
+
+	private static final class CountTask extends RecursiveTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final DictionarySpliterator spliterator;
+
+		private final IntStringPredicate predicate;
+
+		private final long threshold;
+
+		private long count;
+
+		CountTask(DictionarySpliterator spliterator, IntStringPredicate predicate, long threshold) {
+			this.spliterator = spliterator;
+			this.predicate = predicate;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected Long compute() {
+			DictionarySpliterator prefix;
+			if (spliterator.estimateSize() > threshold && (prefix = spliterator.trySplit()) != null) {
+				CountTask left = new CountTask(prefix, predicate, threshold);
+				left.fork();
+				long right = new CountTask(spliterator, predicate, threshold).compute();
+				return left.join() + right;
+			}
+			spliterator.forEachRemaining((key, value) -> {
+				if (predicate.test(key, value)) {
+					count++;
+				}
+			});
+			return count;
+		}
+	}
+
+}
@@ -0,0 +1,415 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Implementation class of the Dictionary interface whose contents survive
+ * crashes of the process, stored in a directory of its own.
+ * <p>
+ * Every <code>put</code> and <code>remove</code> is appended to a
+ * write-ahead log before it is applied. Appending only encodes the operation
+ * into a buffer; a background thread forces the buffered operations to the
+ * disk in groups, so an operation takes microseconds, and it is durable
+ * about one disk force later. {@link #sync()} waits until the preceding
+ * operations are durable. When the dictionary is opened, the latest snapshot
+ * is loaded and the log written since is replayed; an operation torn by a
+ * crash is discarded.
+ * <p>
+ * When the log grows beyond the compaction threshold, a new log file is
+ * started, and a background thread writes a snapshot of the contents in the
+ * format of {@link Dictionary#writeTo(java.nio.channels.WritableByteChannel)}
+ * and atomically renames it into place; the log files it covers are
+ * deleted then. The snapshot is taken in constant time, because the entries
+ * are kept in a {@link PersistentDictionaryImplementation}. A failed
+ * compaction loses no operations, as the log files are kept; it is retried
+ * by later operations with a growing delay, and the failure is reported by
+ * the next {@link #sync()}, {@link #compact()} or {@link #close()}.
+ * <p>
+ * The dictionary must be closed to stop its background threads. This class
+ * is not synchronized, and a directory must not be opened by two
+ * dictionaries at once.
+ *
+ * @see WriteAheadLog
+ */
+public class DurableDictionaryImplementation implements Dictionary, Closeable {
+
+	private static final long DEFAULT_COMPACTION_THRESHOLD = 64 << 20;
+
+	private static final String SNAPSHOT = "snapshot-";
+
+	private static final String LOG = "log-";
+
+	private static final String TEMPORARY = ".tmp";
+
+	private static final long INITIAL_RETRY_DELAY = TimeUnit.SECONDS.toNanos(1);
+
+	private static final long MAXIMUM_RETRY_DELAY = TimeUnit.MINUTES.toNanos(1);
+
+	private final Path directory;
+
+	private final long compactionThreshold;
+
+	private final PersistentDictionaryImplementation dictionary = new PersistentDictionaryImplementation();
+
+	private final WriteAheadLog log;
+
+	/**
+	 * The generation of the current log file.
+	 */
+	private int generation;
+
+	/**
+	 * The thread writing a snapshot, or <code>null</code>.
+	 */
+	private volatile Thread compaction;
+
+	/**
+	 * The first failure of compaction not reported yet.
+	 */
+	private final AtomicReference<IOException> compactionFailure = new AtomicReference<>();
+
+	/**
+	 * The delay before compaction is retried after a failure, or 0 if the
+	 * last compaction succeeded, and the time of the retry. They are written
+	 * either by the thread writing a snapshot, before it clears
+	 * <code>compaction</code>, or while <code>compaction</code> is
+	 * <code>null</code>.
+	 */
+	private long retryDelay;
+
+	private long retryTime;
+
+	/**
+	 * Opens the dictionary stored in the given directory, creating the
+	 * directory if it does not exist, with the default compaction threshold
+	 * (64 MB of log).
+	 *
+	 * @param directory
+	 *            the directory of the dictionary
+	 * @exception IOException
+	 *                if the directory cannot be read or written, or its
+	 *                snapshot is corrupt
+	 */
+	public DurableDictionaryImplementation(Path directory) throws IOException {
+		this(directory, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * Opens the dictionary stored in the given directory, creating the
+	 * directory if it does not exist.
+	 *
+	 * @param directory
+	 *            the directory of the dictionary
+	 * @param compactionThreshold
+	 *            the number of bytes of log above which a snapshot is written
+	 * @exception IOException
+	 *                if the directory cannot be read or written, or its
+	 *                snapshot is corrupt
+	 * @exception IllegalArgumentException
+	 *                if the threshold is not positive
+	 */
+	public DurableDictionaryImplementation(Path directory, long compactionThreshold) throws IOException {
+		if (compactionThreshold <= 0) {
+			throw new IllegalArgumentException("Illegal compaction threshold: " + compactionThreshold);
+		}
+		this.directory = directory;
+		this.compactionThreshold = compactionThreshold;
+		Files.createDirectories(directory);
+		long replayed = recover();
+		log = new WriteAheadLog(directory, generation);
+		if (replayed > compactionThreshold) {
+			compact();
+		}
+	}
+
+	/**
+	 * Loads the latest snapshot and replays the logs written since, deletes
+	 * the files they supersede, and sets the generation of the new log.
+	 *
+	 * @return the number of bytes of log replayed
+	 */
+	private long recover() throws IOException {
+		TreeMap<Integer, Path> snapshots = new TreeMap<>();
+		TreeMap<Integer, Path> logs = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(TEMPORARY)) {
+					// an unfinished snapshot
+					Files.delete(file);
+				} else if (name.startsWith(SNAPSHOT)) {
+					snapshots.put(generationOf(name, SNAPSHOT), file);
+				} else if (name.startsWith(LOG)) {
+					logs.put(generationOf(name, LOG), file);
+				}
+			}
+		}
+		int first = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+		if (first > 0) {
+			try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshots.get(first)))) {
+				dictionary.readFrom(in);
+			}
+		}
+		long replayed = 0;
+		for (Path file : logs.tailMap(first).values()) {
+			replayed += WriteAheadLog.replay(file, dictionary);
+		}
+		deleteBefore(first);
+		int last = Math.max(first, logs.isEmpty() ? 0 : logs.lastKey());
+		generation = last + 1;
+		return replayed;
+	}
+
+	private static int generationOf(String name, String prefix) throws IOException {
+		try {
+			return Integer.parseInt(name.substring(prefix.length()));
+		} catch (NumberFormatException e) {
+			throw new IOException("Unexpected file in dictionary directory: " + name);
+		}
+	}
+
+	/**
+	 * Deletes the snapshots and the logs of the generations before the
+	 * given one.
+	 */
+	private void deleteBefore(int generation) throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				boolean snapshot = name.startsWith(SNAPSHOT) && !name.endsWith(TEMPORARY);
+				if ((snapshot && generationOf(name, SNAPSHOT) < generation)
+						|| (name.startsWith(LOG) && generationOf(name, LOG) < generation)) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		WriteAheadLog.forceDirectory(directory);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return dictionary.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return dictionary.size();
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return dictionary.keys();
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return dictionary.elements();
+	}
+
+	@Override
+	public String get(int key) {
+		return dictionary.get(key);
+	}
+
+	/**
+	 * Logs and applies the mapping of the <code>key</code> to the
+	 * <code>value</code>.
+	 *
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 * @exception java.io.UncheckedIOException
+	 *                if writing the log has failed
+	 * @exception IllegalStateException
+	 *                if the dictionary is closed
+	 */
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		log.append(WriteAheadLog.PUT, key, value.getBytes(StandardCharsets.UTF_8));
+		String old = dictionary.put(key, value);
+		compactIfNeeded();
+		return old;
+	}
+
+	/**
+	 * Logs and applies the removal of the <code>key</code>, if it is in the
+	 * dictionary.
+	 *
+	 * @exception java.io.UncheckedIOException
+	 *                if writing the log has failed
+	 * @exception IllegalStateException
+	 *                if the dictionary is closed
+	 */
+	@Override
+	public String remove(int key) {
+		if (dictionary.get(key) == null) {
+			return null;
+		}
+		log.append(WriteAheadLog.REMOVE, key, null);
+		String old = dictionary.remove(key);
+		compactIfNeeded();
+		return old;
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		dictionary.forEach(action);
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		return dictionary.cursor();
+	}
+
+	/**
+	 * Returns a read-only snapshot of the current contents, in constant time.
+	 */
+	@Override
+	public Dictionary snapshot() {
+		return dictionary.snapshot();
+	}
+
+	/**
+	 * Waits until every operation performed before is forced to the disk.
+	 *
+	 * @exception IOException
+	 *                if writing the log has failed, or a compaction has
+	 *                failed since the failure was last reported; the
+	 *                operations are durable in the latter case
+	 */
+	public void sync() throws IOException {
+		log.sync();
+		reportCompactionFailure();
+	}
+
+	/**
+	 * Starts compaction if the log has grown beyond the threshold, unless it
+	 * is running, or it has failed and the delay of the retry has not
+	 * passed.
+	 */
+	private void compactIfNeeded() {
+		if (compaction == null && log.bytes() > compactionThreshold
+				&& (retryDelay == 0 || System.nanoTime() - retryTime >= 0)) {
+			try {
+				startCompaction();
+			} catch (IOException e) {
+				compactionFailed(e);
+			}
+		}
+	}
+
+	/**
+	 * Keeps the failure to be reported, unless an earlier one is kept
+	 * already, and doubles the delay of the retry.
+	 */
+	private void compactionFailed(IOException e) {
+		compactionFailure.compareAndSet(null, e);
+		retryDelay = retryDelay == 0 ? INITIAL_RETRY_DELAY : Math.min(retryDelay * 2, MAXIMUM_RETRY_DELAY);
+		retryTime = System.nanoTime() + retryDelay;
+	}
+
+	private void reportCompactionFailure() throws IOException {
+		IOException failure = compactionFailure.getAndSet(null);
+		if (failure != null) {
+			throw new IOException("Dictionary compaction failed", failure);
+		}
+	}
+
+	/**
+	 * Starts writing a snapshot of the current contents in the background,
+	 * unless a snapshot is being written already. The log files the snapshot
+	 * covers are deleted when it is complete.
+	 *
+	 * @exception IOException
+	 *                if the new log file cannot be created, or a compaction
+	 *                has failed since the failure was last reported
+	 */
+	public void compact() throws IOException {
+		reportCompactionFailure();
+		if (compaction != null) {
+			return;
+		}
+		startCompaction();
+	}
+
+	private void startCompaction() throws IOException {
+		int covered = generation + 1;
+		log.rotate(covered);
+		generation = covered;
+		Dictionary snapshot = dictionary.snapshot();
+		Thread thread = new Thread(() -> writeSnapshot(snapshot, covered),
+				"Dictionary compaction " + directory.getFileName());
+		thread.setDaemon(true);
+		compaction = thread;
+		thread.start();
+	}
+
+	/**
+	 * Writes the snapshot which contains the operations of the logs before
+	 * the given generation, and deletes those logs.
+	 */
+	private void writeSnapshot(Dictionary snapshot, int generation) {
+		Path temporary = directory.resolve(SNAPSHOT + generation + TEMPORARY);
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				snapshot.writeTo(channel);
+				channel.force(true);
+			}
+			Files.move(temporary, directory.resolve(SNAPSHOT + generation), StandardCopyOption.ATOMIC_MOVE);
+			WriteAheadLog.forceDirectory(directory);
+			deleteBefore(generation);
+			retryDelay = 0;
+		} catch (IOException e) {
+			compactionFailed(e);
+		} finally {
+			compaction = null;
+		}
+	}
+
+	/**
+	 * Waits for the snapshot being written, forces the log to the disk and
+	 * stops the background threads. Closing a closed dictionary has no
+	 * effect.
+	 *
+	 * @exception IOException
+	 *                if writing the log or the snapshot has failed
+	 */
+	@Override
+	public void close() throws IOException {
+		Thread compaction = this.compaction;
+		if (compaction != null) {
+			try {
+				compaction.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		log.close();
+		reportCompactionFailure();
+	}
+
+	@Override
+	public String toString() {
+		return dictionary.toString();
+	}
+
+}
@@ -0,0 +1,53 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+
+/**
+ * Cursor built from the key enumeration of a dictionary, looking up the value
+ * of each key. It is the fallback for implementations which do not walk their
+ * storage directly.
+ *
+ * @see Dictionary#cursor()
+ */
+class EnumerationCursor implements DictionaryCursor {
+
+	private final Dictionary dictionary;
+
+	private Enumeration<Integer> keys;
+
+	private boolean positioned;
+
+	private int key;
+
+	EnumerationCursor(Dictionary dictionary) {
+		this.dictionary = dictionary;
+		this.keys = dictionary.keys();
+	}
+
+	@Override
+	public boolean hasNext() {
+		return keys.hasMoreElements();
+	}
+
+	@Override
+	public int nextKey() {
+		key = keys.nextElement();
+		positioned = true;
+		return key;
+	}
+
+	@Override
+	public String value() {
+		if (!positioned) {
+			throw new IllegalStateException();
+		}
+		return dictionary.get(key);
+	}
+
+	@Override
+	public void reset() {
+		keys = dictionary.keys();
+		positioned = false;
+	}
+
+}
@@ -0,0 +1,35 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * The policies a {@link BoundedDictionaryImplementation} can use to choose
+ * the entry to be evicted when it is full.
+ *
+ * @see BoundedDictionaryImplementation
+ */
+public enum EvictionPolicy {
+
+	/**
+	 * Least recently used: evicts the entry which has not been read or
+	 * written for the longest time.
+	 */
+	LRU,
+
+	/**
+	 * Least frequently used: evicts the entry which has been accessed the
+	 * fewest times since it was inserted, the least recently used one among
+	 * equally frequent entries. Access counts saturate at 255.
+	 */
+	LFU,
+
+	/**
+	 * Window TinyLFU: new entries enter a small LRU window (1% of the
+	 * capacity), and an entry leaving the window is admitted to the main LRU
+	 * region only if it has been accessed more often than the entry it would
+	 * displace. Access frequencies of keys, including those no longer in the
+	 * dictionary, are estimated by a compact count-min sketch which is
+	 * periodically halved, so that one-off keys cannot flush frequently used
+	 * entries.
+	 */
+	TINY_LFU
+
+}
@@ -0,0 +1,589 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.function.LongSupplier;
+
+/**
+ * Implementation class of the Dictionary interface whose entries expire a
+ * given time after they were put, so that forgotten entries do not leak.
+ * <p>
+ * The expiry of every entry is scheduled on a hierarchical timing wheel of
+ * six levels with 64 buckets each: the first level has one bucket per
+ * millisecond, and every further level has buckets 64 times wider. Every
+ * operation first advances the wheel to the current time, which visits only
+ * the buckets passed since the previous operation (at most 64 per level),
+ * removes the entries that expired in them, and moves the entries of coarser
+ * buckets down to finer ones. So the dictionary never holds an expired entry
+ * when it is accessed, and {@link #size()} is exact without scanning the
+ * entries. Calling {@link #cleanUp()} advances the wheel without any other
+ * operation; the thread owning an idle dictionary calls it periodically,
+ * for example from its event loop, to release the expired entries.
+ * <p>
+ * Times are measured in milliseconds by a monotonic clock, which can be
+ * replaced at construction, for example by the simulated time of a model.
+ * This class is not synchronized.
+ *
+ * @see Dictionary
+ */
+public class ExpiringDictionaryImplementation implements Dictionary {
+
+	/**
+	 * The expiry time of entries which never expire.
+	 */
+	private static final long NEVER = Long.MAX_VALUE;
+
+	private static final int LEVELS = 6;
+
+	private static final int BUCKET_BITS = 6;
+
+	private static final int BUCKETS = 1 << BUCKET_BITS;
+
+	/**
+	 * The bucket heads of the wheel occupy the first indices of the node
+	 * arrays; the entries follow them.
+	 */
+	private static final int FIRST_NODE = LEVELS * BUCKETS;
+
+	private final long defaultTimeToLive;
+
+	private final LongSupplier clock;
+
+	private long wheelTime;
+
+	private int[] nodeKeys;
+
+	private String[] nodeValues;
+
+	private long[] expiry;
+
+	private int[] prev;
+
+	private int[] next;
+
+	/**
+	 * Head of the free entries, chained through <code>next</code>, or
+	 * <code>-1</code>.
+	 */
+	private int free = -1;
+
+	/**
+	 * The number of entry indices ever handed out, the first
+	 * <code>FIRST_NODE</code> included.
+	 */
+	private int allocated = FIRST_NODE;
+
+	private int[] indexKeys;
+
+	/**
+	 * Entry index of each slot of the key index; zero marks an empty slot.
+	 */
+	private int[] indexNodes;
+
+	private int size;
+
+	private int threshold;
+
+	private int modCount;
+
+	/**
+	 * Constructs a new, empty dictionary whose entries only expire if they
+	 * are put with a time to live.
+	 */
+	public ExpiringDictionaryImplementation() {
+		this(0);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 *
+	 * @param defaultTimeToLive
+	 *            the time in milliseconds after which the entries put without
+	 *            a time to live expire; zero or negative if they never expire
+	 */
+	public ExpiringDictionaryImplementation(long defaultTimeToLive) {
+		this(defaultTimeToLive, () -> java.lang.System.nanoTime() / 1000000);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary measuring time with the given clock.
+	 *
+	 * @param defaultTimeToLive
+	 *            the time in milliseconds after which the entries put without
+	 *            a time to live expire; zero or negative if they never expire
+	 * @param clock
+	 *            returns the current time in milliseconds; it must never go
+	 *            backwards
+	 */
+	public ExpiringDictionaryImplementation(long defaultTimeToLive, LongSupplier clock) {
+		if (clock == null) {
+			throw new NullPointerException();
+		}
+		this.defaultTimeToLive = defaultTimeToLive;
+		this.clock = clock;
+		this.wheelTime = clock.getAsLong();
+		int capacity = FIRST_NODE + IntStringTable.DEFAULT_EXPECTED_SIZE;
+		nodeKeys = new int[capacity];
+		nodeValues = new String[capacity];
+		expiry = new long[capacity];
+		prev = new int[capacity];
+		next = new int[capacity];
+		for (int head = 0; head < FIRST_NODE; head++) {
+			prev[head] = head;
+			next[head] = head;
+		}
+		int indexCapacity = IntStringTable.capacityFor(IntStringTable.DEFAULT_EXPECTED_SIZE,
+				IntStringTable.DEFAULT_LOAD_FACTOR);
+		indexKeys = new int[indexCapacity];
+		indexNodes = new int[indexCapacity];
+		threshold = (int) (indexCapacity * IntStringTable.DEFAULT_LOAD_FACTOR);
+	}
+
+	// timing wheel
+
+	/**
+	 * Returns the head of the bucket where an entry expiring at the given
+	 * time is scheduled: the finest level whose range covers the remaining
+	 * time, and the bucket of that level containing the expiry time.
+	 */
+	private int bucketFor(long time) {
+		long remaining = time - wheelTime;
+		int level = 0;
+		while (level < LEVELS - 1 && remaining >= 1L << (BUCKET_BITS * (level + 1))) {
+			level++;
+		}
+		int bucket = (int) (time >>> (BUCKET_BITS * level)) & (BUCKETS - 1);
+		return level * BUCKETS + bucket;
+	}
+
+	private void schedule(int node) {
+		int head = bucketFor(expiry[node]);
+		int last = prev[head];
+		prev[node] = last;
+		next[node] = head;
+		next[last] = node;
+		prev[head] = node;
+	}
+
+	private void unschedule(int node) {
+		if (expiry[node] != NEVER) {
+			next[prev[node]] = next[node];
+			prev[next[node]] = prev[node];
+		}
+	}
+
+	/**
+	 * Advances the wheel to the current time, removing the entries expired
+	 * since the previous advance and moving the others to finer buckets.
+	 */
+	private void advance() {
+		long now = clock.getAsLong();
+		long previous = wheelTime;
+		if (now <= previous) {
+			return;
+		}
+		wheelTime = now;
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = BUCKET_BITS * level;
+			long previousTicks = previous >>> shift;
+			long delta = (now >>> shift) - previousTicks;
+			if (delta <= 0) {
+				break;
+			}
+			int steps = (int) Math.min(delta + 1, BUCKETS);
+			for (int step = 0; step < steps; step++) {
+				expireBucket(level * BUCKETS + (int) ((previousTicks + step) & (BUCKETS - 1)), now);
+			}
+		}
+	}
+
+	private void expireBucket(int head, long now) {
+		// detach the bucket, as rescheduled entries may come back to it
+		int node = next[head];
+		int last = prev[head];
+		if (node == head) {
+			return;
+		}
+		prev[head] = head;
+		next[head] = head;
+		while (true) {
+			int following = next[node];
+			boolean end = node == last;
+			if (expiry[node] <= now) {
+				discard(node);
+			} else {
+				schedule(node);
+			}
+			if (end) {
+				return;
+			}
+			node = following;
+		}
+	}
+
+	/**
+	 * Advances the timing wheel to the current time, removing all the expired
+	 * entries. Every other operation does so as well, so calling this method
+	 * is only needed to release expired entries of an otherwise idle
+	 * dictionary. It is the periodic sweep of the dictionary: the dictionary
+	 * is not synchronized, so it must be called by the thread owning the
+	 * dictionary, like every other method, and not from a timer thread.
+	 */
+	public void cleanUp() {
+		advance();
+	}
+
+	// key index
+
+	private int slotOf(int key) {
+		int mask = indexKeys.length - 1;
+		int slot = IntStringTable.hash(key) & mask;
+		while (indexNodes[slot] != 0) {
+			if (indexKeys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void indexInsert(int[] indexKeys, int[] indexNodes, int key, int node) {
+		int mask = indexKeys.length - 1;
+		int slot = IntStringTable.hash(key) & mask;
+		while (indexNodes[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		indexKeys[slot] = key;
+		indexNodes[slot] = node;
+	}
+
+	private void indexRemove(int slot) {
+		// backward-shift deletion, as in IntStringTable
+		int mask = indexKeys.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (indexNodes[next] != 0) {
+			int home = IntStringTable.hash(indexKeys[next]) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				indexKeys[gap] = indexKeys[next];
+				indexNodes[gap] = indexNodes[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		indexNodes[gap] = 0;
+	}
+
+	private void resizeIndex() {
+		int capacity = indexKeys.length << 1;
+		if (capacity > IntStringTable.MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("Dictionary is full");
+		}
+		int[] newKeys = new int[capacity];
+		int[] newNodes = new int[capacity];
+		for (int slot = 0; slot < indexKeys.length; slot++) {
+			if (indexNodes[slot] != 0) {
+				indexInsert(newKeys, newNodes, indexKeys[slot], indexNodes[slot]);
+			}
+		}
+		indexKeys = newKeys;
+		indexNodes = newNodes;
+		threshold = (int) (capacity * IntStringTable.DEFAULT_LOAD_FACTOR);
+	}
+
+	// entries
+
+	private int allocateNode() {
+		if (free >= 0) {
+			int node = free;
+			free = next[node];
+			return node;
+		}
+		if (allocated == nodeKeys.length) {
+			int capacity = (int) Math.min(Integer.MAX_VALUE - 8, nodeKeys.length * 2L);
+			if (capacity == allocated) {
+				throw new IllegalStateException("Dictionary is full");
+			}
+			nodeKeys = Arrays.copyOf(nodeKeys, capacity);
+			nodeValues = Arrays.copyOf(nodeValues, capacity);
+			expiry = Arrays.copyOf(expiry, capacity);
+			prev = Arrays.copyOf(prev, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		return allocated++;
+	}
+
+	/**
+	 * Removes the entry, which is no longer scheduled, from the dictionary.
+	 */
+	private void discard(int node) {
+		indexRemove(slotOf(nodeKeys[node]));
+		nodeValues[node] = null;
+		next[node] = free;
+		free = node;
+		size--;
+		modCount++;
+	}
+
+	private long expiryFor(long timeToLive) {
+		if (timeToLive <= 0 || timeToLive == Long.MAX_VALUE) {
+			return NEVER;
+		}
+		long time = wheelTime + timeToLive;
+		return time < wheelTime ? NEVER : time;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		advance();
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		advance();
+		return size;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		advance();
+		return new SlotEnumeration<Integer>() {
+			@Override
+			Integer element(int node) {
+				return nodeKeys[node];
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		advance();
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int node) {
+				return nodeValues[node];
+			}
+		};
+	}
+
+	@Override
+	public String get(int key) {
+		advance();
+		int slot = slotOf(key);
+		return slot < 0 ? null : nodeValues[indexNodes[slot]];
+	}
+
+	/**
+	 * Maps the specified <code>key</code> to the specified
+	 * <code>value</code> in this dictionary, to expire after the default time
+	 * to live of this dictionary. Replacing the value of a key restarts its
+	 * time to live.
+	 *
+	 * @param      key     the key.
+	 * @param      value   the value.
+	 * @return     the previous value to which the <code>key</code> was mapped
+	 *             in this dictionary, or <code>null</code> if the key did not
+	 *             have a previous mapping.
+	 * @exception  NullPointerException  if the <code>value</code> is
+	 *             <code>null</code>.
+	 */
+	@Override
+	public String put(int key, String value) {
+		return put(key, value, defaultTimeToLive);
+	}
+
+	/**
+	 * Maps the specified <code>key</code> to the specified
+	 * <code>value</code> in this dictionary, to expire after the given time.
+	 * Replacing the value of a key restarts its time to live.
+	 *
+	 * @param      key     the key.
+	 * @param      value   the value.
+	 * @param      timeToLive   the time in milliseconds after which the entry
+	 *             expires; zero, negative or <code>Long.MAX_VALUE</code> if
+	 *             it never expires.
+	 * @return     the previous value to which the <code>key</code> was mapped
+	 *             in this dictionary, or <code>null</code> if the key did not
+	 *             have a previous mapping.
+	 * @exception  NullPointerException  if the <code>value</code> is
+	 *             <code>null</code>.
+	 */
+	public String put(int key, String value, long timeToLive) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		advance();
+		long time = expiryFor(timeToLive);
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			int node = indexNodes[slot];
+			String old = nodeValues[node];
+			unschedule(node);
+			nodeValues[node] = value;
+			expiry[node] = time;
+			if (time != NEVER) {
+				schedule(node);
+			}
+			return old;
+		}
+		int node = allocateNode();
+		nodeKeys[node] = key;
+		nodeValues[node] = value;
+		expiry[node] = time;
+		if (time != NEVER) {
+			schedule(node);
+		}
+		indexInsert(indexKeys, indexNodes, key, node);
+		modCount++;
+		if (++size > threshold) {
+			resizeIndex();
+		}
+		return null;
+	}
+
+	@Override
+	public String remove(int key) {
+		advance();
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return null;
+		}
+		int node = indexNodes[slot];
+		String old = nodeValues[node];
+		unschedule(node);
+		discard(node);
+		return old;
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		advance();
+		int expectedModCount = modCount;
+		for (int slot = 0; slot < indexNodes.length; slot++) {
+			if (indexNodes[slot] != 0) {
+				int node = indexNodes[slot];
+				action.accept(nodeKeys[node], nodeValues[node]);
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		advance();
+		return new SlotCursor();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		forEach((key, value) -> {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(key).append('=').append(value);
+		});
+		return sb.append('}').toString();
+	}
+
+	private int nextSlot(int from) {
+		for (int slot = from; slot < indexNodes.length; slot++) {
+			if (indexNodes[slot] != 0) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Walks the entries alive when the cursor was created or reset; expiring
+	 * entries during the traversal counts as a modification.
+	 */
+	private class SlotCursor implements DictionaryCursor {
+
+		private int expectedModCount;
+
+		private int slot;
+
+		private int next;
+
+		SlotCursor() {
+			start();
+		}
+
+		private void start() {
+			expectedModCount = modCount;
+			slot = -1;
+			next = nextSlot(0);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public int nextKey() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next < 0) {
+				throw new NoSuchElementException();
+			}
+			slot = next;
+			next = nextSlot(slot + 1);
+			return nodeKeys[indexNodes[slot]];
+		}
+
+		@Override
+		public String value() {
+			if (slot < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return nodeValues[indexNodes[slot]];
+		}
+
+		@Override
+		public void reset() {
+			advance();
+			start();
+		}
+	}
+
+	private abstract class SlotEnumeration<E> implements Enumeration<E> {
+
+		private final int expectedModCount = modCount;
+
+		private int slot = nextSlot(0);
+
+		abstract E element(int node);
+
+		@Override
+		public boolean hasMoreElements() {
+			return slot >= 0;
+		}
+
+		@Override
+		public E nextElement() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (slot < 0) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			E element = element(indexNodes[slot]);
+			slot = nextSlot(slot + 1);
+			return element;
+		}
+	}
+
+}
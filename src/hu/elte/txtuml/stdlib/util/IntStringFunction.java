@@ -0,0 +1,27 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * Represents a function that computes a new value for an entry of a
+ * {@link Dictionary} from its primitive <code>int</code> key and its current
+ * <code>String</code> value. This is the primitive specialization of
+ * <code>java.util.function.BiFunction</code>, so no key is boxed.
+ *
+ * @see Dictionary#compute(int, IntStringFunction)
+ */
+@FunctionalInterface
+public interface IntStringFunction {
+
+	/**
+	 * Computes the new value of the given entry.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param value
+	 *            the current value of the entry, or <code>null</code> if the
+	 *            key is not mapped to any value
+	 * @return the new value of the entry, or <code>null</code> if the entry
+	 *         should be removed
+	 */
+	public String apply(int key, String value);
+
+}
@@ -0,0 +1,25 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * Represents a predicate of an entry of a {@link Dictionary}, that is a
+ * primitive <code>int</code> key and its <code>String</code> value. This is
+ * the primitive specialization of <code>java.util.function.BiPredicate</code>,
+ * so no key is boxed.
+ *
+ * @see Dictionary#count(IntStringPredicate)
+ */
+@FunctionalInterface
+public interface IntStringPredicate {
+
+	/**
+	 * Evaluates this predicate on the given entry.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param value
+	 *            the value of the entry
+	 * @return <code>true</code> if the entry matches the predicate
+	 */
+	public boolean test(int key, String value);
+
+}
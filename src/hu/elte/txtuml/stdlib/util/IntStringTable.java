@@ -0,0 +1,655 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressing hash table which maps primitive <code>int</code> keys to
+ * <code>String</code> values without boxing the keys. This is the backing
+ * store of {@link DictionaryImplementation}.
+ * <p>
+ * The probing, deletion and growth are those of {@link OpenHashTable}; the
+ * table grows incrementally, so no single <code>put</code> rehashes all the
+ * entries. This class is not synchronized.
+ * <p>
+ * A table can share its arrays with a read-only copy of itself, taken by
+ * {@link #share()}: the first modification of the table afterwards copies
+ * the arrays before changing them, so the copy never sees the change.
+ *
+ * @see DictionaryImplementation
+ */
+class IntStringTable extends OpenHashTable {
+
+	int[] keys;
+
+	/**
+	 * Whether the arrays are shared with a read-only copy of this table.
+	 */
+	private boolean shared;
+
+	private boolean readOnly;
+
+	IntStringTable() {
+		this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries the table should hold without resizing
+	 * @param loadFactor
+	 *            the maximal ratio of used slots, strictly between 0 and 1
+	 * @throws IllegalArgumentException
+	 *             if the expected size is negative or the load factor is out
+	 *             of range
+	 */
+	IntStringTable(int expectedSize, float loadFactor) {
+		super(expectedSize, loadFactor);
+	}
+
+	/**
+	 * Validates the arguments of a bulk <code>put</code>: the arrays must
+	 * have the same length and no value may be <code>null</code>.
+	 */
+	static void checkEntries(int[] keys, String[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException(
+					"Number of keys and values differ: " + keys.length + " != " + values.length);
+		}
+		for (String value : values) {
+			if (value == null) {
+				throw new NullPointerException();
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of the key, so that sequential keys do not form long
+	 * clusters under linear probing.
+	 */
+	static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	void allocateKeys(int capacity) {
+		keys = new int[capacity];
+		// the values are allocated along with the keys
+		shared = false;
+	}
+
+	@Override
+	Object keyArrays() {
+		return keys;
+	}
+
+	@Override
+	int hashAt(Object keys, int slot) {
+		return hash(((int[]) keys)[slot]);
+	}
+
+	@Override
+	void copyKey(Object keys, int from, int to) {
+		this.keys[to] = ((int[]) keys)[from];
+	}
+
+	@Override
+	void appendKey(StringBuilder sb, int slot) {
+		sb.append(keys[slot]);
+	}
+
+	@Override
+	void grow() {
+		startMigration(values.length << 1);
+	}
+
+	/**
+	 * Returns a read-only copy of this table which shares its arrays, after
+	 * finishing its migration if one is in progress. The mutators of the
+	 * copy throw <code>UnsupportedOperationException</code>.
+	 */
+	IntStringTable share() {
+		if (readOnly) {
+			return this;
+		}
+		finishMigration();
+		IntStringTable copy = new IntStringTable(0, loadFactor);
+		copy.keys = keys;
+		copy.values = values;
+		copy.size = size;
+		copy.threshold = threshold;
+		copy.shared = true;
+		copy.readOnly = true;
+		shared = true;
+		return copy;
+	}
+
+	/**
+	 * Prepares the table for a modification: copies the arrays if they are
+	 * shared, and migrates a few entries if the table is growing.
+	 */
+	private void modifying() {
+		if (shared) {
+			checkWritable();
+			keys = keys.clone();
+			values = values.clone();
+			shared = false;
+		}
+		migrate();
+	}
+
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("Dictionary snapshot is read-only");
+		}
+	}
+
+	@Override
+	void trimToSize() {
+		checkWritable();
+		super.trimToSize();
+	}
+
+	@Override
+	void ensureCapacity(int expectedSize) {
+		checkWritable();
+		super.ensureCapacity(expectedSize);
+	}
+
+	/**
+	 * Returns the slot holding the given key in the current table, or
+	 * <code>-1</code> if the key is not there.
+	 */
+	int slotOf(int key) {
+		int[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot of the old table holding the given key which has not
+	 * been migrated yet, or <code>-1</code> if there is none.
+	 */
+	private int oldSlotOf(int key) {
+		int[] keys = (int[]) oldKeys;
+		Object[] values = oldValues;
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				return slot >= migrated && values[slot] != TOMBSTONE ? slot : -1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of slots examined by a lookup of the given key,
+	 * which found it in the given slot, or did not find it if the slot is
+	 * negative.
+	 */
+	private int probeLength(int key, int slot) {
+		int mask = keys.length - 1;
+		int home = hash(key) & mask;
+		if (slot >= 0) {
+			return ((slot - home) & mask) + 1;
+		}
+		int length = 1;
+		for (int i = home; values[i] != null; i = (i + 1) & mask) {
+			length++;
+		}
+		return length;
+	}
+
+	String get(int key) {
+		int slot = slotOf(key);
+		String value = slot < 0 ? null : (String) values[slot];
+		if (slot < 0 && oldValues != null) {
+			int oldSlot = oldSlotOf(key);
+			if (oldSlot >= 0) {
+				value = (String) oldValues[oldSlot];
+			}
+		}
+		TableStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.gets++;
+			if (value != null) {
+				statistics.hits++;
+			}
+			statistics.recordProbe(probeLength(key, slot));
+		}
+		return value;
+	}
+
+	String put(int key, String value) {
+		modifying();
+		TableStatistics statistics = this.statistics;
+		if (statistics != null) {
+			int slot = slotOf(key);
+			statistics.puts++;
+			if (slot < 0 && (oldValues == null || oldSlotOf(key) < 0)) {
+				statistics.inserts++;
+			}
+			statistics.recordProbe(probeLength(key, slot));
+		}
+		int[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				String old = (String) values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (oldValues != null) {
+			// an entry not migrated yet moves to the current table
+			int oldSlot = oldSlotOf(key);
+			if (oldSlot >= 0) {
+				String old = (String) oldValues[oldSlot];
+				oldValues[oldSlot] = TOMBSTONE;
+				return old;
+			}
+		}
+		added();
+		return null;
+	}
+
+	String remove(int key) {
+		modifying();
+		int slot = slotOf(key);
+		String old = slot < 0 ? null : (String) values[slot];
+		int oldSlot = -1;
+		if (slot < 0 && oldValues != null) {
+			oldSlot = oldSlotOf(key);
+			if (oldSlot >= 0) {
+				old = (String) oldValues[oldSlot];
+			}
+		}
+		TableStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.removes++;
+			if (old != null) {
+				statistics.removed++;
+			}
+			statistics.recordProbe(probeLength(key, slot));
+		}
+		if (slot >= 0) {
+			removeSlot(slot);
+		} else if (oldSlot >= 0) {
+			oldValues[oldSlot] = TOMBSTONE;
+			size--;
+			modCount++;
+		}
+		return old;
+	}
+
+	/**
+	 * Returns the slot of the current table holding the given key, moving
+	 * the entry there first if it has not been migrated yet, or
+	 * <code>-(slot + 1)</code> of the empty slot where the key would be
+	 * inserted if it is not in the table.
+	 */
+	private int find(int key) {
+		int[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (oldValues != null) {
+			int oldSlot = oldSlotOf(key);
+			if (oldSlot >= 0) {
+				keys[slot] = key;
+				values[slot] = oldValues[oldSlot];
+				oldValues[oldSlot] = TOMBSTONE;
+				return slot;
+			}
+		}
+		return -(slot + 1);
+	}
+
+	private void insert(int slot, int key, String value) {
+		keys[slot] = key;
+		values[slot] = value;
+		added();
+	}
+
+	/**
+	 * Throws <code>ConcurrentModificationException</code> if a function
+	 * passed to a compute method has modified the table, which invalidates
+	 * the slot found before calling it.
+	 */
+	private void checkUnmodified(int expectedModCount, int expectedMigrated) {
+		if (modCount != expectedModCount || migrated != expectedMigrated) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	String putIfAbsent(int key, String value) {
+		modifying();
+		int slot = find(key);
+		TableStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.puts++;
+			if (slot < 0) {
+				statistics.inserts++;
+			}
+			statistics.recordProbe(probeLength(key, slot));
+		}
+		if (slot >= 0) {
+			return (String) values[slot];
+		}
+		insert(-(slot + 1), key, value);
+		return null;
+	}
+
+	String computeIfAbsent(int key, IntFunction<String> mappingFunction) {
+		modifying();
+		int slot = find(key);
+		TableStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.recordProbe(probeLength(key, slot));
+		}
+		if (slot >= 0) {
+			if (statistics != null) {
+				statistics.gets++;
+				statistics.hits++;
+			}
+			return (String) values[slot];
+		}
+		int expectedModCount = modCount;
+		int expectedMigrated = migrated;
+		String value = mappingFunction.apply(key);
+		checkUnmodified(expectedModCount, expectedMigrated);
+		if (statistics != null) {
+			// a miss, and a put if the function computed a value
+			statistics.gets++;
+			if (value != null) {
+				statistics.puts++;
+				statistics.inserts++;
+			}
+		}
+		if (value != null) {
+			insert(-(slot + 1), key, value);
+		}
+		return value;
+	}
+
+	String compute(int key, IntStringFunction remappingFunction) {
+		modifying();
+		int slot = find(key);
+		String old = slot >= 0 ? (String) values[slot] : null;
+		int expectedModCount = modCount;
+		int expectedMigrated = migrated;
+		String value = remappingFunction.apply(key, old);
+		checkUnmodified(expectedModCount, expectedMigrated);
+		store(slot, key, value);
+		return value;
+	}
+
+	String merge(int key, String value, BinaryOperator<String> remappingFunction) {
+		modifying();
+		int slot = find(key);
+		String merged = value;
+		if (slot >= 0) {
+			int expectedModCount = modCount;
+			int expectedMigrated = migrated;
+			merged = remappingFunction.apply((String) values[slot], value);
+			checkUnmodified(expectedModCount, expectedMigrated);
+		}
+		store(slot, key, merged);
+		return merged;
+	}
+
+	/**
+	 * Stores the result of a compute method in the slot returned by
+	 * <code>find</code>, removing the entry if the result is
+	 * <code>null</code>, and records it as a put or a remove.
+	 */
+	private void store(int slot, int key, String value) {
+		TableStatistics statistics = this.statistics;
+		if (statistics != null) {
+			if (value != null) {
+				statistics.puts++;
+				if (slot < 0) {
+					statistics.inserts++;
+				}
+			} else {
+				statistics.removes++;
+				if (slot >= 0) {
+					statistics.removed++;
+				}
+			}
+			statistics.recordProbe(probeLength(key, slot));
+		}
+		if (slot >= 0) {
+			if (value != null) {
+				values[slot] = value;
+			} else {
+				removeSlot(slot);
+			}
+		} else if (value != null) {
+			insert(-(slot + 1), key, value);
+		}
+	}
+
+	boolean replace(int key, String expectedValue, String newValue) {
+		modifying();
+		int slot = find(key);
+		TableStatistics statistics = this.statistics;
+		if (statistics != null) {
+			statistics.puts++;
+			statistics.recordProbe(probeLength(key, slot));
+		}
+		if (slot < 0 || !values[slot].equals(expectedValue)) {
+			return false;
+		}
+		values[slot] = newValue;
+		return true;
+	}
+
+	void forEach(IntStringConsumer action) {
+		finishMigration();
+		int expectedModCount = modCount;
+		int[] keys = this.keys;
+		Object[] values = this.values;
+		for (int slot = 0; slot < values.length; slot++) {
+			if (values[slot] != null) {
+				action.accept(keys[slot], (String) values[slot]);
+			}
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	DictionaryCursor cursor() {
+		return new TableCursor();
+	}
+
+	DictionarySpliterator spliterator() {
+		finishMigration();
+		return new TableSpliterator(keys, values, 0, values.length, modCount);
+	}
+
+	Enumeration<Integer> keys() {
+		return new SlotEnumeration<Integer>() {
+			@Override
+			Integer element(int slot) {
+				return keys[slot];
+			}
+		};
+	}
+
+	Enumeration<String> elements() {
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int slot) {
+				return (String) values[slot];
+			}
+		};
+	}
+
+	/**
+	 * Traverses a range of slots of the table, splitting it in halves. The
+	 * arrays are captured when the root spliterator is created, so the parts
+	 * can be traversed by other threads as long as the table is not modified.
+	 * It fails fast like the enumerations.
+	 */
+	private class TableSpliterator implements DictionarySpliterator {
+
+		private final int[] keys;
+
+		private final Object[] values;
+
+		private int index;
+
+		private final int fence;
+
+		private final int expectedModCount;
+
+		TableSpliterator(int[] keys, Object[] values, int origin, int fence, int expectedModCount) {
+			this.keys = keys;
+			this.values = values;
+			this.index = origin;
+			this.fence = fence;
+			this.expectedModCount = expectedModCount;
+		}
+
+		@Override
+		public DictionarySpliterator trySplit() {
+			int origin = index;
+			int middle = (origin + fence) >>> 1;
+			if (middle <= origin) {
+				return null;
+			}
+			index = middle;
+			return new TableSpliterator(keys, values, origin, middle, expectedModCount);
+		}
+
+		@Override
+		public boolean tryAdvance(IntStringConsumer action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			while (index < fence) {
+				int slot = index++;
+				Object value = values[slot];
+				if (value != null) {
+					action.accept(keys[slot], (String) value);
+					if (modCount != expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(IntStringConsumer action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			int[] keys = this.keys;
+			Object[] values = this.values;
+			int fence = this.fence;
+			for (int slot = index; slot < fence; slot++) {
+				Object value = values[slot];
+				if (value != null) {
+					action.accept(keys[slot], (String) value);
+				}
+			}
+			index = fence;
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return (long) size * (fence - index) / values.length;
+		}
+
+		@Override
+		public int characteristics() {
+			return DISTINCT | NONNULL;
+		}
+	}
+
+	/**
+	 * Walks the occupied slots of the table directly. Like the enumerations,
+	 * it fails fast if the table is structurally modified meanwhile.
+	 */
+	private class TableCursor implements DictionaryCursor {
+
+		private int expectedModCount;
+
+		private int slot;
+
+		private int next;
+
+		TableCursor() {
+			reset();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public int nextKey() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next < 0) {
+				throw new NoSuchElementException();
+			}
+			slot = next;
+			next = nextSlot(slot + 1);
+			return keys[slot];
+		}
+
+		@Override
+		public String value() {
+			if (slot < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return (String) values[slot];
+		}
+
+		@Override
+		public void reset() {
+			finishMigration();
+			expectedModCount = modCount;
+			slot = -1;
+			next = nextSlot(0);
+		}
+	}
+
+}
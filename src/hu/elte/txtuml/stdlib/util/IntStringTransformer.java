@@ -0,0 +1,27 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * Represents a function that maps an entry of a {@link Dictionary}, that is
+ * a primitive <code>int</code> key and its <code>String</code> value, to a
+ * result of any type. This is the primitive specialization of
+ * <code>java.util.function.BiFunction</code>, so no key is boxed.
+ *
+ * @param <U>
+ *            the type of the result
+ * @see Dictionary#reduce(IntStringTransformer, java.util.function.BinaryOperator)
+ */
+@FunctionalInterface
+public interface IntStringTransformer<U> {
+
+	/**
+	 * Maps the given entry.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param value
+	 *            the value of the entry
+	 * @return the result, or <code>null</code> if the entry should be skipped
+	 */
+	public U apply(int key, String value);
+
+}
@@ -0,0 +1,94 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+
+import hu.elte.txtuml.api.model.external.ExternalClass;
+
+/**
+ * A dictionary for txtUML models which maps primitive <code>long</code> keys
+ * to <code>String</code> values, the counterpart of {@link Dictionary} for
+ * keys which do not fit into an <code>int</code>. The keys are never boxed
+ * by the lookups.
+ *
+ * @see LongDictionaryImplementation
+ */
+public interface LongDictionary extends ExternalClass {
+
+	/**
+	 * Tests if this dictionary maps no keys to values.
+	 *
+	 * @return <code>true</code> if this dictionary maps no keys to values;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Returns the number of entries (distinct keys) in this dictionary.
+	 *
+	 * @return the number of keys in this dictionary
+	 */
+	public int size();
+
+	/**
+	 * Returns an enumeration of the keys in this dictionary.
+	 *
+	 * @return an enumeration of the keys in this dictionary
+	 */
+	public Enumeration<Long> keys();
+
+	/**
+	 * Returns an enumeration of the values in this dictionary.
+	 *
+	 * @return an enumeration of the values in this dictionary
+	 */
+	public Enumeration<String> elements();
+
+	/**
+	 * Returns the value to which the key is mapped in this dictionary.
+	 *
+	 * @param key
+	 *            a key in this dictionary
+	 * @return the value to which the key is mapped, or <code>null</code> if
+	 *         the key is not mapped to any value
+	 */
+	public String get(long key);
+
+	/**
+	 * Maps the specified <code>key</code> to the specified
+	 * <code>value</code> in this dictionary.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the previous value to which the <code>key</code> was mapped, or
+	 *         <code>null</code> if it did not have a previous mapping
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 */
+	public String put(long key, String value);
+
+	/**
+	 * Removes the <code>key</code> (and its corresponding
+	 * <code>value</code>) from this dictionary.
+	 *
+	 * @param key
+	 *            the key that needs to be removed
+	 * @return the value to which the <code>key</code> had been mapped, or
+	 *         <code>null</code> if the key did not have a mapping
+	 */
+	public String remove(long key);
+
+	/**
+	 * Performs the given action for each entry of this dictionary, passing
+	 * the keys as primitive <code>long</code> values.
+	 *
+	 * @param action
+	 *            the action to be performed for each entry
+	 * @exception java.util.ConcurrentModificationException
+	 *                if the action adds or removes entries of this
+	 *                dictionary
+	 */
+	public void forEach(LongStringConsumer action);
+
+}
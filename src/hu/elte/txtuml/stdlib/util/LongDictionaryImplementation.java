@@ -0,0 +1,87 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+
+/**
+ * Implementation class of the LongDictionary interface for txtUML models.
+ * <p>
+ * The entries are stored in an open-addressing hash table specialized for
+ * <code>long</code> keys, so the keys are never boxed on <code>get</code>,
+ * <code>put</code> or <code>remove</code>. This class is not synchronized.
+ *
+ * @see LongDictionary
+ * @see LongStringTable
+ */
+public class LongDictionaryImplementation implements LongDictionary {
+
+	private final LongStringTable table;
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 */
+	public LongDictionaryImplementation() {
+		this(OpenHashTable.DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary which holds the given number of
+	 * entries without enlarging its storage.
+	 *
+	 * @param expectedSize
+	 *            the expected number of entries
+	 * @exception IllegalArgumentException
+	 *                if the expected size is negative
+	 */
+	public LongDictionaryImplementation(int expectedSize) {
+		table = new LongStringTable(expectedSize);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return table.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return table.size;
+	}
+
+	@Override
+	public Enumeration<Long> keys() {
+		return table.keys();
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return table.elements();
+	}
+
+	@Override
+	public String get(long key) {
+		return table.get(key);
+	}
+
+	@Override
+	public String put(long key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		return table.put(key, value);
+	}
+
+	@Override
+	public String remove(long key) {
+		return table.remove(key);
+	}
+
+	@Override
+	public void forEach(LongStringConsumer action) {
+		table.forEach(action);
+	}
+
+	@Override
+	public String toString() {
+		return table.toString();
+	}
+
+}
@@ -0,0 +1,24 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * Represents an operation that accepts an entry of a {@link LongDictionary},
+ * that is a primitive <code>long</code> key and its <code>String</code>
+ * value. This is the primitive specialization of
+ * <code>java.util.function.BiConsumer</code>, so no key is boxed.
+ *
+ * @see LongDictionary#forEach(LongStringConsumer)
+ */
+@FunctionalInterface
+public interface LongStringConsumer {
+
+	/**
+	 * Performs this operation on the given entry.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param value
+	 *            the value of the entry
+	 */
+	public void accept(long key, String value);
+
+}
@@ -0,0 +1,148 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+
+/**
+ * Open-addressing hash table which maps primitive <code>long</code> keys to
+ * <code>String</code> values without boxing the keys. This is the backing
+ * store of {@link LongDictionaryImplementation}.
+ * <p>
+ * The probing, deletion and growth are those of {@link OpenHashTable}. This
+ * class is not synchronized.
+ *
+ * @see LongDictionaryImplementation
+ */
+class LongStringTable extends OpenHashTable {
+
+	long[] keys;
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries the table should hold without resizing
+	 * @throws IllegalArgumentException
+	 *             if the expected size is negative
+	 */
+	LongStringTable(int expectedSize) {
+		super(expectedSize, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * Spreads the bits of the key, folding its upper half into the lower one,
+	 * so that keys differing only in their upper bits do not collide.
+	 */
+	static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	@Override
+	void allocateKeys(int capacity) {
+		keys = new long[capacity];
+	}
+
+	@Override
+	Object keyArrays() {
+		return keys;
+	}
+
+	@Override
+	int hashAt(Object keys, int slot) {
+		return hash(((long[]) keys)[slot]);
+	}
+
+	@Override
+	void copyKey(Object keys, int from, int to) {
+		this.keys[to] = ((long[]) keys)[from];
+	}
+
+	@Override
+	void appendKey(StringBuilder sb, int slot) {
+		sb.append(keys[slot]);
+	}
+
+	/**
+	 * Returns the slot holding the given key, or <code>-1</code> if the key
+	 * is not in the table.
+	 */
+	int slotOf(long key) {
+		long[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	String get(long key) {
+		int slot = slotOf(key);
+		return slot < 0 ? null : (String) values[slot];
+	}
+
+	String put(long key, String value) {
+		long[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				String old = (String) values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		added();
+		return null;
+	}
+
+	String remove(long key) {
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return null;
+		}
+		String old = (String) values[slot];
+		removeSlot(slot);
+		return old;
+	}
+
+	void forEach(LongStringConsumer action) {
+		int expectedModCount = modCount;
+		long[] keys = this.keys;
+		Object[] values = this.values;
+		for (int slot = 0; slot < values.length; slot++) {
+			if (values[slot] != null) {
+				action.accept(keys[slot], (String) values[slot]);
+			}
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	Enumeration<Long> keys() {
+		return new SlotEnumeration<Long>() {
+			@Override
+			Long element(int slot) {
+				return keys[slot];
+			}
+		};
+	}
+
+	Enumeration<String> elements() {
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int slot) {
+				return (String) values[slot];
+			}
+		};
+	}
+
+}
@@ -0,0 +1,589 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation class of the Dictionary interface which keeps its entries
+ * in a memory-mapped file, so that a dictionary survives restarts and can be
+ * reopened without reading and rehashing its entries: opening only maps the
+ * file, and the pages are loaded by the operating system on first access.
+ * <p>
+ * The file starts with a header, followed by the hash index and the value
+ * payloads. The index is an open-addressing table with linear probing whose
+ * slots hold a key and the file offset of its value; a value is stored as its
+ * UTF-8 length followed by its UTF-8 bytes. Replaced and removed values are
+ * left in place as garbage, and the file is rewritten compactly when the index
+ * has to grow or the garbage outweighs the live data.
+ * <p>
+ * Changes are written to the mapped memory, and the operating system writes
+ * them back to the file on its own schedule; {@link #force()} and
+ * {@link #close()} write them back immediately. The whole file is mapped at
+ * once, so it is limited to 2 GB. Values are encoded in UTF-8, so unpaired
+ * surrogate characters are not preserved. This class is not synchronized.
+ *
+ * @see Dictionary
+ */
+public class MappedDictionaryImplementation implements Dictionary, Closeable {
+
+	private static final int MAGIC = 0x54444D31;
+
+	private static final int VERSION = 1;
+
+	private static final int MAGIC_OFFSET = 0;
+
+	private static final int VERSION_OFFSET = 4;
+
+	private static final int CAPACITY_OFFSET = 8;
+
+	private static final int SIZE_OFFSET = 12;
+
+	private static final int DATA_END_OFFSET = 16;
+
+	private static final int GARBAGE_OFFSET = 20;
+
+	private static final int HEADER_SIZE = 32;
+
+	private static final int SLOT_SIZE = 8;
+
+	private static final int MINIMUM_DATA_SIZE = 1 << 16;
+
+	/**
+	 * The largest mapped file. Value offsets are stored as <code>int</code>.
+	 */
+	private static final long MAXIMUM_FILE_SIZE = Integer.MAX_VALUE;
+
+	private final Path file;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	private int capacity;
+
+	private int threshold;
+
+	private int size;
+
+	private int dataStart;
+
+	private int dataEnd;
+
+	private int garbage;
+
+	private int modCount;
+
+	/**
+	 * Opens the dictionary stored in the given file, or creates an empty one
+	 * if the file does not exist or is empty.
+	 *
+	 * @param fileName
+	 *            the name of the file
+	 * @throws IOException
+	 *             if the file cannot be opened or mapped, or if it is not a
+	 *             dictionary file
+	 */
+	public MappedDictionaryImplementation(String fileName) throws IOException {
+		this(Paths.get(fileName));
+	}
+
+	/**
+	 * Opens the dictionary stored in the given file, or creates an empty one
+	 * if the file does not exist or is empty.
+	 *
+	 * @param file
+	 *            the path of the file
+	 * @throws IOException
+	 *             if the file cannot be opened or mapped, or if it is not a
+	 *             dictionary file
+	 */
+	public MappedDictionaryImplementation(Path file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (channel.size() == 0) {
+				int capacity = IntStringTable.capacityFor(IntStringTable.DEFAULT_EXPECTED_SIZE,
+						IntStringTable.DEFAULT_LOAD_FACTOR);
+				buffer = create(channel, capacity, MINIMUM_DATA_SIZE);
+			} else {
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			}
+			load();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Sizes the file and maps it, writing the header of an empty dictionary.
+	 */
+	private static MappedByteBuffer create(FileChannel channel, int capacity, long dataSize) throws IOException {
+		long length = HEADER_SIZE + (long) capacity * SLOT_SIZE + dataSize;
+		if (length > MAXIMUM_FILE_SIZE) {
+			throw new IllegalStateException("Dictionary file is full");
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+		buffer.putInt(MAGIC_OFFSET, MAGIC);
+		buffer.putInt(VERSION_OFFSET, VERSION);
+		buffer.putInt(CAPACITY_OFFSET, capacity);
+		buffer.putInt(SIZE_OFFSET, 0);
+		buffer.putInt(DATA_END_OFFSET, HEADER_SIZE + capacity * SLOT_SIZE);
+		buffer.putInt(GARBAGE_OFFSET, 0);
+		return buffer;
+	}
+
+	/**
+	 * Reads and validates the header of the mapped file.
+	 */
+	private void load() throws IOException {
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+			throw new IOException(file + " is not a dictionary file");
+		}
+		if (buffer.getInt(VERSION_OFFSET) != VERSION) {
+			throw new IOException("Unsupported dictionary file version: " + buffer.getInt(VERSION_OFFSET));
+		}
+		capacity = buffer.getInt(CAPACITY_OFFSET);
+		size = buffer.getInt(SIZE_OFFSET);
+		dataStart = HEADER_SIZE + capacity * SLOT_SIZE;
+		dataEnd = buffer.getInt(DATA_END_OFFSET);
+		garbage = buffer.getInt(GARBAGE_OFFSET);
+		if (capacity < 2 || Integer.bitCount(capacity) != 1 || size < 0 || size >= capacity
+				|| dataEnd < dataStart || dataEnd > buffer.capacity()) {
+			throw new IOException(file + " is corrupted");
+		}
+		threshold = (int) (capacity * IntStringTable.DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * The hash function is part of the file format, so it must never change.
+	 */
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void ensureOpen() {
+		if (buffer == null) {
+			throw new IllegalStateException("Dictionary is closed");
+		}
+	}
+
+	private static int keyAt(ByteBuffer buffer, int slot) {
+		return buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE);
+	}
+
+	private static int offsetAt(ByteBuffer buffer, int slot) {
+		return buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4);
+	}
+
+	private static void setSlot(ByteBuffer buffer, int slot, int key, int offset) {
+		buffer.putInt(HEADER_SIZE + slot * SLOT_SIZE, key);
+		buffer.putInt(HEADER_SIZE + slot * SLOT_SIZE + 4, offset);
+	}
+
+	/**
+	 * Returns the slot holding the given key, or <code>-1</code>.
+	 */
+	private int slotOf(int key) {
+		int mask = capacity - 1;
+		int slot = hash(key) & mask;
+		while (offsetAt(buffer, slot) != 0) {
+			if (keyAt(buffer, slot) == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private String valueAt(int offset) {
+		int length = buffer.getInt(offset);
+		byte[] bytes = new byte[length];
+		ByteBuffer source = buffer.duplicate();
+		source.position(offset + 4);
+		source.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int entrySize(ByteBuffer buffer, int offset) {
+		return 4 + buffer.getInt(offset);
+	}
+
+	/**
+	 * Appends the value to the data region and returns its offset.
+	 */
+	private int append(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		int needed = 4 + bytes.length;
+		if ((long) dataEnd + needed > buffer.capacity()) {
+			grow(needed);
+		}
+		int offset = dataEnd;
+		buffer.putInt(offset, bytes.length);
+		ByteBuffer target = buffer.duplicate();
+		target.position(offset + 4);
+		target.put(bytes);
+		dataEnd += needed;
+		buffer.putInt(DATA_END_OFFSET, dataEnd);
+		return offset;
+	}
+
+	/**
+	 * Makes room for <code>needed</code> more bytes of data, either by
+	 * compacting the file or by doubling its size.
+	 */
+	private void grow(int needed) {
+		int live = dataEnd - dataStart - garbage;
+		if (garbage > live && (long) dataStart + live + needed <= buffer.capacity()) {
+			rebuild(capacity, buffer.capacity() - dataStart);
+			return;
+		}
+		long length = Math.max((long) buffer.capacity() * 2, (long) dataEnd + needed);
+		length = Math.min(length, MAXIMUM_FILE_SIZE);
+		if ((long) dataEnd + needed > length) {
+			throw new IllegalStateException("Dictionary file is full");
+		}
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Rewrites the file with an index of the given capacity and only the live
+	 * values. The new file is written next to the old one and then moved over
+	 * it, so the old file stays intact until the new one is complete.
+	 */
+	private void rebuild(int newCapacity, long dataSize) {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			FileChannel newChannel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				MappedByteBuffer newBuffer = create(newChannel, newCapacity,
+						Math.max(dataSize, MINIMUM_DATA_SIZE));
+				int mask = newCapacity - 1;
+				int newDataEnd = HEADER_SIZE + newCapacity * SLOT_SIZE;
+				ByteBuffer source = buffer.duplicate();
+				ByteBuffer target = newBuffer.duplicate();
+				for (int slot = 0; slot < capacity; slot++) {
+					int offset = offsetAt(buffer, slot);
+					if (offset != 0) {
+						int key = keyAt(buffer, slot);
+						int length = entrySize(buffer, offset);
+						source.limit(offset + length).position(offset);
+						target.position(newDataEnd);
+						target.put(source);
+						int newSlot = hash(key) & mask;
+						while (offsetAt(newBuffer, newSlot) != 0) {
+							newSlot = (newSlot + 1) & mask;
+						}
+						setSlot(newBuffer, newSlot, key, newDataEnd);
+						newDataEnd += length;
+					}
+				}
+				newBuffer.putInt(SIZE_OFFSET, size);
+				newBuffer.putInt(DATA_END_OFFSET, newDataEnd);
+				newBuffer.force();
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				channel.close();
+				channel = newChannel;
+				buffer = newBuffer;
+				capacity = newCapacity;
+				threshold = (int) (capacity * IntStringTable.DEFAULT_LOAD_FACTOR);
+				dataStart = HEADER_SIZE + capacity * SLOT_SIZE;
+				dataEnd = newDataEnd;
+				garbage = 0;
+				modCount++;
+			} catch (IOException | RuntimeException e) {
+				newChannel.close();
+				Files.deleteIfExists(temporary);
+				throw e;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void addGarbage(int bytes) {
+		garbage += bytes;
+		buffer.putInt(GARBAGE_OFFSET, garbage);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		ensureOpen();
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		ensureOpen();
+		return size;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return new SlotEnumeration<Integer>() {
+			@Override
+			Integer element(int slot) {
+				return keyAt(buffer, slot);
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int slot) {
+				return valueAt(offsetAt(buffer, slot));
+			}
+		};
+	}
+
+	@Override
+	public String get(int key) {
+		ensureOpen();
+		int slot = slotOf(key);
+		return slot < 0 ? null : valueAt(offsetAt(buffer, slot));
+	}
+
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		ensureOpen();
+		int offset = append(value);
+		int mask = capacity - 1;
+		int slot = hash(key) & mask;
+		int old;
+		while ((old = offsetAt(buffer, slot)) != 0) {
+			if (keyAt(buffer, slot) == key) {
+				String previous = valueAt(old);
+				setSlot(buffer, slot, key, offset);
+				addGarbage(entrySize(buffer, old));
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		setSlot(buffer, slot, key, offset);
+		buffer.putInt(SIZE_OFFSET, ++size);
+		modCount++;
+		if (size > threshold) {
+			if (capacity << 1 > IntStringTable.MAXIMUM_CAPACITY) {
+				throw new IllegalStateException("Dictionary file is full");
+			}
+			rebuild(capacity << 1, dataEnd - dataStart - garbage);
+		}
+		return null;
+	}
+
+	@Override
+	public String remove(int key) {
+		ensureOpen();
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return null;
+		}
+		int offset = offsetAt(buffer, slot);
+		String old = valueAt(offset);
+		addGarbage(entrySize(buffer, offset));
+		// backward-shift deletion, as in IntStringTable
+		int mask = capacity - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		int nextOffset;
+		while ((nextOffset = offsetAt(buffer, next)) != 0) {
+			int nextKey = keyAt(buffer, next);
+			int home = hash(nextKey) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				setSlot(buffer, gap, nextKey, nextOffset);
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		setSlot(buffer, gap, 0, 0);
+		buffer.putInt(SIZE_OFFSET, --size);
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		ensureOpen();
+		int expectedModCount = modCount;
+		for (int slot = 0; slot < capacity; slot++) {
+			int offset = offsetAt(buffer, slot);
+			if (offset != 0) {
+				action.accept(keyAt(buffer, slot), valueAt(offset));
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		ensureOpen();
+		return new SlotCursor();
+	}
+
+	/**
+	 * Writes all the changes of the mapped file back to the storage device.
+	 */
+	public void force() {
+		ensureOpen();
+		buffer.force();
+	}
+
+	/**
+	 * Writes all the changes back to the file and closes it. After closing,
+	 * every operation of this dictionary throws
+	 * <code>IllegalStateException</code>. Closing a closed dictionary has no
+	 * effect.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer != null) {
+			buffer.force();
+			buffer = null;
+			channel.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		ensureOpen();
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		forEach((key, value) -> {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(key).append('=').append(value);
+		});
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Returns the first occupied slot at or after <code>from</code>, or
+	 * <code>-1</code>.
+	 */
+	private int nextSlot(int from) {
+		for (int slot = from; slot < capacity; slot++) {
+			if (offsetAt(buffer, slot) != 0) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private class SlotCursor implements DictionaryCursor {
+
+		private int expectedModCount;
+
+		private int slot;
+
+		private int next;
+
+		SlotCursor() {
+			reset();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public int nextKey() {
+			ensureOpen();
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next < 0) {
+				throw new NoSuchElementException();
+			}
+			slot = next;
+			next = nextSlot(slot + 1);
+			return keyAt(buffer, slot);
+		}
+
+		@Override
+		public String value() {
+			if (slot < 0) {
+				throw new IllegalStateException();
+			}
+			ensureOpen();
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return valueAt(offsetAt(buffer, slot));
+		}
+
+		@Override
+		public void reset() {
+			ensureOpen();
+			expectedModCount = modCount;
+			slot = -1;
+			next = nextSlot(0);
+		}
+	}
+
+	private abstract class SlotEnumeration<E> implements Enumeration<E> {
+
+		private final int expectedModCount;
+
+		private int slot;
+
+		SlotEnumeration() {
+			ensureOpen();
+			expectedModCount = modCount;
+			slot = nextSlot(0);
+		}
+
+		abstract E element(int slot);
+
+		@Override
+		public boolean hasMoreElements() {
+			return slot >= 0;
+		}
+
+		@Override
+		public E nextElement() {
+			ensureOpen();
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (slot < 0) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			E element = element(slot);
+			slot = nextSlot(slot + 1);
+			return element;
+		}
+	}
+
+}
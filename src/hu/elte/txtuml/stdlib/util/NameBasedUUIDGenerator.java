@@ -0,0 +1,234 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Generates name-based UUIDs for txtUML models: the same name in the same
+ * namespace always yields the same UUID, so imported model elements keep
+ * stable identifiers.
+ * <p>
+ * Version 3 UUIDs are made of the MD5 hash, and version 5 UUIDs of the SHA-1
+ * hash of the 16 bytes of the namespace UUID followed by the name, as
+ * described in RFC 9562. Names given as strings are hashed in UTF-8. Without
+ * a namespace only the name is hashed, like by
+ * <code>java.util.UUID.nameUUIDFromBytes</code>.
+ * <p>
+ * Every thread keeps its own message digests and buffers, so hashing a name
+ * of ASCII characters only allocates the resulting UUID. The batch methods
+ * also look these up only once for all the names.
+ *
+ * @see UUID#nameUUID(UUID, String)
+ */
+public final class NameBasedUUIDGenerator {
+
+	/**
+	 * The namespace of fully qualified domain names.
+	 */
+	public static final UUID NAMESPACE_DNS = new UUIDImplementation(0x6ba7b8109dad11d1L, 0x80b400c04fd430c8L);
+
+	/**
+	 * The namespace of URLs.
+	 */
+	public static final UUID NAMESPACE_URL = new UUIDImplementation(0x6ba7b8119dad11d1L, 0x80b400c04fd430c8L);
+
+	/**
+	 * The namespace of ISO object identifiers.
+	 */
+	public static final UUID NAMESPACE_OID = new UUIDImplementation(0x6ba7b8129dad11d1L, 0x80b400c04fd430c8L);
+
+	/**
+	 * The namespace of X.500 distinguished names.
+	 */
+	public static final UUID NAMESPACE_X500 = new UUIDImplementation(0x6ba7b8149dad11d1L, 0x80b400c04fd430c8L);
+
+	private static final ThreadLocal<Hasher> HASHERS = ThreadLocal.withInitial(Hasher::new);
+
+	private NameBasedUUIDGenerator() {
+	}
+
+	/**
+	 * Returns the version 3 (MD5) UUID of the name in the namespace.
+	 *
+	 * @param namespace
+	 *            the namespace, or <code>null</code>
+	 * @param name
+	 *            the bytes of the name
+	 * @return a name-based UUID
+	 */
+	public static UUID md5UUID(UUID namespace, byte[] name) {
+		Hasher hasher = HASHERS.get();
+		return hasher.hash(hasher.md5, 3, namespace, name, name.length);
+	}
+
+	/**
+	 * Returns the version 3 (MD5) UUID of the name in the namespace.
+	 *
+	 * @param namespace
+	 *            the namespace, or <code>null</code>
+	 * @param name
+	 *            the name, hashed in UTF-8
+	 * @return a name-based UUID
+	 */
+	public static UUID md5UUID(UUID namespace, String name) {
+		Hasher hasher = HASHERS.get();
+		return hasher.hash(hasher.md5, 3, namespace, name);
+	}
+
+	/**
+	 * Returns the version 5 (SHA-1) UUID of the name in the namespace.
+	 *
+	 * @param namespace
+	 *            the namespace, or <code>null</code>
+	 * @param name
+	 *            the bytes of the name
+	 * @return a name-based UUID
+	 */
+	public static UUID sha1UUID(UUID namespace, byte[] name) {
+		Hasher hasher = HASHERS.get();
+		return hasher.hash(hasher.sha1, 5, namespace, name, name.length);
+	}
+
+	/**
+	 * Returns the version 5 (SHA-1) UUID of the name in the namespace.
+	 *
+	 * @param namespace
+	 *            the namespace, or <code>null</code>
+	 * @param name
+	 *            the name, hashed in UTF-8
+	 * @return a name-based UUID
+	 */
+	public static UUID sha1UUID(UUID namespace, String name) {
+		Hasher hasher = HASHERS.get();
+		return hasher.hash(hasher.sha1, 5, namespace, name);
+	}
+
+	/**
+	 * Returns the version 3 (MD5) UUIDs of the names in the namespace.
+	 *
+	 * @param namespace
+	 *            the namespace, or <code>null</code>
+	 * @param names
+	 *            the names, hashed in UTF-8
+	 * @return the name-based UUIDs, in the order of the names
+	 */
+	public static UUID[] md5UUIDs(UUID namespace, String[] names) {
+		Hasher hasher = HASHERS.get();
+		UUID[] uuids = new UUID[names.length];
+		for (int i = 0; i < names.length; i++) {
+			uuids[i] = hasher.hash(hasher.md5, 3, namespace, names[i]);
+		}
+		return uuids;
+	}
+
+	/**
+	 * Returns the version 5 (SHA-1) UUIDs of the names in the namespace.
+	 *
+	 * @param namespace
+	 *            the namespace, or <code>null</code>
+	 * @param names
+	 *            the names, hashed in UTF-8
+	 * @return the name-based UUIDs, in the order of the names
+	 */
+	public static UUID[] sha1UUIDs(UUID namespace, String[] names) {
+		Hasher hasher = HASHERS.get();
+		UUID[] uuids = new UUID[names.length];
+		for (int i = 0; i < names.length; i++) {
+			uuids[i] = hasher.hash(hasher.sha1, 5, namespace, names[i]);
+		}
+		return uuids;
+	}
+
+	/**
+	 * The message digests of a thread, and the buffers of their input and
+	 * output.
+	 */
+	private static final class Hasher {
+
+		/**
+		 * The largest name buffer kept by a thread; longer names are
+		 * encoded into a temporary array.
+		 */
+		private static final int MAXIMUM_NAME_BUFFER = 4096;
+
+		final MessageDigest md5 = digest("MD5");
+
+		final MessageDigest sha1 = digest("SHA-1");
+
+		private final byte[] namespace = new byte[16];
+
+		private final byte[] hash = new byte[20];
+
+		private byte[] name = new byte[256];
+
+		private static MessageDigest digest(String algorithm) {
+			try {
+				return MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				// every Java platform supports MD5 and SHA-1
+				throw new InternalError(algorithm + " not supported", e);
+			}
+		}
+
+		UUID hash(MessageDigest digest, int version, UUID namespace, String name) {
+			int length = name.length();
+			byte[] bytes = this.name;
+			if (bytes.length < length) {
+				bytes = new byte[length];
+				if (length <= MAXIMUM_NAME_BUFFER) {
+					this.name = bytes;
+				}
+			}
+			for (int i = 0; i < length; i++) {
+				char c = name.charAt(i);
+				if (c >= 0x80) {
+					// not ASCII, left to the encoder
+					bytes = name.getBytes(StandardCharsets.UTF_8);
+					length = bytes.length;
+					break;
+				}
+				bytes[i] = (byte) c;
+			}
+			return hash(digest, version, namespace, bytes, length);
+		}
+
+		UUID hash(MessageDigest digest, int version, UUID namespace, byte[] name, int length) {
+			if (namespace != null) {
+				writeLong(namespace.getMostSignificantBits(), 0);
+				writeLong(namespace.getLeastSignificantBits(), 8);
+				digest.update(this.namespace);
+			}
+			digest.update(name, 0, length);
+			try {
+				digest.digest(hash, 0, digest.getDigestLength());
+			} catch (DigestException e) {
+				// the buffer fits both digests
+				throw new IllegalStateException(e);
+			}
+			long mostSigBits = readLong(0);
+			long leastSigBits = readLong(8);
+			// the version, IETF variant
+			mostSigBits = (mostSigBits & ~0xF000L) | (long) version << 12;
+			leastSigBits = (leastSigBits & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+			return new UUIDImplementation(mostSigBits, leastSigBits);
+		}
+
+		private void writeLong(long value, int offset) {
+			for (int i = offset + 7; i >= offset; i--) {
+				namespace[i] = (byte) value;
+				value >>>= 8;
+			}
+		}
+
+		private long readLong(int offset) {
+			long value = 0;
+			for (int i = offset; i < offset + 8; i++) {
+				value = value << 8 | (hash[i] & 0xFF);
+			}
+			return value;
+		}
+	}
+
+}
@@ -0,0 +1,538 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation class of the Dictionary interface which keeps its entries
+ * outside of the Java heap, for dictionaries so large that their objects
+ * would prolong the pauses of the garbage collector.
+ * <p>
+ * The entries are stored in two direct <code>ByteBuffer</code>s, and no Java
+ * object is kept per entry. The index is an open-addressing table like that
+ * of {@link IntStringTable}: every slot holds a key and a reference to its
+ * value, it is probed linearly and entries are removed with backward-shift
+ * deletion. The values are appended to an arena as their length followed by
+ * their UTF-8 bytes; a replaced or removed value is left behind as garbage,
+ * which is dropped when the arena is reallocated. Strings are decoded only
+ * when a value is returned.
+ * <p>
+ * The memory of the buffers is released by {@link #close()}, after which the
+ * dictionary cannot be used any more; an unclosed dictionary is released
+ * only when its buffers are garbage collected. A buffer is limited to 2 GB,
+ * which bounds the number of entries to about 100 million and the total
+ * length of the values to 2 GB. This class is not synchronized, not even
+ * for concurrent reads.
+ *
+ * @see DictionaryImplementation
+ */
+public class OffHeapDictionaryImplementation implements Dictionary, AutoCloseable {
+
+	/**
+	 * The bytes of a slot of the index: the key and the offset of the value
+	 * in the arena plus one, which is zero in an empty slot.
+	 */
+	private static final int SLOT_SIZE = 8;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 27;
+
+	private static final int MINIMUM_ARENA_SIZE = 1024;
+
+	private static final int MAXIMUM_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private ByteBuffer index;
+
+	private int capacity;
+
+	private int threshold;
+
+	private int size;
+
+	private ByteBuffer arena;
+
+	/**
+	 * The end of the values appended to the arena.
+	 */
+	private int arenaEnd;
+
+	/**
+	 * The bytes of the arena taken by replaced or removed values.
+	 */
+	private int garbage;
+
+	private int modCount;
+
+	/**
+	 * Reused to decode the values.
+	 */
+	private byte[] scratch = new byte[64];
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 */
+	public OffHeapDictionaryImplementation() {
+		this(IntStringTable.DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary whose index holds the given number
+	 * of entries without being enlarged.
+	 *
+	 * @param expectedSize
+	 *            the expected number of entries
+	 * @exception IllegalArgumentException
+	 *                if the expected size is negative
+	 */
+	public OffHeapDictionaryImplementation(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + expectedSize);
+		}
+		allocateIndex(Math.min(IntStringTable.capacityFor(expectedSize, LOAD_FACTOR), MAXIMUM_CAPACITY));
+		arena = allocate(MINIMUM_ARENA_SIZE);
+	}
+
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	private void allocateIndex(int capacity) {
+		this.index = allocate(capacity * SLOT_SIZE);
+		this.capacity = capacity;
+		this.threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private void checkOpen() {
+		if (index == null) {
+			throw new IllegalStateException("Dictionary is closed");
+		}
+	}
+
+	/**
+	 * Returns the slot holding the key, or <code>-(slot + 1)</code> of the
+	 * empty slot where it would be inserted.
+	 */
+	private int find(int key) {
+		checkOpen();
+		ByteBuffer index = this.index;
+		int mask = capacity - 1;
+		int slot = IntStringTable.hash(key) & mask;
+		while (index.getInt(slot * SLOT_SIZE + 4) != 0) {
+			if (index.getInt(slot * SLOT_SIZE) == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -(slot + 1);
+	}
+
+	private int referenceAt(int slot) {
+		return index.getInt(slot * SLOT_SIZE + 4);
+	}
+
+	private String valueOf(int reference) {
+		int offset = reference - 1;
+		int length = arena.getInt(offset);
+		byte[] bytes = scratch;
+		if (bytes.length < length) {
+			bytes = new byte[length];
+			if (length <= 4096) {
+				scratch = bytes;
+			}
+		}
+		arena.position(offset + 4);
+		arena.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Appends the encoded value to the arena and returns its reference.
+	 */
+	private int append(byte[] bytes) {
+		int needed = 4 + bytes.length;
+		if (needed > arena.capacity() - arenaEnd) {
+			reallocateArena(needed);
+		}
+		int offset = arenaEnd;
+		arena.putInt(offset, bytes.length);
+		arena.position(offset + 4);
+		arena.put(bytes);
+		arenaEnd = offset + needed;
+		return offset + 1;
+	}
+
+	private void discard(int reference) {
+		garbage += 4 + arena.getInt(reference - 1);
+	}
+
+	/**
+	 * Copies the live values into a new arena with room for at least
+	 * <code>needed</code> more bytes, dropping the garbage.
+	 */
+	private void reallocateArena(int needed) {
+		long live = (long) arenaEnd - garbage;
+		long bytes = Math.max(MINIMUM_ARENA_SIZE, 2 * (live + needed));
+		if (live + needed > MAXIMUM_ARENA_SIZE) {
+			throw new IllegalStateException("Dictionary is full");
+		}
+		ByteBuffer old = arena;
+		ByteBuffer fresh = allocate((int) Math.min(bytes, MAXIMUM_ARENA_SIZE));
+		int end = 0;
+		for (int slot = 0; slot < capacity; slot++) {
+			int reference = referenceAt(slot);
+			if (reference != 0) {
+				int length = 4 + old.getInt(reference - 1);
+				ByteBuffer source = old.duplicate();
+				source.limit(reference - 1 + length).position(reference - 1);
+				fresh.position(end);
+				fresh.put(source);
+				index.putInt(slot * SLOT_SIZE + 4, end + 1);
+				end += length;
+			}
+		}
+		arena = fresh;
+		arenaEnd = end;
+		garbage = 0;
+		release(old);
+	}
+
+	private void resize(int newCapacity) {
+		if (newCapacity > MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("Dictionary is full");
+		}
+		ByteBuffer old = index;
+		int oldCapacity = capacity;
+		allocateIndex(newCapacity);
+		int mask = newCapacity - 1;
+		for (int i = 0; i < oldCapacity; i++) {
+			int reference = old.getInt(i * SLOT_SIZE + 4);
+			if (reference != 0) {
+				int key = old.getInt(i * SLOT_SIZE);
+				int slot = IntStringTable.hash(key) & mask;
+				while (index.getInt(slot * SLOT_SIZE + 4) != 0) {
+					slot = (slot + 1) & mask;
+				}
+				index.putInt(slot * SLOT_SIZE, key);
+				index.putInt(slot * SLOT_SIZE + 4, reference);
+			}
+		}
+		release(old);
+	}
+
+	/**
+	 * Empties the slot and shifts back the following entries of the probe
+	 * sequence which would become unreachable, as in
+	 * {@link OpenHashTable#removeSlot(int)}.
+	 */
+	private void removeSlot(int slot) {
+		ByteBuffer index = this.index;
+		int mask = capacity - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		int reference;
+		while ((reference = index.getInt(next * SLOT_SIZE + 4)) != 0) {
+			int key = index.getInt(next * SLOT_SIZE);
+			int home = IntStringTable.hash(key) & mask;
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				index.putInt(gap * SLOT_SIZE, key);
+				index.putInt(gap * SLOT_SIZE + 4, reference);
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		index.putInt(gap * SLOT_SIZE, 0);
+		index.putInt(gap * SLOT_SIZE + 4, 0);
+		size--;
+		modCount++;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String get(int key) {
+		int slot = find(key);
+		return slot < 0 ? null : valueOf(referenceAt(slot));
+	}
+
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		int slot = find(key);
+		if (slot < 0 && size >= threshold) {
+			// enlarge the index before writing anything, so that a full
+			// dictionary is left unchanged
+			resize(capacity << 1);
+			slot = find(key);
+		}
+		String old = slot >= 0 ? valueOf(referenceAt(slot)) : null;
+		int reference = append(value.getBytes(StandardCharsets.UTF_8));
+		if (slot >= 0) {
+			// appending may have reallocated the arena and moved the old value
+			discard(referenceAt(slot));
+			index.putInt(slot * SLOT_SIZE + 4, reference);
+			return old;
+		}
+		slot = -(slot + 1);
+		index.putInt(slot * SLOT_SIZE, key);
+		index.putInt(slot * SLOT_SIZE + 4, reference);
+		modCount++;
+		size++;
+		return null;
+	}
+
+	@Override
+	public String remove(int key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return null;
+		}
+		int reference = referenceAt(slot);
+		String old = valueOf(reference);
+		discard(reference);
+		removeSlot(slot);
+		return old;
+	}
+
+	/**
+	 * Releases the memory of this dictionary. Later operations throw
+	 * <code>IllegalStateException</code>, except <code>size</code> and
+	 * <code>isEmpty</code>, which report an empty dictionary. Closing a
+	 * closed dictionary has no effect.
+	 */
+	@Override
+	public void close() {
+		if (index == null) {
+			return;
+		}
+		ByteBuffer index = this.index;
+		ByteBuffer arena = this.arena;
+		this.index = null;
+		this.arena = null;
+		size = 0;
+		modCount++;
+		release(index);
+		release(arena);
+	}
+
+	/**
+	 * Returns the number of bytes of native memory allocated by this
+	 * dictionary.
+	 *
+	 * @return the capacity of the buffers of this dictionary, or
+	 *         <code>0</code> if it is closed
+	 */
+	public long allocatedBytes() {
+		return index == null ? 0 : (long) index.capacity() + arena.capacity();
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		checkOpen();
+		int expectedModCount = modCount;
+		for (int slot = 0; slot < capacity; slot++) {
+			int reference = referenceAt(slot);
+			if (reference != 0) {
+				action.accept(index.getInt(slot * SLOT_SIZE), valueOf(reference));
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		checkOpen();
+		return new IndexCursor();
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		DictionaryCursor cursor = cursor();
+		return new Enumeration<Integer>() {
+			@Override
+			public boolean hasMoreElements() {
+				return cursor.hasNext();
+			}
+
+			@Override
+			public Integer nextElement() {
+				if (!cursor.hasNext()) {
+					throw new NoSuchElementException("Dictionary Enumerator");
+				}
+				return cursor.nextKey();
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		DictionaryCursor cursor = cursor();
+		return new Enumeration<String>() {
+			@Override
+			public boolean hasMoreElements() {
+				return cursor.hasNext();
+			}
+
+			@Override
+			public String nextElement() {
+				if (!cursor.hasNext()) {
+					throw new NoSuchElementException("Dictionary Enumerator");
+				}
+				cursor.nextKey();
+				return cursor.value();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		if (index == null) {
+			return "{}";
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		forEach((key, value) -> {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(key).append('=').append(value);
+		});
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Frees the memory of a direct buffer at once, instead of when the buffer
+	 * is garbage collected, if the platform allows it.
+	 */
+	private static void release(ByteBuffer buffer) {
+		try {
+			Cleaner.INSTANCE.clean(buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// the buffer is freed when it becomes unreachable
+		}
+	}
+
+	/**
+	 * Frees direct buffers through <code>sun.misc.Unsafe.invokeCleaner</code>
+	 * on Java 9 and later, or through their cleaner on Java 8.
+	 */
+	private static final class Cleaner {
+
+		static final Cleaner INSTANCE = new Cleaner();
+
+		private final Object unsafe;
+
+		private final Method invokeCleaner;
+
+		private Cleaner() {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			try {
+				Class<?> type = Class.forName("sun.misc.Unsafe");
+				invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+				Field field = type.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafe = field.get(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				invokeCleaner = null;
+			}
+			this.unsafe = unsafe;
+			this.invokeCleaner = invokeCleaner;
+		}
+
+		void clean(ByteBuffer buffer) throws ReflectiveOperationException {
+			if (invokeCleaner != null) {
+				invokeCleaner.invoke(unsafe, buffer);
+			} else {
+				Method cleaner = buffer.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				Object clean = cleaner.invoke(buffer);
+				if (clean != null) {
+					clean.getClass().getMethod("clean").invoke(clean);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walks the occupied slots of the index, failing fast if the dictionary
+	 * is structurally modified meanwhile.
+	 */
+	private class IndexCursor implements DictionaryCursor {
+
+		private int expectedModCount;
+
+		private int slot;
+
+		private int next;
+
+		IndexCursor() {
+			reset();
+		}
+
+		private int nextSlot(int from) {
+			for (int i = from; i < capacity; i++) {
+				if (referenceAt(i) != 0) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public int nextKey() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next < 0) {
+				throw new NoSuchElementException();
+			}
+			slot = next;
+			next = nextSlot(slot + 1);
+			return index.getInt(slot * SLOT_SIZE);
+		}
+
+		@Override
+		public String value() {
+			if (slot < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return valueOf(referenceAt(slot));
+		}
+
+		@Override
+		public void reset() {
+			checkOpen();
+			expectedModCount = modCount;
+			slot = -1;
+			next = nextSlot(0);
+		}
+	}
+
+}
@@ -0,0 +1,413 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * The engine shared by the open-addressing hash tables of the dictionaries,
+ * which store their keys in primitive or otherwise specialized arrays.
+ * <p>
+ * Collisions are resolved by linear probing and entries are removed with
+ * backward-shift deletion, so no tombstones are left behind. A slot is empty
+ * if and only if its value is <code>null</code>, which is why
+ * <code>null</code> values can never be stored. The capacity is always a
+ * power of two.
+ * <p>
+ * This class owns the values, the size and the growth of the table, while
+ * the subclasses own the key arrays and implement the lookups, so that the
+ * key of a lookup is never boxed. This class is not synchronized.
+ * <p>
+ * A subclass may grow its table incrementally: the full table is then
+ * replaced by one twice as large, and the entries of the old one are moved
+ * over a few slots at a time by the following modifications, so that no
+ * single operation rehashes the whole table. Until the migration ends, the
+ * old arrays are kept read-only: the slots before <code>migrated</code>
+ * have been moved, and an entry of the rest which is replaced or removed is
+ * overwritten by {@link #TOMBSTONE}, so that the probe sequences passing it
+ * stay intact. The lookups of the subclass must search both tables
+ * meanwhile. Traversals finish the migration first.
+ *
+ * @see IntStringTable
+ */
+abstract class OpenHashTable {
+
+	static final int DEFAULT_EXPECTED_SIZE = 11;
+
+	static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * The least number of old slots migrated by a modification during an
+	 * incremental resize.
+	 */
+	static final int MIGRATION_STEP = 16;
+
+	/**
+	 * Marks an entry of the old table which has been replaced or removed
+	 * during an incremental resize.
+	 */
+	static final Object TOMBSTONE = new Object();
+
+	final float loadFactor;
+
+	Object[] values;
+
+	int size;
+
+	int threshold;
+
+	/**
+	 * Incremented on every structural modification, used by the enumerations
+	 * to fail fast.
+	 */
+	int modCount;
+
+	/**
+	 * The counters of the operations, or <code>null</code> if the
+	 * statistics of the table are disabled.
+	 */
+	TableStatistics statistics;
+
+	/**
+	 * The key arrays of the table being migrated, or <code>null</code>.
+	 */
+	Object oldKeys;
+
+	/**
+	 * The values of the table being migrated, or <code>null</code> if no
+	 * incremental resize is in progress.
+	 */
+	Object[] oldValues;
+
+	/**
+	 * The number of leading slots of the old table already migrated.
+	 */
+	int migrated;
+
+	/**
+	 * The number of old slots migrated by each modification.
+	 */
+	private int migrationStep;
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries the table should hold without resizing
+	 * @param loadFactor
+	 *            the maximal ratio of used slots, strictly between 0 and 1
+	 * @throws IllegalArgumentException
+	 *             if the expected size is negative or the load factor is out
+	 *             of range
+	 */
+	OpenHashTable(int expectedSize, float loadFactor) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + expectedSize);
+		}
+		if (!(loadFactor > 0 && loadFactor < 1)) {
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		}
+		this.loadFactor = loadFactor;
+		allocate(capacityFor(expectedSize, loadFactor));
+	}
+
+	/**
+	 * Returns the smallest power of two capacity which holds
+	 * <code>expectedSize</code> entries under the given load factor.
+	 */
+	static int capacityFor(int expectedSize, float loadFactor) {
+		long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+		if (needed >= MAXIMUM_CAPACITY) {
+			return MAXIMUM_CAPACITY;
+		}
+		int capacity = Integer.highestOneBit((int) needed);
+		if (capacity < needed) {
+			capacity <<= 1;
+		}
+		return Math.max(capacity, 2);
+	}
+
+	/**
+	 * Replaces the key arrays with empty ones of the given capacity. Called
+	 * from the constructor of this class, before the field initializers of
+	 * the subclass run.
+	 */
+	abstract void allocateKeys(int capacity);
+
+	/**
+	 * Returns the current key arrays, to be passed to {@link #hashAt} and
+	 * {@link #copyKey}.
+	 */
+	abstract Object keyArrays();
+
+	/**
+	 * Returns the hash of the key stored in the given slot of the given key
+	 * arrays.
+	 */
+	abstract int hashAt(Object keys, int slot);
+
+	/**
+	 * Copies the key from a slot of the given key arrays to a slot of the
+	 * current ones.
+	 */
+	abstract void copyKey(Object keys, int from, int to);
+
+	/**
+	 * Releases the key of a slot which has just been emptied, if the key
+	 * arrays hold references.
+	 */
+	void clearKey(int slot) {
+	}
+
+	/**
+	 * Appends the key stored in the given slot to the string.
+	 */
+	abstract void appendKey(StringBuilder sb, int slot);
+
+	private void allocate(int capacity) {
+		allocateKeys(capacity);
+		values = new Object[capacity];
+		threshold = (int) (capacity * loadFactor);
+	}
+
+	/**
+	 * Completes the insertion of a new entry, whose key and value the
+	 * subclass has stored in an empty slot.
+	 */
+	void added() {
+		modCount++;
+		if (++size > threshold) {
+			grow();
+		}
+	}
+
+	/**
+	 * Doubles the capacity of the table at once; subclasses which can search
+	 * both tables during a migration resize incrementally instead.
+	 */
+	void grow() {
+		resize(values.length << 1);
+	}
+
+	/**
+	 * Replaces the table with an empty one of the given capacity, and starts
+	 * migrating the entries of the current one to it.
+	 */
+	void startMigration(int newCapacity) {
+		finishMigration();
+		if (newCapacity > MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("Dictionary is full");
+		}
+		long start = statistics == null ? 0 : System.nanoTime();
+		oldKeys = keyArrays();
+		oldValues = values;
+		migrated = 0;
+		allocate(newCapacity);
+		// finish well before the new table needs to grow
+		int headroom = Math.max(1, threshold - size);
+		migrationStep = Math.max(MIGRATION_STEP, 2 * ((oldValues.length + headroom - 1) / headroom));
+		modCount++;
+		if (statistics != null) {
+			statistics.recordResize(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Migrates the next few slots of the old table, if an incremental resize
+	 * is in progress. Called by the modifications of the subclass before
+	 * they search the tables.
+	 */
+	void migrate() {
+		if (oldValues != null) {
+			migrate(migrationStep);
+		}
+	}
+
+	/**
+	 * Migrates all the remaining slots of the old table, if an incremental
+	 * resize is in progress.
+	 */
+	void finishMigration() {
+		if (oldValues != null) {
+			migrate(oldValues.length);
+		}
+	}
+
+	private void migrate(int count) {
+		long start = statistics == null ? 0 : System.nanoTime();
+		Object oldKeys = this.oldKeys;
+		Object[] oldValues = this.oldValues;
+		Object[] values = this.values;
+		int mask = values.length - 1;
+		int end = (int) Math.min(oldValues.length, (long) migrated + count);
+		for (int i = migrated; i < end; i++) {
+			Object value = oldValues[i];
+			if (value != null && value != TOMBSTONE) {
+				int slot = hashAt(oldKeys, i) & mask;
+				while (values[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				copyKey(oldKeys, i, slot);
+				values[slot] = value;
+			}
+		}
+		migrated = end;
+		if (end == oldValues.length) {
+			this.oldKeys = null;
+			this.oldValues = null;
+		}
+		if (statistics != null) {
+			statistics.resizeNanos += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Shrinks the table to the smallest capacity which holds its entries
+	 * under its load factor.
+	 */
+	void trimToSize() {
+		int capacity = capacityFor(size, loadFactor);
+		if (capacity < values.length) {
+			resize(capacity);
+		} else {
+			finishMigration();
+		}
+	}
+
+	/**
+	 * Empties the given slot and shifts back the following entries of the
+	 * probe sequence which would become unreachable.
+	 */
+	void removeSlot(int slot) {
+		Object keys = keyArrays();
+		Object[] values = this.values;
+		int mask = values.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (values[next] != null) {
+			int home = hashAt(keys, next) & mask;
+			// move the entry into the gap if the gap lies cyclically
+			// between its home slot and its current slot
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				copyKey(keys, next, gap);
+				values[gap] = values[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values[gap] = null;
+		clearKey(gap);
+		size--;
+		modCount++;
+	}
+
+	/**
+	 * Enlarges the table at once, if necessary, so that it holds
+	 * <code>expectedSize</code> entries without further resizing.
+	 */
+	void ensureCapacity(int expectedSize) {
+		if (expectedSize > threshold) {
+			resize(capacityFor(expectedSize, loadFactor));
+		}
+	}
+
+	/**
+	 * Rehashes all the entries into a table of the given capacity at once.
+	 */
+	void resize(int newCapacity) {
+		if (newCapacity > MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("Dictionary is full");
+		}
+		finishMigration();
+		long start = statistics == null ? 0 : System.nanoTime();
+		Object oldKeys = keyArrays();
+		Object[] oldValues = values;
+		allocate(newCapacity);
+		Object[] values = this.values;
+		int mask = newCapacity - 1;
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int slot = hashAt(oldKeys, i) & mask;
+				while (values[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				copyKey(oldKeys, i, slot);
+				values[slot] = oldValues[i];
+			}
+		}
+		modCount++;
+		if (statistics != null) {
+			statistics.recordResize(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns the first occupied slot at or after <code>from</code>, or
+	 * <code>-1</code> if there is none.
+	 */
+	int nextSlot(int from) {
+		Object[] values = this.values;
+		for (int i = from; i < values.length; i++) {
+			if (values[i] != null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		finishMigration();
+		if (size == 0) {
+			return "{}";
+		}
+		StringBuilder sb = new StringBuilder(size * 16);
+		sb.append('{');
+		for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			appendKey(sb, slot);
+			sb.append('=').append(values[slot]);
+		}
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Enumerates the occupied slots of the table, failing fast if the table
+	 * is structurally modified meanwhile.
+	 */
+	abstract class SlotEnumeration<E> implements Enumeration<E> {
+
+		private final int expectedModCount;
+
+		private int slot;
+
+		SlotEnumeration() {
+			finishMigration();
+			expectedModCount = modCount;
+			slot = nextSlot(0);
+		}
+
+		abstract E element(int slot);
+
+		@Override
+		public boolean hasMoreElements() {
+			return slot >= 0;
+		}
+
+		@Override
+		public E nextElement() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (slot < 0) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			E element = element(slot);
+			slot = nextSlot(slot + 1);
+			return element;
+		}
+	}
+
+}
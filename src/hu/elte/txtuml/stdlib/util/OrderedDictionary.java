@@ -0,0 +1,65 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * A {@link Dictionary} which keeps its entries in ascending key order. Its
+ * enumerations, cursor and <code>forEach</code> visit the entries in
+ * ascending key order, and it answers nearest-key and range queries in
+ * logarithmic time instead of scanning all the entries.
+ *
+ * @see OrderedDictionaryImplementation
+ */
+public interface OrderedDictionary extends Dictionary {
+
+	/**
+	 * Returns the greatest key in this dictionary less than or equal to the
+	 * given key.
+	 *
+	 * @param key
+	 *            the key to look up
+	 * @return the greatest key less than or equal to <code>key</code>, or
+	 *         <code>null</code> if there is no such key
+	 */
+	public Integer floorKey(int key);
+
+	/**
+	 * Returns the least key in this dictionary greater than or equal to the
+	 * given key.
+	 *
+	 * @param key
+	 *            the key to look up
+	 * @return the least key greater than or equal to <code>key</code>, or
+	 *         <code>null</code> if there is no such key
+	 */
+	public Integer ceilingKey(int key);
+
+	/**
+	 * Returns a new dictionary holding the entries of this dictionary whose
+	 * keys lie between <code>fromKey</code> and <code>toKey</code>, both
+	 * inclusive. The result does not change when this dictionary is modified.
+	 * It takes O(log n + k) time for a range of k entries.
+	 *
+	 * @param fromKey
+	 *            the lowest key of the range
+	 * @param toKey
+	 *            the highest key of the range
+	 * @return the entries of the range; empty if <code>fromKey</code> is
+	 *         greater than <code>toKey</code>
+	 */
+	public OrderedDictionary subRange(int fromKey, int toKey);
+
+	/**
+	 * Performs the given action, in ascending key order, for each entry whose
+	 * key lies between <code>fromKey</code> and <code>toKey</code>, both
+	 * inclusive. Nothing is copied: it takes O(log n + k) time for a range of
+	 * k entries.
+	 *
+	 * @param fromKey
+	 *            the lowest key of the range
+	 * @param toKey
+	 *            the highest key of the range
+	 * @param action
+	 *            the action to be performed for each entry of the range
+	 */
+	public void forEach(int fromKey, int toKey, IntStringConsumer action);
+
+}
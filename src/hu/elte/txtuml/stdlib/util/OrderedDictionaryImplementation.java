@@ -0,0 +1,381 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation class of the OrderedDictionary interface for txtUML models.
+ * <p>
+ * The entries are kept in two parallel arrays sorted by key: primitive
+ * <code>int</code> keys and their <code>String</code> values. Lookups and
+ * nearest-key queries use binary search, and a range of k entries is found in
+ * O(log n + k) time. Inserting or removing a single entry shifts the tail of
+ * the arrays, so this class suits dictionaries which are read much more often
+ * than written; bulk operations merge in a single pass instead. This class is
+ * not synchronized.
+ *
+ * @see OrderedDictionary
+ */
+public class OrderedDictionaryImplementation implements OrderedDictionary {
+
+	private static final int DEFAULT_CAPACITY = 10;
+
+	private int[] keys;
+
+	private String[] values;
+
+	private int size;
+
+	private int modCount;
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 */
+	public OrderedDictionaryImplementation() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary which holds the given number of
+	 * entries without enlarging its arrays.
+	 *
+	 * @param expectedSize
+	 *            the expected number of entries
+	 * @exception IllegalArgumentException
+	 *                if the expected size is negative
+	 */
+	public OrderedDictionaryImplementation(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + expectedSize);
+		}
+		keys = new int[expectedSize];
+		values = new String[expectedSize];
+	}
+
+	private OrderedDictionaryImplementation(int[] keys, String[] values, int size) {
+		this.keys = keys;
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the index of the key, or <code>-(insertion point) - 1</code> if
+	 * the key is not in this dictionary.
+	 */
+	private int indexOf(int key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * Returns the index of the first key greater than or equal to the given
+	 * key.
+	 */
+	private int lowerBound(int key) {
+		int index = indexOf(key);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > keys.length) {
+			int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, keys.length + (keys.length >> 1) + 1L));
+			keys = Arrays.copyOf(keys, newCapacity);
+			values = Arrays.copyOf(values, newCapacity);
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return new OrderedEnumeration<Integer>() {
+			@Override
+			Integer element(int index) {
+				return keys[index];
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return new OrderedEnumeration<String>() {
+			@Override
+			String element(int index) {
+				return values[index];
+			}
+		};
+	}
+
+	@Override
+	public String get(int key) {
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : null;
+	}
+
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		int index = indexOf(key);
+		if (index >= 0) {
+			String old = values[index];
+			values[index] = value;
+			return old;
+		}
+		index = -index - 1;
+		ensureCapacity(size + 1);
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(values, index, values, index + 1, size - index);
+		keys[index] = key;
+		values[index] = value;
+		size++;
+		modCount++;
+		return null;
+	}
+
+	@Override
+	public String remove(int key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		String old = values[index];
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		values[--size] = null;
+		modCount++;
+		return old;
+	}
+
+	/**
+	 * Maps each key of <code>keys</code> to the value at the same index of
+	 * <code>values</code>. The new entries are sorted and merged with the
+	 * existing ones in a single pass, taking O(n + m log m) time instead of
+	 * shifting the arrays for every key.
+	 */
+	@Override
+	public String[] putAll(int[] keys, String[] values) {
+		IntStringTable.checkEntries(keys, values);
+		int m = keys.length;
+		String[] previous = new String[m];
+		if (m == 0) {
+			return previous;
+		}
+		// sort the indices of the new entries by key, keeping the original
+		// order of equal keys
+		long[] order = new long[m];
+		for (int i = 0; i < m; i++) {
+			order[i] = ((long) keys[i] << 32) | i;
+		}
+		Arrays.sort(order);
+
+		int[] mergedKeys = new int[Math.max(this.keys.length, size + m)];
+		String[] mergedValues = new String[mergedKeys.length];
+		int merged = 0;
+		int old = 0;
+		int i = 0;
+		while (i < m) {
+			int key = (int) (order[i] >> 32);
+			while (old < size && this.keys[old] < key) {
+				mergedKeys[merged] = this.keys[old];
+				mergedValues[merged++] = this.values[old++];
+			}
+			String current = null;
+			if (old < size && this.keys[old] == key) {
+				current = this.values[old++];
+			}
+			// later occurrences of the same key see the value of the earlier
+			for (; i < m && (int) (order[i] >> 32) == key; i++) {
+				int index = (int) order[i];
+				previous[index] = current;
+				current = values[index];
+			}
+			mergedKeys[merged] = key;
+			mergedValues[merged++] = current;
+		}
+		int rest = size - old;
+		System.arraycopy(this.keys, old, mergedKeys, merged, rest);
+		System.arraycopy(this.values, old, mergedValues, merged, rest);
+		this.keys = mergedKeys;
+		this.values = mergedValues;
+		size = merged + rest;
+		modCount++;
+		return previous;
+	}
+
+	@Override
+	public String[] removeAll(int[] keys) {
+		String[] removed = new String[keys.length];
+		boolean found = false;
+		for (int i = 0; i < keys.length; i++) {
+			int index = indexOf(keys[i]);
+			if (index >= 0 && values[index] != null) {
+				removed[i] = values[index];
+				values[index] = null;
+				found = true;
+			}
+		}
+		if (found) {
+			// compact the entries left in place in a single pass
+			int kept = 0;
+			for (int index = 0; index < size; index++) {
+				if (values[index] != null) {
+					this.keys[kept] = this.keys[index];
+					values[kept++] = values[index];
+				}
+			}
+			Arrays.fill(values, kept, size, null);
+			size = kept;
+			modCount++;
+		}
+		return removed;
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		forEachIndex(0, size, action);
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		return new OrderedCursor();
+	}
+
+	@Override
+	public Integer floorKey(int key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			index = -index - 2;
+		}
+		return index >= 0 ? keys[index] : null;
+	}
+
+	@Override
+	public Integer ceilingKey(int key) {
+		int index = lowerBound(key);
+		return index < size ? keys[index] : null;
+	}
+
+	@Override
+	public OrderedDictionary subRange(int fromKey, int toKey) {
+		if (fromKey > toKey) {
+			return new OrderedDictionaryImplementation();
+		}
+		int from = lowerBound(fromKey);
+		int to = toKey == Integer.MAX_VALUE ? size : lowerBound(toKey + 1);
+		return new OrderedDictionaryImplementation(Arrays.copyOfRange(keys, from, to),
+				Arrays.copyOfRange(values, from, to), to - from);
+	}
+
+	@Override
+	public void forEach(int fromKey, int toKey, IntStringConsumer action) {
+		if (fromKey <= toKey) {
+			int from = lowerBound(fromKey);
+			int to = toKey == Integer.MAX_VALUE ? size : lowerBound(toKey + 1);
+			forEachIndex(from, to, action);
+		}
+	}
+
+	private void forEachIndex(int from, int to, IntStringConsumer action) {
+		int expectedModCount = modCount;
+		for (int index = from; index < to; index++) {
+			action.accept(keys[index], values[index]);
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(size * 16);
+		sb.append('{');
+		for (int index = 0; index < size; index++) {
+			if (index > 0) {
+				sb.append(", ");
+			}
+			sb.append(keys[index]).append('=').append(values[index]);
+		}
+		return sb.append('}').toString();
+	}
+
+	private class OrderedCursor implements DictionaryCursor {
+
+		private int expectedModCount;
+
+		private int index;
+
+		OrderedCursor() {
+			reset();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index + 1 < size;
+		}
+
+		@Override
+		public int nextKey() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (index + 1 >= size) {
+				throw new NoSuchElementException();
+			}
+			return keys[++index];
+		}
+
+		@Override
+		public String value() {
+			if (index < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return values[index];
+		}
+
+		@Override
+		public void reset() {
+			expectedModCount = modCount;
+			index = -1;
+		}
+	}
+
+	private abstract class OrderedEnumeration<E> implements Enumeration<E> {
+
+		private final int expectedModCount = modCount;
+
+		private int index;
+
+		abstract E element(int index);
+
+		@Override
+		public boolean hasMoreElements() {
+			return index < size;
+		}
+
+		@Override
+		public E nextElement() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (index >= size) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			return element(index++);
+		}
+	}
+
+}
@@ -0,0 +1,514 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation class of the Dictionary interface backed by a persistent
+ * hash array mapped trie, which can take snapshots of itself in constant
+ * time.
+ * <p>
+ * The entries are stored in a tree of nodes with up to 32 branches, selected
+ * by five bits of the hash of the key at each level. A snapshot shares the
+ * whole tree with the dictionary; afterwards the dictionary copies the nodes
+ * on the path to every entry it modifies before changing them, so the cost
+ * of a write is at most seven small node copies, and the snapshot never sees
+ * the change. Nodes created since the latest snapshot are not shared, and
+ * they are modified in place.
+ * <p>
+ * Snapshots are read-only: their mutator methods throw
+ * <code>UnsupportedOperationException</code>. A snapshot is never modified,
+ * but its nodes may have been modified in place before it was taken, and
+ * their fields are not final, so it must be published safely: once handed
+ * to other threads through a synchronized or <code>volatile</code> access,
+ * such as a concurrent collection, it can be read by any number of them.
+ * The dictionary itself is not synchronized.
+ *
+ * @see Dictionary#snapshot()
+ */
+public class PersistentDictionaryImplementation implements Dictionary {
+
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	/**
+	 * The maximum depth of the tree: the hash of a key has 32 bits, and the
+	 * hashes of different keys are different.
+	 */
+	private static final int MAXIMUM_DEPTH = (32 + BITS - 1) / BITS;
+
+	private static final Node EMPTY = new Node(null, 0, 0, new int[0], new String[0], new Node[0]);
+
+	private final boolean readOnly;
+
+	/**
+	 * The owner token of the nodes this dictionary may modify in place;
+	 * replaced by a new one whenever a snapshot is taken.
+	 */
+	private Object edit;
+
+	private Node root;
+
+	private int size;
+
+	private int modCount;
+
+	/**
+	 * The value replaced or removed by the latest put or remove.
+	 */
+	private String previous;
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 */
+	public PersistentDictionaryImplementation() {
+		this(EMPTY, 0, false);
+	}
+
+	private PersistentDictionaryImplementation(Node root, int size, boolean readOnly) {
+		this.root = root;
+		this.size = size;
+		this.readOnly = readOnly;
+		this.edit = readOnly ? null : new Object();
+	}
+
+	/**
+	 * Returns an immutable snapshot of the current contents of this
+	 * dictionary in constant time. Later modifications of this dictionary do
+	 * not affect the snapshot.
+	 *
+	 * @return  a read-only dictionary holding the current entries of this
+	 *          dictionary.
+	 */
+	@Override
+	public Dictionary snapshot() {
+		if (readOnly) {
+			return this;
+		}
+		edit = new Object();
+		return new PersistentDictionaryImplementation(root, size, true);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Enumeration<Integer> keys() {
+		return new NodeEnumeration<Integer>() {
+			@Override
+			Integer element(int key, String value) {
+				return key;
+			}
+		};
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return new NodeEnumeration<String>() {
+			@Override
+			String element(int key, String value) {
+				return value;
+			}
+		};
+	}
+
+	@Override
+	public String get(int key) {
+		int hash = IntStringTable.hash(key);
+		Node node = root;
+		for (int shift = 0;; shift += BITS) {
+			int bit = bit(hash, shift);
+			if ((node.dataMap & bit) != 0) {
+				int index = index(node.dataMap, bit);
+				return node.keys[index] == key ? node.values[index] : null;
+			}
+			if ((node.nodeMap & bit) == 0) {
+				return null;
+			}
+			node = node.nodes[index(node.nodeMap, bit)];
+		}
+	}
+
+	@Override
+	public String put(int key, String value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		checkWritable();
+		previous = null;
+		root = put(root, key, IntStringTable.hash(key), value, 0);
+		if (previous == null) {
+			size++;
+			modCount++;
+		}
+		return previous;
+	}
+
+	@Override
+	public String remove(int key) {
+		checkWritable();
+		previous = null;
+		root = remove(root, key, IntStringTable.hash(key), 0);
+		if (previous != null) {
+			size--;
+			modCount++;
+		}
+		return previous;
+	}
+
+	@Override
+	public void forEach(IntStringConsumer action) {
+		int expectedModCount = modCount;
+		forEach(root, action, expectedModCount);
+	}
+
+	private void forEach(Node node, IntStringConsumer action, int expectedModCount) {
+		for (int i = 0; i < node.keys.length; i++) {
+			action.accept(node.keys[i], node.values[i]);
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+		for (Node child : node.nodes) {
+			forEach(child, action, expectedModCount);
+		}
+	}
+
+	@Override
+	public DictionaryCursor cursor() {
+		return new NodeCursor();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		forEach((key, value) -> {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(key).append('=').append(value);
+		});
+		return sb.append('}').toString();
+	}
+
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("Dictionary snapshot is read-only");
+		}
+	}
+
+	private static int bit(int hash, int shift) {
+		return 1 << ((hash >>> shift) & MASK);
+	}
+
+	private static int index(int bitmap, int bit) {
+		return Integer.bitCount(bitmap & (bit - 1));
+	}
+
+	/**
+	 * Returns the node itself if this dictionary may modify it in place,
+	 * otherwise a copy of it which it may.
+	 */
+	private Node editable(Node node) {
+		if (node.edit == edit) {
+			return node;
+		}
+		return new Node(edit, node.dataMap, node.nodeMap, node.keys.clone(), node.values.clone(),
+				node.nodes.clone());
+	}
+
+	/**
+	 * Returns the child array of the node to be used by a new node of this
+	 * dictionary, which must not share it with a node it may not modify.
+	 */
+	private Node[] ownNodes(Node node) {
+		return node.edit == edit ? node.nodes : node.nodes.clone();
+	}
+
+	private Node put(Node node, int key, int hash, String value, int shift) {
+		int bit = bit(hash, shift);
+		if ((node.dataMap & bit) != 0) {
+			int index = index(node.dataMap, bit);
+			int otherKey = node.keys[index];
+			if (otherKey == key) {
+				previous = node.values[index];
+				Node editable = editable(node);
+				editable.values[index] = value;
+				return editable;
+			}
+			// the two keys share this branch: move both to a new subtree
+			Node child = merge(otherKey, node.values[index], IntStringTable.hash(otherKey), key, value, hash,
+					shift + BITS);
+			return dataToNode(node, bit, index, child);
+		}
+		if ((node.nodeMap & bit) != 0) {
+			int index = index(node.nodeMap, bit);
+			Node child = node.nodes[index];
+			Node newChild = put(child, key, hash, value, shift + BITS);
+			if (newChild == child) {
+				return node;
+			}
+			Node editable = editable(node);
+			editable.nodes[index] = newChild;
+			return editable;
+		}
+		int index = index(node.dataMap, bit);
+		int length = node.keys.length;
+		int[] keys = new int[length + 1];
+		String[] values = new String[length + 1];
+		System.arraycopy(node.keys, 0, keys, 0, index);
+		System.arraycopy(node.values, 0, values, 0, index);
+		keys[index] = key;
+		values[index] = value;
+		System.arraycopy(node.keys, index, keys, index + 1, length - index);
+		System.arraycopy(node.values, index, values, index + 1, length - index);
+		return new Node(edit, node.dataMap | bit, node.nodeMap, keys, values, ownNodes(node));
+	}
+
+	private Node merge(int key1, String value1, int hash1, int key2, String value2, int hash2, int shift) {
+		int fragment1 = (hash1 >>> shift) & MASK;
+		int fragment2 = (hash2 >>> shift) & MASK;
+		if (fragment1 == fragment2) {
+			Node child = merge(key1, value1, hash1, key2, value2, hash2, shift + BITS);
+			return new Node(edit, 0, 1 << fragment1, new int[0], new String[0], new Node[] { child });
+		}
+		if (fragment1 < fragment2) {
+			return new Node(edit, (1 << fragment1) | (1 << fragment2), 0, new int[] { key1, key2 },
+					new String[] { value1, value2 }, new Node[0]);
+		}
+		return new Node(edit, (1 << fragment1) | (1 << fragment2), 0, new int[] { key2, key1 },
+				new String[] { value2, value1 }, new Node[0]);
+	}
+
+	/**
+	 * Returns a copy of the node with the entry at the given data index
+	 * replaced by the given child node.
+	 */
+	private Node dataToNode(Node node, int bit, int dataIndex, Node child) {
+		int length = node.keys.length;
+		int[] keys = new int[length - 1];
+		String[] values = new String[length - 1];
+		System.arraycopy(node.keys, 0, keys, 0, dataIndex);
+		System.arraycopy(node.values, 0, values, 0, dataIndex);
+		System.arraycopy(node.keys, dataIndex + 1, keys, dataIndex, length - dataIndex - 1);
+		System.arraycopy(node.values, dataIndex + 1, values, dataIndex, length - dataIndex - 1);
+		int nodeIndex = index(node.nodeMap, bit);
+		int count = node.nodes.length;
+		Node[] nodes = new Node[count + 1];
+		System.arraycopy(node.nodes, 0, nodes, 0, nodeIndex);
+		nodes[nodeIndex] = child;
+		System.arraycopy(node.nodes, nodeIndex, nodes, nodeIndex + 1, count - nodeIndex);
+		return new Node(edit, node.dataMap ^ bit, node.nodeMap | bit, keys, values, nodes);
+	}
+
+	/**
+	 * Returns a copy of the node with the child node at the given branch
+	 * replaced by its only entry.
+	 */
+	private Node nodeToData(Node node, int bit, int key, String value) {
+		int nodeIndex = index(node.nodeMap, bit);
+		int count = node.nodes.length;
+		Node[] nodes = new Node[count - 1];
+		System.arraycopy(node.nodes, 0, nodes, 0, nodeIndex);
+		System.arraycopy(node.nodes, nodeIndex + 1, nodes, nodeIndex, count - nodeIndex - 1);
+		int dataIndex = index(node.dataMap, bit);
+		int length = node.keys.length;
+		int[] keys = new int[length + 1];
+		String[] values = new String[length + 1];
+		System.arraycopy(node.keys, 0, keys, 0, dataIndex);
+		System.arraycopy(node.values, 0, values, 0, dataIndex);
+		keys[dataIndex] = key;
+		values[dataIndex] = value;
+		System.arraycopy(node.keys, dataIndex, keys, dataIndex + 1, length - dataIndex);
+		System.arraycopy(node.values, dataIndex, values, dataIndex + 1, length - dataIndex);
+		return new Node(edit, node.dataMap | bit, node.nodeMap ^ bit, keys, values, nodes);
+	}
+
+	private Node remove(Node node, int key, int hash, int shift) {
+		int bit = bit(hash, shift);
+		if ((node.dataMap & bit) != 0) {
+			int index = index(node.dataMap, bit);
+			if (node.keys[index] != key) {
+				return node;
+			}
+			previous = node.values[index];
+			int length = node.keys.length;
+			int[] keys = new int[length - 1];
+			String[] values = new String[length - 1];
+			System.arraycopy(node.keys, 0, keys, 0, index);
+			System.arraycopy(node.values, 0, values, 0, index);
+			System.arraycopy(node.keys, index + 1, keys, index, length - index - 1);
+			System.arraycopy(node.values, index + 1, values, index, length - index - 1);
+			return new Node(edit, node.dataMap ^ bit, node.nodeMap, keys, values, ownNodes(node));
+		}
+		if ((node.nodeMap & bit) != 0) {
+			int index = index(node.nodeMap, bit);
+			Node child = node.nodes[index];
+			Node newChild = remove(child, key, hash, shift + BITS);
+			if (newChild == child) {
+				return node;
+			}
+			if (newChild.nodes.length == 0 && newChild.keys.length == 1) {
+				// keep the tree canonical: a lone entry moves up to its parent
+				return nodeToData(node, bit, newChild.keys[0], newChild.values[0]);
+			}
+			Node editable = editable(node);
+			editable.nodes[index] = newChild;
+			return editable;
+		}
+		return node;
+	}
+
+	private static final class Node {
+
+		final Object edit;
+
+		final int dataMap;
+
+		final int nodeMap;
+
+		final int[] keys;
+
+		final String[] values;
+
+		final Node[] nodes;
+
+		Node(Object edit, int dataMap, int nodeMap, int[] keys, String[] values, Node[] nodes) {
+			this.edit = edit;
+			this.dataMap = dataMap;
+			this.nodeMap = nodeMap;
+			this.keys = keys;
+			this.values = values;
+			this.nodes = nodes;
+		}
+	}
+
+	/**
+	 * Walks the tree depth first, the entries of each node before its
+	 * children.
+	 */
+	private class NodeCursor implements DictionaryCursor {
+
+		private final Node[] stack = new Node[MAXIMUM_DEPTH + 1];
+
+		private final int[] dataPosition = new int[MAXIMUM_DEPTH + 1];
+
+		private final int[] nodePosition = new int[MAXIMUM_DEPTH + 1];
+
+		private int depth;
+
+		private int expectedModCount;
+
+		private Node current;
+
+		private int index;
+
+		private Node nextNode;
+
+		private int nextIndex;
+
+		NodeCursor() {
+			start();
+		}
+
+		private void start() {
+			expectedModCount = modCount;
+			depth = 0;
+			stack[0] = root;
+			dataPosition[0] = 0;
+			nodePosition[0] = 0;
+			current = null;
+			advance();
+		}
+
+		private void advance() {
+			while (true) {
+				Node node = stack[depth];
+				if (dataPosition[depth] < node.keys.length) {
+					nextNode = node;
+					nextIndex = dataPosition[depth]++;
+					return;
+				}
+				if (nodePosition[depth] < node.nodes.length) {
+					Node child = node.nodes[nodePosition[depth]++];
+					depth++;
+					stack[depth] = child;
+					dataPosition[depth] = 0;
+					nodePosition[depth] = 0;
+				} else if (depth == 0) {
+					nextNode = null;
+					return;
+				} else {
+					stack[depth--] = null;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+
+		@Override
+		public int nextKey() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (nextNode == null) {
+				throw new NoSuchElementException();
+			}
+			current = nextNode;
+			index = nextIndex;
+			advance();
+			return current.keys[index];
+		}
+
+		@Override
+		public String value() {
+			if (current == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			return current.values[index];
+		}
+
+		@Override
+		public void reset() {
+			start();
+		}
+	}
+
+	private abstract class NodeEnumeration<E> implements Enumeration<E> {
+
+		private final NodeCursor cursor = new NodeCursor();
+
+		abstract E element(int key, String value);
+
+		@Override
+		public boolean hasMoreElements() {
+			return cursor.hasNext();
+		}
+
+		@Override
+		public E nextElement() {
+			if (!cursor.hasNext()) {
+				throw new NoSuchElementException("Dictionary Enumerator");
+			}
+			int key = cursor.nextKey();
+			return element(key, cursor.value());
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.security.SecureRandom;
+
+/**
+ * Generates random (version 4) UUIDs for txtUML models at a high rate, from
+ * any number of threads.
+ * <p>
+ * <code>java.util.UUID.randomUUID()</code> draws 16 bytes from a single
+ * shared <code>SecureRandom</code> for every UUID, which becomes a point of
+ * contention when many model objects are created in parallel. This class
+ * gives every thread its own <code>SecureRandom</code> and draws its bytes
+ * in blocks of 4 KB, enough for 256 UUIDs, so a UUID usually costs a few
+ * array reads and no synchronization at all.
+ * <p>
+ * Security: every UUID has 122 random bits from the default
+ * <code>SecureRandom</code> of the platform, like those of
+ * <code>java.util.UUID</code>, so UUIDs cannot be predicted from the UUIDs
+ * generated before. However, the bytes of the UUIDs not handed out yet are
+ * kept in the memory of the process until they are used, so anyone able to
+ * read that memory can learn the next UUIDs of a thread. Do not use these
+ * UUIDs as secrets, such as session tokens.
+ *
+ * @see UUID#randomUUID()
+ */
+public final class RandomUUIDGenerator {
+
+	/**
+	 * The number of UUIDs drawn from a thread's <code>SecureRandom</code> at
+	 * once.
+	 */
+	private static final int BLOCK_UUIDS = 256;
+
+	private static final ThreadLocal<Block> BLOCKS = ThreadLocal.withInitial(Block::new);
+
+	private RandomUUIDGenerator() {
+	}
+
+	/**
+	 * Returns a new random UUID.
+	 *
+	 * @return a randomly generated UUID
+	 */
+	public static UUID randomUUID() {
+		return BLOCKS.get().next();
+	}
+
+	/**
+	 * Returns the given number of new random UUIDs.
+	 *
+	 * @param count
+	 *            the number of UUIDs
+	 * @return an array of <code>count</code> randomly generated UUIDs
+	 * @throws IllegalArgumentException
+	 *             if the count is negative
+	 */
+	public static UUID[] randomUUIDs(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Illegal count: " + count);
+		}
+		Block block = BLOCKS.get();
+		UUID[] uuids = new UUID[count];
+		for (int i = 0; i < count; i++) {
+			uuids[i] = block.next();
+		}
+		return uuids;
+	}
+
+	/**
+	 * Returns 64 random bits from the block of the current thread, for the
+	 * random fields of the other UUID versions.
+	 */
+	static long randomLong() {
+		return BLOCKS.get().nextLong();
+	}
+
+	/**
+	 * The random bytes of a thread, and the generator refilling them.
+	 */
+	private static final class Block {
+
+		private final SecureRandom random = new SecureRandom();
+
+		private final byte[] bytes = new byte[BLOCK_UUIDS * 16];
+
+		private int position = bytes.length;
+
+		UUID next() {
+			long mostSigBits = nextLong();
+			long leastSigBits = nextLong();
+			// version 4, IETF variant
+			mostSigBits = (mostSigBits & ~0xF000L) | 0x4000L;
+			leastSigBits = (leastSigBits & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+			return new UUIDImplementation(mostSigBits, leastSigBits);
+		}
+
+		long nextLong() {
+			if (position == bytes.length) {
+				random.nextBytes(bytes);
+				position = 0;
+			}
+			long value = readLong(position);
+			position += 8;
+			return value;
+		}
+
+		private long readLong(int offset) {
+			long value = 0;
+			for (int i = offset; i < offset + 8; i++) {
+				value = (value << 8) | (bytes[i] & 0xFF);
+			}
+			return value;
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+
+import hu.elte.txtuml.api.model.external.ExternalClass;
+
+/**
+ * A dictionary for txtUML models which maps <code>String</code> keys to
+ * <code>String</code> values, the counterpart of {@link Dictionary} for
+ * textual keys.
+ *
+ * @see StringDictionaryImplementation
+ */
+public interface StringDictionary extends ExternalClass {
+
+	/**
+	 * Tests if this dictionary maps no keys to values.
+	 *
+	 * @return <code>true</code> if this dictionary maps no keys to values;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Returns the number of entries (distinct keys) in this dictionary.
+	 *
+	 * @return the number of keys in this dictionary
+	 */
+	public int size();
+
+	/**
+	 * Returns an enumeration of the keys in this dictionary.
+	 *
+	 * @return an enumeration of the keys in this dictionary
+	 */
+	public Enumeration<String> keys();
+
+	/**
+	 * Returns an enumeration of the values in this dictionary.
+	 *
+	 * @return an enumeration of the values in this dictionary
+	 */
+	public Enumeration<String> elements();
+
+	/**
+	 * Returns the value to which the key is mapped in this dictionary.
+	 *
+	 * @param key
+	 *            a key in this dictionary
+	 * @return the value to which the key is mapped, or <code>null</code> if
+	 *         the key is not mapped to any value
+	 * @exception NullPointerException
+	 *                if the <code>key</code> is <code>null</code>
+	 */
+	public String get(String key);
+
+	/**
+	 * Maps the specified <code>key</code> to the specified
+	 * <code>value</code> in this dictionary.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the previous value to which the <code>key</code> was mapped, or
+	 *         <code>null</code> if it did not have a previous mapping
+	 * @exception NullPointerException
+	 *                if the <code>key</code> or <code>value</code> is
+	 *                <code>null</code>
+	 */
+	public String put(String key, String value);
+
+	/**
+	 * Removes the <code>key</code> (and its corresponding
+	 * <code>value</code>) from this dictionary.
+	 *
+	 * @param key
+	 *            the key that needs to be removed
+	 * @return the value to which the <code>key</code> had been mapped, or
+	 *         <code>null</code> if the key did not have a mapping
+	 * @exception NullPointerException
+	 *                if the <code>key</code> is <code>null</code>
+	 */
+	public String remove(String key);
+
+	/**
+	 * Performs the given action for each entry of this dictionary.
+	 *
+	 * @param action
+	 *            the action to be performed for each entry
+	 * @exception java.util.ConcurrentModificationException
+	 *                if the action adds or removes entries of this
+	 *                dictionary
+	 */
+	public void forEach(BiConsumer<String, String> action);
+
+}
@@ -0,0 +1,89 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation class of the StringDictionary interface for txtUML models.
+ * <p>
+ * The entries are stored in an open-addressing hash table which keeps the
+ * hash code of every key next to it, so a lookup compares the contents of
+ * two keys only if their hash codes are equal. This class is not
+ * synchronized.
+ *
+ * @see StringDictionary
+ * @see StringStringTable
+ */
+public class StringDictionaryImplementation implements StringDictionary {
+
+	private final StringStringTable table;
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 */
+	public StringDictionaryImplementation() {
+		this(OpenHashTable.DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary which holds the given number of
+	 * entries without enlarging its storage.
+	 *
+	 * @param expectedSize
+	 *            the expected number of entries
+	 * @exception IllegalArgumentException
+	 *                if the expected size is negative
+	 */
+	public StringDictionaryImplementation(int expectedSize) {
+		table = new StringStringTable(expectedSize);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return table.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return table.size;
+	}
+
+	@Override
+	public Enumeration<String> keys() {
+		return table.keys();
+	}
+
+	@Override
+	public Enumeration<String> elements() {
+		return table.elements();
+	}
+
+	@Override
+	public String get(String key) {
+		return table.get(key);
+	}
+
+	@Override
+	public String put(String key, String value) {
+		if (key == null || value == null) {
+			throw new NullPointerException();
+		}
+		return table.put(key, value);
+	}
+
+	@Override
+	public String remove(String key) {
+		return table.remove(key);
+	}
+
+	@Override
+	public void forEach(BiConsumer<String, String> action) {
+		table.forEach(action);
+	}
+
+	@Override
+	public String toString() {
+		return table.toString();
+	}
+
+}
@@ -0,0 +1,123 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * Open-addressing hash table which maps <code>String</code> keys to
+ * primitive <code>int</code> values without boxing them. This is the
+ * reverse index of {@link BidirectionalDictionaryImplementation}.
+ * <p>
+ * The probing, deletion and growth are those of {@link OpenHashTable}. Since
+ * the engine marks the occupied slots by their non-<code>null</code> values,
+ * the <code>String</code> keys are stored in the value array of the engine,
+ * and the <code>int</code> values next to the hash codes of the keys. This
+ * class is not synchronized.
+ *
+ * @see BidirectionalDictionaryImplementation
+ */
+class StringIntTable extends OpenHashTable {
+
+	int[] hashes;
+
+	int[] ints;
+
+	/**
+	 * The current hash and value arrays together, as passed to the engine.
+	 */
+	private Object[] keyArrays;
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries the table should hold without resizing
+	 * @throws IllegalArgumentException
+	 *             if the expected size is negative
+	 */
+	StringIntTable(int expectedSize) {
+		super(expectedSize, DEFAULT_LOAD_FACTOR);
+	}
+
+	@Override
+	void allocateKeys(int capacity) {
+		hashes = new int[capacity];
+		ints = new int[capacity];
+		keyArrays = new Object[] { hashes, ints };
+	}
+
+	@Override
+	Object keyArrays() {
+		return keyArrays;
+	}
+
+	@Override
+	int hashAt(Object keys, int slot) {
+		return ((int[]) ((Object[]) keys)[0])[slot];
+	}
+
+	@Override
+	void copyKey(Object keys, int from, int to) {
+		Object[] arrays = (Object[]) keys;
+		this.hashes[to] = ((int[]) arrays[0])[from];
+		this.ints[to] = ((int[]) arrays[1])[from];
+	}
+
+	@Override
+	void appendKey(StringBuilder sb, int slot) {
+		sb.append(values[slot]);
+	}
+
+	/**
+	 * Returns the slot holding the given key, or <code>-1</code> if the key
+	 * is not in the table.
+	 */
+	int slotOf(String key) {
+		int hash = StringStringTable.hash(key);
+		int[] hashes = this.hashes;
+		Object[] values = this.values;
+		int mask = values.length - 1;
+		int slot = hash & mask;
+		Object stored;
+		while ((stored = values[slot]) != null) {
+			if (hashes[slot] == hash && key.equals(stored)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Maps the key to the value, which must not be in the table yet.
+	 */
+	void add(String key, int value) {
+		int hash = StringStringTable.hash(key);
+		Object[] values = this.values;
+		int mask = values.length - 1;
+		int slot = hash & mask;
+		while (values[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		hashes[slot] = hash;
+		ints[slot] = value;
+		values[slot] = key;
+		added();
+	}
+
+	void remove(String key) {
+		int slot = slotOf(key);
+		if (slot >= 0) {
+			removeSlot(slot);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(size * 16);
+		sb.append('{');
+		for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(values[slot]).append('=').append(ints[slot]);
+		}
+		return sb.append('}').toString();
+	}
+
+}
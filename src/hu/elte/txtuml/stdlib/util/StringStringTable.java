@@ -0,0 +1,167 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+
+/**
+ * Open-addressing hash table which maps <code>String</code> keys to
+ * <code>String</code> values. This is the backing store of
+ * {@link StringDictionaryImplementation}.
+ * <p>
+ * The probing, deletion and growth are those of {@link OpenHashTable}. The
+ * hash codes of the keys are kept next to them, so probing compares the
+ * contents of two keys only if their hash codes are equal, and resizing
+ * never touches the strings. This class is not synchronized.
+ *
+ * @see StringDictionaryImplementation
+ */
+class StringStringTable extends OpenHashTable {
+
+	String[] keys;
+
+	int[] hashes;
+
+	/**
+	 * The current key and hash arrays together, as passed to the engine.
+	 */
+	private Object[] keyArrays;
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries the table should hold without resizing
+	 * @throws IllegalArgumentException
+	 *             if the expected size is negative
+	 */
+	StringStringTable(int expectedSize) {
+		super(expectedSize, DEFAULT_LOAD_FACTOR);
+	}
+
+	static int hash(String key) {
+		return IntStringTable.hash(key.hashCode());
+	}
+
+	@Override
+	void allocateKeys(int capacity) {
+		keys = new String[capacity];
+		hashes = new int[capacity];
+		keyArrays = new Object[] { keys, hashes };
+	}
+
+	@Override
+	Object keyArrays() {
+		return keyArrays;
+	}
+
+	@Override
+	int hashAt(Object keys, int slot) {
+		return ((int[]) ((Object[]) keys)[1])[slot];
+	}
+
+	@Override
+	void copyKey(Object keys, int from, int to) {
+		Object[] arrays = (Object[]) keys;
+		this.keys[to] = ((String[]) arrays[0])[from];
+		this.hashes[to] = ((int[]) arrays[1])[from];
+	}
+
+	@Override
+	void clearKey(int slot) {
+		keys[slot] = null;
+	}
+
+	@Override
+	void appendKey(StringBuilder sb, int slot) {
+		sb.append(keys[slot]);
+	}
+
+	/**
+	 * Returns the slot holding the given key, or <code>-1</code> if the key
+	 * is not in the table.
+	 */
+	int slotOf(String key) {
+		int hash = hash(key);
+		String[] keys = this.keys;
+		int[] hashes = this.hashes;
+		Object[] values = this.values;
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+		while (values[slot] != null) {
+			if (hashes[slot] == hash && key.equals(keys[slot])) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	String get(String key) {
+		int slot = slotOf(key);
+		return slot < 0 ? null : (String) values[slot];
+	}
+
+	String put(String key, String value) {
+		int hash = hash(key);
+		String[] keys = this.keys;
+		int[] hashes = this.hashes;
+		Object[] values = this.values;
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+		while (values[slot] != null) {
+			if (hashes[slot] == hash && key.equals(keys[slot])) {
+				String old = (String) values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		hashes[slot] = hash;
+		values[slot] = value;
+		added();
+		return null;
+	}
+
+	String remove(String key) {
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return null;
+		}
+		String old = (String) values[slot];
+		removeSlot(slot);
+		return old;
+	}
+
+	void forEach(BiConsumer<String, String> action) {
+		int expectedModCount = modCount;
+		String[] keys = this.keys;
+		Object[] values = this.values;
+		for (int slot = 0; slot < values.length; slot++) {
+			if (values[slot] != null) {
+				action.accept(keys[slot], (String) values[slot]);
+			}
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	Enumeration<String> keys() {
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int slot) {
+				return keys[slot];
+			}
+		};
+	}
+
+	Enumeration<String> elements() {
+		return new SlotEnumeration<String>() {
+			@Override
+			String element(int slot) {
+				return (String) values[slot];
+			}
+		};
+	}
+
+}
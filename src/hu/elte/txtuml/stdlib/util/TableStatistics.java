@@ -0,0 +1,63 @@
+package hu.elte.txtuml.stdlib.util;
+
+/**
+ * The counters of an {@link OpenHashTable} whose statistics are enabled.
+ * Tables without statistics hold no instance of this class, so the only cost
+ * of the instrumentation for them is a <code>null</code> check per
+ * operation.
+ * <p>
+ * The counters are updated by the thread using the table and are not
+ * synchronized; other threads, like JMX clients, may read slightly stale
+ * values.
+ *
+ * @see DictionaryStatistics
+ */
+final class TableStatistics {
+
+	long gets;
+
+	long hits;
+
+	long puts;
+
+	long inserts;
+
+	long removes;
+
+	long removed;
+
+	long probes;
+
+	long probedOperations;
+
+	int maxProbeLength;
+
+	long resizes;
+
+	long resizeNanos;
+
+	long maxResizeNanos;
+
+	void recordProbe(int length) {
+		probes += length;
+		probedOperations++;
+		if (length > maxProbeLength) {
+			maxProbeLength = length;
+		}
+	}
+
+	void recordResize(long nanos) {
+		resizes++;
+		resizeNanos += nanos;
+		if (nanos > maxResizeNanos) {
+			maxResizeNanos = nanos;
+		}
+	}
+
+	DictionaryStatistics snapshot(int size, int capacity) {
+		return new DictionaryStatistics(gets, hits, puts, inserts, removes, removed, resizes, resizeNanos,
+				maxResizeNanos, probedOperations == 0 ? 0 : probes / (double) probedOperations, maxProbeLength,
+				size, capacity);
+	}
+
+}
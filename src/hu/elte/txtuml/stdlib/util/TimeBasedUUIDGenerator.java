@@ -0,0 +1,120 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-based UUIDs for txtUML models, which are ordered by the
+ * time of their creation, so that inserting them into sorted indices stays
+ * local.
+ * <p>
+ * The preferred layout is version 7 of RFC 9562: 48 bits of Unix time in
+ * milliseconds, a 12 bit counter and 62 random bits. Versions 6 and 1 carry
+ * a 60 bit timestamp in 100-nanosecond units since the Gregorian epoch
+ * (midnight, October 15, 1582 UTC), a clock sequence and a node; version 6
+ * stores the timestamp from its most significant bits, so it sorts like
+ * version 7, while version 1 is the layout of RFC 4122. The clock sequence
+ * and the node are chosen at random when the class is initialized, with the
+ * multicast bit of the node set, as the RFC recommends for nodes which are
+ * not IEEE 802 addresses.
+ * <p>
+ * The generators are lock-free: every thread claims the next time value
+ * with a compare-and-set. The UUIDs of a version are strictly increasing in
+ * the order of their creation, even across threads: when several UUIDs are
+ * created within the same clock tick, or the clock steps backwards, the
+ * counter (or the timestamp) is incremented instead, running ahead of the
+ * clock if needed. The random bits are drawn like those of
+ * {@link RandomUUIDGenerator}.
+ *
+ * @see UUID#timeOrderedUUID()
+ */
+public final class TimeBasedUUIDGenerator {
+
+	/**
+	 * The number of 100-nanosecond intervals between the Gregorian and the
+	 * Unix epochs.
+	 */
+	static final long GREGORIAN_OFFSET = 0x01B21DD213814000L;
+
+	/**
+	 * The last version 7 time value: the milliseconds above a 12 bit counter.
+	 */
+	private static final AtomicLong LAST_MILLIS = new AtomicLong();
+
+	/**
+	 * The last version 1 or 6 timestamp.
+	 */
+	private static final AtomicLong LAST_TIMESTAMP = new AtomicLong();
+
+	/**
+	 * The clock sequence and the node of versions 1 and 6, with the IETF
+	 * variant.
+	 */
+	private static final long CLOCK_SEQUENCE_AND_NODE;
+
+	static {
+		long random = RandomUUIDGenerator.randomLong();
+		CLOCK_SEQUENCE_AND_NODE = (random & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L | 0x0000010000000000L;
+	}
+
+	private TimeBasedUUIDGenerator() {
+	}
+
+	/**
+	 * Returns a new version 7 UUID.
+	 *
+	 * @return a time-ordered UUID
+	 */
+	public static UUID timeOrderedUUID() {
+		long now = System.currentTimeMillis() << 12;
+		long last;
+		long next;
+		do {
+			last = LAST_MILLIS.get();
+			// a new millisecond starts its counter at a random value below
+			// 1024, leaving room for 3072 further UUIDs in that millisecond
+			next = now > last ? now | (RandomUUIDGenerator.randomLong() & 0x3FF) : last + 1;
+		} while (!LAST_MILLIS.compareAndSet(last, next));
+		long mostSigBits = (next >>> 12) << 16 | 0x7000L | (next & 0xFFF);
+		long leastSigBits = (RandomUUIDGenerator.randomLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUIDImplementation(mostSigBits, leastSigBits);
+	}
+
+	/**
+	 * Returns a new version 6 UUID.
+	 *
+	 * @return a time-ordered UUID with a Gregorian timestamp
+	 */
+	public static UUID reorderedTimeBasedUUID() {
+		long timestamp = nextTimestamp();
+		long mostSigBits = (timestamp >>> 12) << 16 | 0x6000L | (timestamp & 0xFFF);
+		return new UUIDImplementation(mostSigBits, CLOCK_SEQUENCE_AND_NODE);
+	}
+
+	/**
+	 * Returns a new version 1 UUID.
+	 *
+	 * @return a time-based UUID
+	 */
+	public static UUID timeBasedUUID() {
+		long timestamp = nextTimestamp();
+		long mostSigBits = (timestamp & 0xFFFFFFFFL) << 32 | (timestamp >>> 32 & 0xFFFF) << 16 | 0x1000L
+				| (timestamp >>> 48 & 0x0FFF);
+		return new UUIDImplementation(mostSigBits, CLOCK_SEQUENCE_AND_NODE);
+	}
+
+	/**
+	 * Returns the next Gregorian timestamp, which is greater than all the
+	 * former ones.
+	 */
+	private static long nextTimestamp() {
+		long now = System.currentTimeMillis() * 10000 + GREGORIAN_OFFSET;
+		long last;
+		long next;
+		do {
+			last = LAST_TIMESTAMP.get();
+			next = now > last ? now : last + 1;
+		} while (!LAST_TIMESTAMP.compareAndSet(last, next));
+		return next;
+	}
+
+}
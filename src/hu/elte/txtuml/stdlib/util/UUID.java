@@ -18,14 +18,14 @@ public interface UUID extends ExternalClass {
 	 * The 14 bit clock sequence value is constructed from the clock sequence
 	 * field of this UUID. The clock sequence field is used to guarantee
 	 * temporal uniqueness in a time-based UUID. The clockSequence value is only
-	 * meaningful in a time-based UUID, which has version type 1. If this UUID
-	 * is not a time-based UUID then this method throws
+	 * meaningful in a time-based UUID, which has version type 1 or 6. If this
+	 * UUID is not such a time-based UUID then this method throws
 	 * UnsupportedOperationException.
 	 *
 	 * @return The clock sequence (int) of this UUID
 	 * 
 	 * @throws UnsupportedOperationException
-	 *             - If this UUID is not a version 1 UUID
+	 *             - If this UUID is not a version 1 or 6 UUID
 	 */
 	public int clockSequence();
 
@@ -69,9 +69,15 @@ public interface UUID extends ExternalClass {
 	 * @throws IllegalArgumentException
 	 *             - If name does not conform to the string representation as
 	 *             described in toString()
+	 * @see UUIDCodec
 	 */
 	public static UUID fromString(String str) {
-		return new UUIDImplementation(java.util.UUID.fromString(str));
+		UUID uuid = str.length() == UUIDCodec.LENGTH ? UUIDCodec.parseOrNull(str, 0) : null;
+		if (uuid == null) {
+			// the other forms accepted by java.util.UUID, or an error
+			uuid = new UUIDImplementation(java.util.UUID.fromString(str));
+		}
+		return uuid;
 	}
 
 	/**
@@ -100,22 +106,117 @@ public interface UUID extends ExternalClass {
 	 * constructed from the node field of this UUID. This field is intended to
 	 * hold the IEEE 802 address of the machine that generated this UUID to
 	 * guarantee spatial uniqueness. The node value is only meaningful in a
-	 * time-based UUID, which has version type 1. If this UUID is not a
-	 * time-based UUID then this method throws UnsupportedOperationException.
+	 * time-based UUID, which has version type 1 or 6. If this UUID is not such
+	 * a time-based UUID then this method throws UnsupportedOperationException.
 	 *
 	 * @return The node value of this UUID
 	 */
 	public long node();
 
+	/**
+	 * Static factory to retrieve a type 3 (name based) UUID based on the
+	 * specified byte array, like <code>java.util.UUID.nameUUIDFromBytes</code>.
+	 *
+	 * @param name
+	 *            - A byte array to be used to construct a UUID
+	 *
+	 * @return A UUID generated from the specified array
+	 */
+	public static UUID nameUUIDFromBytes(byte[] name) {
+		return NameBasedUUIDGenerator.md5UUID(null, name);
+	}
+
+	/**
+	 * Static factory to retrieve a type 5 (name based, SHA-1) UUID of a name
+	 * in a namespace, such as {@link NameBasedUUIDGenerator#NAMESPACE_DNS}.
+	 * The same name in the same namespace always yields the same UUID.
+	 *
+	 * @param namespace
+	 *            - The UUID of the namespace
+	 * @param name
+	 *            - The name, hashed in UTF-8
+	 *
+	 * @return A UUID generated from the namespace and the name
+	 */
+	public static UUID nameUUID(UUID namespace, String name) {
+		return NameBasedUUIDGenerator.sha1UUID(namespace, name);
+	}
+
+	/**
+	 * Static factory to retrieve the type 5 (name based, SHA-1) UUIDs of
+	 * several names in a namespace at once, generated like those of
+	 * {@link #nameUUID(UUID, String)}.
+	 *
+	 * @param namespace
+	 *            - The UUID of the namespace
+	 * @param names
+	 *            - The names, hashed in UTF-8
+	 *
+	 * @return An array of the UUIDs of the names, in the same order
+	 */
+	public static UUID[] nameUUIDs(UUID namespace, String[] names) {
+		return NameBasedUUIDGenerator.sha1UUIDs(namespace, names);
+	}
+
 	/**
 	 * Static factory to retrieve a type 4 (pseudo randomly generated) UUID. The
 	 * UUID is generated using a cryptographically strong pseudo random number
-	 * generator.
+	 * generator, whose output is drawn in blocks per thread by
+	 * {@link RandomUUIDGenerator}.
 	 *
 	 * @return A randomly generated UUID
 	 */
 	public static UUID randomUUID() {
-		return new UUIDImplementation(java.util.UUID.randomUUID());
+		return RandomUUIDGenerator.randomUUID();
+	}
+
+	/**
+	 * Static factory to retrieve several type 4 (pseudo randomly generated)
+	 * UUIDs at once, generated like those of {@link #randomUUID()}.
+	 *
+	 * @param count
+	 *            - The number of UUIDs
+	 * 
+	 * @return An array of count randomly generated UUIDs
+	 * 
+	 * @throws IllegalArgumentException
+	 *             - If count is negative
+	 */
+	public static UUID[] randomUUIDs(int count) {
+		return RandomUUIDGenerator.randomUUIDs(count);
+	}
+
+	/**
+	 * Static factory to retrieve a type 7 (Unix time-ordered) UUID. The UUIDs
+	 * created by this factory are strictly increasing in the order of their
+	 * creation, also across threads, so they suit sorted indices. The UUID is
+	 * generated by {@link TimeBasedUUIDGenerator}.
+	 *
+	 * @return A time-ordered UUID
+	 */
+	public static UUID timeOrderedUUID() {
+		return TimeBasedUUIDGenerator.timeOrderedUUID();
+	}
+
+	/**
+	 * Static factory to retrieve a type 6 (reordered time-based) UUID, which
+	 * holds the fields of a type 1 UUID ordered by time. The UUIDs created by
+	 * this factory are strictly increasing in the order of their creation.
+	 *
+	 * @return A time-ordered UUID with a Gregorian timestamp
+	 */
+	public static UUID reorderedTimeBasedUUID() {
+		return TimeBasedUUIDGenerator.reorderedTimeBasedUUID();
+	}
+
+	/**
+	 * Static factory to retrieve a type 1 (time-based) UUID, with a random
+	 * node.
+	 *
+	 * @return A time-based UUID
+	 */
+	public static UUID timeBasedUUID() {
+		return TimeBasedUUIDGenerator.timeBasedUUID();
 	}
 
 	/**
@@ -123,8 +224,10 @@ public interface UUID extends ExternalClass {
 	 * is constructed from the time_low, time_mid, and time_hi fields of this
 	 * UUID. The resulting timestamp is measured in 100-nanosecond units since
 	 * midnight, October 15, 1582 UTC. The timestamp value is only meaningful in
-	 * a time-based UUID, which has version type 1. If this UUID is not a
-	 * time-based UUID then this method throws UnsupportedOperationException.
+	 * a time-based UUID, which has version type 1, 6 or 7; the millisecond
+	 * Unix timestamp of a version 7 UUID is converted to the same unit and
+	 * epoch. If this UUID is not a time-based UUID then this method throws
+	 * UnsupportedOperationException.
 	 *
 	 * @return The timestamp of this UUID.
 	 */
@@ -157,7 +260,10 @@ public interface UUID extends ExternalClass {
 	 * 1 Time-based UUID </br>
 	 * 2 DCE security UUID </br>
 	 * 3 Name-based UUID </br>
-	 * 4 Randomly generated UUID
+	 * 4 Randomly generated UUID </br>
+	 * 5 Name-based UUID using SHA-1 hashing </br>
+	 * 6 Reordered time-based UUID </br>
+	 * 7 Unix time-ordered UUID
 	 *
 	 * @return The version number of this UUID
 	 */
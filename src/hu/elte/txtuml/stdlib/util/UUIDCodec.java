@@ -0,0 +1,375 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses and formats the canonical string representation of UUIDs without
+ * intermediate objects, for logs and message codecs.
+ * <p>
+ * The canonical representation is 36 characters long: 32 lowercase
+ * hexadecimal digits in groups of 8, 4, 4, 4 and 12, separated by hyphens,
+ * as described in {@link UUID#toString()}. Parsing also accepts uppercase
+ * digits. Text may be read from and written to a <code>CharSequence</code>,
+ * an array of characters or of ASCII bytes, or a <code>ByteBuffer</code> of
+ * ASCII bytes, at any offset; the position of a buffer is left unchanged.
+ * The digits are converted with lookup tables.
+ *
+ * @see UUID#fromString(String)
+ */
+public final class UUIDCodec {
+
+	/**
+	 * The length of the canonical representation.
+	 */
+	public static final int LENGTH = 36;
+
+	/**
+	 * The offsets of the hyphens within the canonical representation.
+	 */
+	private static final int[] HYPHENS = { 8, 13, 18, 23 };
+
+	/**
+	 * The two lowercase hexadecimal digits of every byte value, at twice the
+	 * value.
+	 */
+	private static final char[] HEX_PAIRS = new char[512];
+
+	/**
+	 * The value of every hexadecimal digit below 256, and -1 for the other
+	 * characters.
+	 */
+	private static final byte[] HEX_VALUES = new byte[256];
+
+	static {
+		for (int i = 0; i < HEX_VALUES.length; i++) {
+			HEX_VALUES[i] = (byte) Character.digit(i, 16);
+			HEX_PAIRS[2 * i] = Character.forDigit(i >>> 4, 16);
+			HEX_PAIRS[2 * i + 1] = Character.forDigit(i & 0xF, 16);
+		}
+	}
+
+	private UUIDCodec() {
+	}
+
+	/**
+	 * Parses the canonical representation of a UUID at the offset.
+	 *
+	 * @param chars
+	 *            the characters to parse
+	 * @param offset
+	 *            the offset of the first character
+	 * @return the UUID parsed
+	 * @exception IndexOutOfBoundsException
+	 *                if the characters from the offset are less than
+	 *                {@link #LENGTH}
+	 * @exception IllegalArgumentException
+	 *                if the characters are not a canonical representation
+	 */
+	public static UUID parse(CharSequence chars, int offset) {
+		checkBounds(offset, chars.length());
+		UUID uuid = parseOrNull(chars, offset);
+		if (uuid == null) {
+			throw new IllegalArgumentException(
+					"Invalid UUID string: " + chars.subSequence(offset, offset + LENGTH));
+		}
+		return uuid;
+	}
+
+	/**
+	 * Parses the canonical representation of a UUID at the offset, or returns
+	 * <code>null</code> if the characters are not one. The offset must be in
+	 * bounds.
+	 */
+	static UUID parseOrNull(CharSequence chars, int offset) {
+		long time = hex(chars, offset, 8);
+		long middle = hex(chars, offset + 9, 4);
+		long high = hex(chars, offset + 14, 4);
+		long sequence = hex(chars, offset + 19, 4);
+		long node = hex(chars, offset + 24, 12);
+		if ((time | middle | high | sequence | node) < 0 || !hyphens(chars, offset)) {
+			return null;
+		}
+		return new UUIDImplementation(time << 32 | middle << 16 | high, sequence << 48 | node);
+	}
+
+	/**
+	 * Parses the canonical representation of a UUID at the offset of an
+	 * array of ASCII bytes.
+	 *
+	 * @param bytes
+	 *            the bytes to parse
+	 * @param offset
+	 *            the offset of the first byte
+	 * @return the UUID parsed
+	 * @exception IndexOutOfBoundsException
+	 *                if the bytes from the offset are less than
+	 *                {@link #LENGTH}
+	 * @exception IllegalArgumentException
+	 *                if the bytes are not a canonical representation
+	 */
+	public static UUID parse(byte[] bytes, int offset) {
+		checkBounds(offset, bytes.length);
+		long time = hex(bytes, offset, 8);
+		long middle = hex(bytes, offset + 9, 4);
+		long high = hex(bytes, offset + 14, 4);
+		long sequence = hex(bytes, offset + 19, 4);
+		long node = hex(bytes, offset + 24, 12);
+		long invalid = time | middle | high | sequence | node;
+		for (int hyphen : HYPHENS) {
+			if (bytes[offset + hyphen] != '-') {
+				invalid = -1;
+			}
+		}
+		if (invalid < 0) {
+			throw new IllegalArgumentException("Invalid UUID bytes at offset " + offset);
+		}
+		return new UUIDImplementation(time << 32 | middle << 16 | high, sequence << 48 | node);
+	}
+
+	/**
+	 * Parses the canonical representation of a UUID at the index of a buffer
+	 * of ASCII bytes. The position of the buffer is not changed.
+	 *
+	 * @param buffer
+	 *            the buffer to parse
+	 * @param index
+	 *            the index of the first byte
+	 * @return the UUID parsed
+	 * @exception IndexOutOfBoundsException
+	 *                if the bytes from the index up to the limit are less
+	 *                than {@link #LENGTH}
+	 * @exception IllegalArgumentException
+	 *                if the bytes are not a canonical representation
+	 */
+	public static UUID parse(ByteBuffer buffer, int index) {
+		checkBounds(index, buffer.limit());
+		long time = hex(buffer, index, 8);
+		long middle = hex(buffer, index + 9, 4);
+		long high = hex(buffer, index + 14, 4);
+		long sequence = hex(buffer, index + 19, 4);
+		long node = hex(buffer, index + 24, 12);
+		long invalid = time | middle | high | sequence | node;
+		for (int hyphen : HYPHENS) {
+			if (buffer.get(index + hyphen) != '-') {
+				invalid = -1;
+			}
+		}
+		if (invalid < 0) {
+			throw new IllegalArgumentException("Invalid UUID bytes at index " + index);
+		}
+		return new UUIDImplementation(time << 32 | middle << 16 | high, sequence << 48 | node);
+	}
+
+	/**
+	 * Writes the canonical representation of the UUID into the array at the
+	 * offset.
+	 *
+	 * @param uuid
+	 *            the UUID to format
+	 * @param chars
+	 *            the array to write
+	 * @param offset
+	 *            the offset of the first character
+	 * @return the offset after the last character written
+	 * @exception IndexOutOfBoundsException
+	 *                if the room from the offset is less than {@link #LENGTH}
+	 */
+	public static int format(UUID uuid, char[] chars, int offset) {
+		checkBounds(offset, chars.length);
+		long mostSigBits = uuid.getMostSignificantBits();
+		long leastSigBits = uuid.getLeastSignificantBits();
+		digits(mostSigBits >>> 32, chars, offset, 8);
+		digits(mostSigBits >>> 16, chars, offset + 9, 4);
+		digits(mostSigBits, chars, offset + 14, 4);
+		digits(leastSigBits >>> 48, chars, offset + 19, 4);
+		digits(leastSigBits, chars, offset + 24, 12);
+		for (int hyphen : HYPHENS) {
+			chars[offset + hyphen] = '-';
+		}
+		return offset + LENGTH;
+	}
+
+	/**
+	 * Writes the canonical representation of the UUID into the array at the
+	 * offset, in ASCII bytes.
+	 *
+	 * @param uuid
+	 *            the UUID to format
+	 * @param bytes
+	 *            the array to write
+	 * @param offset
+	 *            the offset of the first byte
+	 * @return the offset after the last byte written
+	 * @exception IndexOutOfBoundsException
+	 *                if the room from the offset is less than {@link #LENGTH}
+	 */
+	public static int format(UUID uuid, byte[] bytes, int offset) {
+		checkBounds(offset, bytes.length);
+		long mostSigBits = uuid.getMostSignificantBits();
+		long leastSigBits = uuid.getLeastSignificantBits();
+		digits(mostSigBits >>> 32, bytes, offset, 8);
+		digits(mostSigBits >>> 16, bytes, offset + 9, 4);
+		digits(mostSigBits, bytes, offset + 14, 4);
+		digits(leastSigBits >>> 48, bytes, offset + 19, 4);
+		digits(leastSigBits, bytes, offset + 24, 12);
+		for (int hyphen : HYPHENS) {
+			bytes[offset + hyphen] = '-';
+		}
+		return offset + LENGTH;
+	}
+
+	/**
+	 * Writes the canonical representation of the UUID into the buffer at the
+	 * index, in ASCII bytes. The position of the buffer is not changed.
+	 *
+	 * @param uuid
+	 *            the UUID to format
+	 * @param buffer
+	 *            the buffer to write
+	 * @param index
+	 *            the index of the first byte
+	 * @return the index after the last byte written
+	 * @exception IndexOutOfBoundsException
+	 *                if the room from the index up to the limit is less than
+	 *                {@link #LENGTH}
+	 * @exception java.nio.ReadOnlyBufferException
+	 *                if the buffer is read-only
+	 */
+	public static int format(UUID uuid, ByteBuffer buffer, int index) {
+		checkBounds(index, buffer.limit());
+		long mostSigBits = uuid.getMostSignificantBits();
+		long leastSigBits = uuid.getLeastSignificantBits();
+		digits(mostSigBits >>> 32, buffer, index, 8);
+		digits(mostSigBits >>> 16, buffer, index + 9, 4);
+		digits(mostSigBits, buffer, index + 14, 4);
+		digits(leastSigBits >>> 48, buffer, index + 19, 4);
+		digits(leastSigBits, buffer, index + 24, 12);
+		for (int hyphen : HYPHENS) {
+			buffer.put(index + hyphen, (byte) '-');
+		}
+		return index + LENGTH;
+	}
+
+	/**
+	 * Appends the canonical representation of the UUID to the builder.
+	 *
+	 * @param uuid
+	 *            the UUID to format
+	 * @param builder
+	 *            the builder to append to
+	 * @return the builder
+	 */
+	public static StringBuilder appendTo(UUID uuid, StringBuilder builder) {
+		int offset = builder.length();
+		builder.setLength(offset + LENGTH);
+		long mostSigBits = uuid.getMostSignificantBits();
+		long leastSigBits = uuid.getLeastSignificantBits();
+		digits(mostSigBits >>> 32, builder, offset, 8);
+		digits(mostSigBits >>> 16, builder, offset + 9, 4);
+		digits(mostSigBits, builder, offset + 14, 4);
+		digits(leastSigBits >>> 48, builder, offset + 19, 4);
+		digits(leastSigBits, builder, offset + 24, 12);
+		for (int hyphen : HYPHENS) {
+			builder.setCharAt(offset + hyphen, '-');
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the canonical representation of the UUID.
+	 *
+	 * @param uuid
+	 *            the UUID to format
+	 * @return a new string of {@link #LENGTH} characters
+	 */
+	public static String toString(UUID uuid) {
+		char[] chars = new char[LENGTH];
+		format(uuid, chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the value of the hexadecimal digits, or -1 if one of them is
+	 * not a digit.
+	 */
+	private static long hex(CharSequence chars, int offset, int count) {
+		long value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			char c = chars.charAt(i);
+			value = value << 4 | (c < HEX_VALUES.length ? HEX_VALUES[c] : -1L);
+		}
+		return value;
+	}
+
+	private static long hex(byte[] bytes, int offset, int count) {
+		long value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			value = value << 4 | HEX_VALUES[bytes[i] & 0xFF];
+		}
+		return value;
+	}
+
+	private static long hex(ByteBuffer buffer, int index, int count) {
+		long value = 0;
+		for (int i = index; i < index + count; i++) {
+			value = value << 4 | HEX_VALUES[buffer.get(i) & 0xFF];
+		}
+		return value;
+	}
+
+	/**
+	 * Writes the given even number of the lowest hexadecimal digits of the
+	 * value, two at a time.
+	 */
+	private static void digits(long value, char[] chars, int offset, int count) {
+		for (int i = offset + count - 2; i >= offset; i -= 2) {
+			int pair = ((int) value & 0xFF) << 1;
+			chars[i] = HEX_PAIRS[pair];
+			chars[i + 1] = HEX_PAIRS[pair + 1];
+			value >>>= 8;
+		}
+	}
+
+	private static void digits(long value, byte[] bytes, int offset, int count) {
+		for (int i = offset + count - 2; i >= offset; i -= 2) {
+			int pair = ((int) value & 0xFF) << 1;
+			bytes[i] = (byte) HEX_PAIRS[pair];
+			bytes[i + 1] = (byte) HEX_PAIRS[pair + 1];
+			value >>>= 8;
+		}
+	}
+
+	private static void digits(long value, ByteBuffer buffer, int index, int count) {
+		for (int i = index + count - 2; i >= index; i -= 2) {
+			int pair = ((int) value & 0xFF) << 1;
+			buffer.put(i, (byte) HEX_PAIRS[pair]);
+			buffer.put(i + 1, (byte) HEX_PAIRS[pair + 1]);
+			value >>>= 8;
+		}
+	}
+
+	private static void digits(long value, StringBuilder builder, int offset, int count) {
+		for (int i = offset + count - 2; i >= offset; i -= 2) {
+			int pair = ((int) value & 0xFF) << 1;
+			builder.setCharAt(i, HEX_PAIRS[pair]);
+			builder.setCharAt(i + 1, HEX_PAIRS[pair + 1]);
+			value >>>= 8;
+		}
+	}
+
+	private static boolean hyphens(CharSequence chars, int offset) {
+		for (int hyphen : HYPHENS) {
+			if (chars.charAt(offset + hyphen) != '-') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void checkBounds(int offset, int length) {
+		if (offset < 0 || offset > length - LENGTH) {
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", length: " + length);
+		}
+	}
+
+}
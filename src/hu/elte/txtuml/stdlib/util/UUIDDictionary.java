@@ -0,0 +1,148 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+
+import hu.elte.txtuml.api.model.external.ExternalClass;
+
+/**
+ * A dictionary for txtUML models which maps {@link UUID} keys to arbitrary
+ * non-<code>null</code> values. Besides the methods taking a UUID, every
+ * lookup can be done with the two 64 bit halves of the key, so models which
+ * keep identifiers as <code>long</code> pairs need not create UUID objects.
+ *
+ * @see UUIDDictionaryImplementation
+ */
+public interface UUIDDictionary extends ExternalClass {
+
+	/**
+	 * Tests if this dictionary maps no keys to values.
+	 *
+	 * @return <code>true</code> if this dictionary maps no keys to values;
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Returns the number of entries (distinct keys) in this dictionary.
+	 *
+	 * @return the number of keys in this dictionary
+	 */
+	public int size();
+
+	/**
+	 * Returns an enumeration of the keys in this dictionary.
+	 *
+	 * @return an enumeration of the keys in this dictionary
+	 */
+	public Enumeration<UUID> keys();
+
+	/**
+	 * Returns an enumeration of the values in this dictionary.
+	 *
+	 * @return an enumeration of the values in this dictionary
+	 */
+	public Enumeration<Object> elements();
+
+	/**
+	 * Returns the value to which the key is mapped in this dictionary.
+	 *
+	 * @param key
+	 *            a key in this dictionary
+	 * @return the value to which the key is mapped, or <code>null</code> if
+	 *         the key is not mapped to any value
+	 * @exception NullPointerException
+	 *                if the <code>key</code> is <code>null</code>
+	 */
+	public default Object get(UUID key) {
+		return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+	}
+
+	/**
+	 * Returns the value to which the key with the given bits is mapped in
+	 * this dictionary.
+	 *
+	 * @param mostSigBits
+	 *            the most significant 64 bits of the key
+	 * @param leastSigBits
+	 *            the least significant 64 bits of the key
+	 * @return the value to which the key is mapped, or <code>null</code> if
+	 *         the key is not mapped to any value
+	 */
+	public Object get(long mostSigBits, long leastSigBits);
+
+	/**
+	 * Maps the specified <code>key</code> to the specified
+	 * <code>value</code> in this dictionary.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the previous value to which the <code>key</code> was mapped, or
+	 *         <code>null</code> if it did not have a previous mapping
+	 * @exception NullPointerException
+	 *                if the <code>key</code> or <code>value</code> is
+	 *                <code>null</code>
+	 */
+	public default Object put(UUID key, Object value) {
+		return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+	}
+
+	/**
+	 * Maps the key with the given bits to the specified <code>value</code>
+	 * in this dictionary.
+	 *
+	 * @param mostSigBits
+	 *            the most significant 64 bits of the key
+	 * @param leastSigBits
+	 *            the least significant 64 bits of the key
+	 * @param value
+	 *            the value
+	 * @return the previous value to which the key was mapped, or
+	 *         <code>null</code> if it did not have a previous mapping
+	 * @exception NullPointerException
+	 *                if the <code>value</code> is <code>null</code>
+	 */
+	public Object put(long mostSigBits, long leastSigBits, Object value);
+
+	/**
+	 * Removes the <code>key</code> (and its corresponding
+	 * <code>value</code>) from this dictionary.
+	 *
+	 * @param key
+	 *            the key that needs to be removed
+	 * @return the value to which the <code>key</code> had been mapped, or
+	 *         <code>null</code> if the key did not have a mapping
+	 * @exception NullPointerException
+	 *                if the <code>key</code> is <code>null</code>
+	 */
+	public default Object remove(UUID key) {
+		return remove(key.getMostSignificantBits(), key.getLeastSignificantBits());
+	}
+
+	/**
+	 * Removes the key with the given bits (and its corresponding value) from
+	 * this dictionary.
+	 *
+	 * @param mostSigBits
+	 *            the most significant 64 bits of the key
+	 * @param leastSigBits
+	 *            the least significant 64 bits of the key
+	 * @return the value to which the key had been mapped, or
+	 *         <code>null</code> if the key did not have a mapping
+	 */
+	public Object remove(long mostSigBits, long leastSigBits);
+
+	/**
+	 * Performs the given action for each entry of this dictionary.
+	 *
+	 * @param action
+	 *            the action to be performed for each entry
+	 * @exception java.util.ConcurrentModificationException
+	 *                if the action adds or removes entries of this
+	 *                dictionary
+	 */
+	public void forEach(BiConsumer<UUID, Object> action);
+
+}
@@ -0,0 +1,88 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation class of the UUIDDictionary interface for txtUML models.
+ * <p>
+ * The entries are stored in an open-addressing hash table which keeps each
+ * key as two <code>long</code> values, so the lookups neither retain nor
+ * create UUID objects. This class is not synchronized.
+ *
+ * @see UUIDDictionary
+ * @see UUIDObjectTable
+ */
+public class UUIDDictionaryImplementation implements UUIDDictionary {
+
+	private final UUIDObjectTable table;
+
+	/**
+	 * Constructs a new, empty dictionary.
+	 */
+	public UUIDDictionaryImplementation() {
+		this(OpenHashTable.DEFAULT_EXPECTED_SIZE);
+	}
+
+	/**
+	 * Constructs a new, empty dictionary which holds the given number of
+	 * entries without enlarging its storage.
+	 *
+	 * @param expectedSize
+	 *            the expected number of entries
+	 * @exception IllegalArgumentException
+	 *                if the expected size is negative
+	 */
+	public UUIDDictionaryImplementation(int expectedSize) {
+		table = new UUIDObjectTable(expectedSize);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return table.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return table.size;
+	}
+
+	@Override
+	public Enumeration<UUID> keys() {
+		return table.keys();
+	}
+
+	@Override
+	public Enumeration<Object> elements() {
+		return table.elements();
+	}
+
+	@Override
+	public Object get(long mostSigBits, long leastSigBits) {
+		return table.get(mostSigBits, leastSigBits);
+	}
+
+	@Override
+	public Object put(long mostSigBits, long leastSigBits, Object value) {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		return table.put(mostSigBits, leastSigBits, value);
+	}
+
+	@Override
+	public Object remove(long mostSigBits, long leastSigBits) {
+		return table.remove(mostSigBits, leastSigBits);
+	}
+
+	@Override
+	public void forEach(BiConsumer<UUID, Object> action) {
+		table.forEach(action);
+	}
+
+	@Override
+	public String toString() {
+		return table.toString();
+	}
+
+}
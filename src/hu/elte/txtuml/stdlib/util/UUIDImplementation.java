@@ -11,28 +11,26 @@ package hu.elte.txtuml.stdlib.util;
 public class UUIDImplementation implements UUID {
 
 	/**
-	 * Store UUID object and then do all other functions with it
+	 * The most and the least significant 64 bits of the UUID, stored directly
+	 * so that a UUID is a single object.
 	 */
-	private java.util.UUID var;
+	private final long mostSigBits;
+
+	private final long leastSigBits;
 
 	/**
-	 * Instance method that returns val. This method get the "origin" value from
-	 * the envelope val, it simply convert the original UUID class to the
-	 * UUIDImplementation class and vise versa. For example, when we are trying
-	 * to compare two UUIDs, we send the UUID object to the original java's
-	 * UUID, we will not be able to compare these two objects(not possible to
-	 * compare two different objects).
+	 * Instance method that converts a UUID to the original java's UUID class,
+	 * on demand. It returns a new <code>java.util.UUID</code> with the same
+	 * value as the given UUID, or <code>null</code> if the given object is not
+	 * a UUID.
 	 * 
-	 * @see equals
-	 * @see compareTo
 	 * @param val
 	 * @return
 	 */
 	protected java.util.UUID getOrigUUID(Object val) {
-		if (val instanceof UUIDImplementation) {
-			return ((UUIDImplementation) val).var;
-		} else if (val instanceof UUID) {
-			return var;
+		if (val instanceof UUID) {
+			UUID uuid = (UUID) val;
+			return new java.util.UUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
 		} else
 			return null;
 	}
@@ -48,7 +46,8 @@ public class UUIDImplementation implements UUID {
 	 *            - The least significant bits of the UUID
 	 */
 	public UUIDImplementation(long mostSigBits, long leastSigBits) {
-		this.var = new java.util.UUID(mostSigBits, leastSigBits);
+		this.mostSigBits = mostSigBits;
+		this.leastSigBits = leastSigBits;
 	}
 
 	/**
@@ -57,63 +56,93 @@ public class UUIDImplementation implements UUID {
 	 * @param var
 	 */
 	protected UUIDImplementation(java.util.UUID var) {
-		this.var = var;
+		this(var.getMostSignificantBits(), var.getLeastSignificantBits());
 	}
 
 	@Override
 	public int clockSequence() {
-
-		return var.clockSequence();
+		checkTimeBased();
+		return (int) ((leastSigBits & 0x3FFF000000000000L) >>> 48);
 	}
 
+	/**
+	 * Compares the most significant bits, then the least significant bits as
+	 * signed values, like <code>java.util.UUID</code>.
+	 */
 	@Override
 	public int compareTo(UUID val) {
-		return var.compareTo(getOrigUUID(val));
+		int result = Long.compare(mostSigBits, val.getMostSignificantBits());
+		return result != 0 ? result : Long.compare(leastSigBits, val.getLeastSignificantBits());
 	}
 
 	@Override
 	public boolean equals(UUID obj) {
-		return var.equals(getOrigUUID(obj));
+		return obj != null && mostSigBits == obj.getMostSignificantBits()
+				&& leastSigBits == obj.getLeastSignificantBits();
 	}
 
 	@Override
 	public long getLeastSignificantBits() {
-		return var.getLeastSignificantBits();
+		return leastSigBits;
 	}
 
 	@Override
 	public long getMostSignificantBits() {
-		return var.getMostSignificantBits();
+		return mostSigBits;
 	}
 
 	@Override
 	public int hashCode() {
-		return var.hashCode();
+		long hilo = mostSigBits ^ leastSigBits;
+		return ((int) (hilo >> 32)) ^ (int) hilo;
 	}
 
 	@Override
 	public long node() {
-		return var.node();
+		checkTimeBased();
+		return leastSigBits & 0x0000FFFFFFFFFFFFL;
 	}
 
 	@Override
 	public long timestamp() {
-		return var.timestamp();
+		switch (version()) {
+		case 1:
+			return (mostSigBits & 0x0FFFL) << 48 | ((mostSigBits >> 16) & 0xFFFFL) << 32 | mostSigBits >>> 32;
+		case 6:
+			return (mostSigBits >>> 16) << 12 | (mostSigBits & 0x0FFF);
+		case 7:
+			return (mostSigBits >>> 16) * 10000 + TimeBasedUUIDGenerator.GREGORIAN_OFFSET;
+		default:
+			throw new UnsupportedOperationException("Not a time-based UUID");
+		}
 	}
 
 	@Override
 	public String toString() {
-		return var.toString();
+		return UUIDCodec.toString(this);
 	}
 
 	@Override
 	public int variant() {
-		return var.variant();
+		// 0 for NCS, 2 for IETF, 6 for Microsoft and 7 for the reserved
+		// variant, as in java.util.UUID
+		return (int) ((leastSigBits >>> (64 - (leastSigBits >>> 62))) & (leastSigBits >> 63));
 	}
 
 	@Override
 	public int version() {
-		return var.version();
+		return (int) ((mostSigBits >> 12) & 0x0F);
+	}
+
+	/**
+	 * Checks that the UUID has a clock sequence and a node, which are only
+	 * stored by versions 1 and 6.
+	 */
+	private void checkTimeBased() {
+		int version = version();
+		if (version != 1 && version != 6) {
+			throw new UnsupportedOperationException("Not a time-based UUID");
+		}
 	}
 
 }
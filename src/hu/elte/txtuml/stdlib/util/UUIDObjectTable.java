@@ -0,0 +1,156 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.function.BiConsumer;
+
+/**
+ * Open-addressing hash table which maps UUIDs to <code>Object</code>
+ * values. This is the backing store of {@link UUIDDictionaryImplementation}.
+ * <p>
+ * Each key is stored as its two 64 bit halves in adjacent elements of a
+ * single <code>long</code> array, so no UUID object is kept or created by
+ * the lookups. The probing, deletion and growth are those of
+ * {@link OpenHashTable}. This class is not synchronized.
+ *
+ * @see UUIDDictionaryImplementation
+ */
+class UUIDObjectTable extends OpenHashTable {
+
+	/**
+	 * The most and least significant bits of the key of slot <i>i</i> at
+	 * indices <i>2i</i> and <i>2i+1</i>.
+	 */
+	long[] keys;
+
+	/**
+	 * @param expectedSize
+	 *            the number of entries the table should hold without resizing
+	 * @throws IllegalArgumentException
+	 *             if the expected size is negative
+	 */
+	UUIDObjectTable(int expectedSize) {
+		super(expectedSize, DEFAULT_LOAD_FACTOR);
+	}
+
+	static int hash(long mostSigBits, long leastSigBits) {
+		return LongStringTable.hash(mostSigBits * 0xC2B2AE3D27D4EB4FL + leastSigBits);
+	}
+
+	@Override
+	void allocateKeys(int capacity) {
+		keys = new long[capacity << 1];
+	}
+
+	@Override
+	Object keyArrays() {
+		return keys;
+	}
+
+	@Override
+	int hashAt(Object keys, int slot) {
+		long[] halves = (long[]) keys;
+		return hash(halves[slot << 1], halves[(slot << 1) + 1]);
+	}
+
+	@Override
+	void copyKey(Object keys, int from, int to) {
+		long[] halves = (long[]) keys;
+		this.keys[to << 1] = halves[from << 1];
+		this.keys[(to << 1) + 1] = halves[(from << 1) + 1];
+	}
+
+	@Override
+	void appendKey(StringBuilder sb, int slot) {
+		sb.append(key(slot));
+	}
+
+	UUID key(int slot) {
+		return new UUIDImplementation(keys[slot << 1], keys[(slot << 1) + 1]);
+	}
+
+	/**
+	 * Returns the slot holding the given key, or <code>-1</code> if the key
+	 * is not in the table.
+	 */
+	int slotOf(long mostSigBits, long leastSigBits) {
+		long[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = values.length - 1;
+		int slot = hash(mostSigBits, leastSigBits) & mask;
+		while (values[slot] != null) {
+			if (keys[slot << 1] == mostSigBits && keys[(slot << 1) + 1] == leastSigBits) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	Object get(long mostSigBits, long leastSigBits) {
+		int slot = slotOf(mostSigBits, leastSigBits);
+		return slot < 0 ? null : values[slot];
+	}
+
+	Object put(long mostSigBits, long leastSigBits, Object value) {
+		long[] keys = this.keys;
+		Object[] values = this.values;
+		int mask = values.length - 1;
+		int slot = hash(mostSigBits, leastSigBits) & mask;
+		while (values[slot] != null) {
+			if (keys[slot << 1] == mostSigBits && keys[(slot << 1) + 1] == leastSigBits) {
+				Object old = values[slot];
+				values[slot] = value;
+				return old;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot << 1] = mostSigBits;
+		keys[(slot << 1) + 1] = leastSigBits;
+		values[slot] = value;
+		added();
+		return null;
+	}
+
+	Object remove(long mostSigBits, long leastSigBits) {
+		int slot = slotOf(mostSigBits, leastSigBits);
+		if (slot < 0) {
+			return null;
+		}
+		Object old = values[slot];
+		removeSlot(slot);
+		return old;
+	}
+
+	void forEach(BiConsumer<UUID, Object> action) {
+		int expectedModCount = modCount;
+		Object[] values = this.values;
+		for (int slot = 0; slot < values.length; slot++) {
+			if (values[slot] != null) {
+				action.accept(key(slot), values[slot]);
+			}
+		}
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+
+	Enumeration<UUID> keys() {
+		return new SlotEnumeration<UUID>() {
+			@Override
+			UUID element(int slot) {
+				return key(slot);
+			}
+		};
+	}
+
+	Enumeration<Object> elements() {
+		return new SlotEnumeration<Object>() {
+			@Override
+			Object element(int slot) {
+				return values[slot];
+			}
+		};
+	}
+
+}
@@ -0,0 +1,404 @@
+package hu.elte.txtuml.stdlib.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The append-only operation log of {@link DurableDictionaryImplementation}.
+ * <p>
+ * Every record is an operation byte, the key as a four byte big-endian
+ * integer, for a <code>put</code> the length and the UTF-8 bytes of the
+ * value, and finally the CRC-32 checksum of all these. A record which is
+ * incomplete or whose checksum does not match marks the end of the log: it
+ * can only be the tail of a write interrupted by a crash.
+ * <p>
+ * Appending only encodes the record into a memory buffer. A background
+ * thread writes the buffer to the file and forces it to the disk, while the
+ * records appended meanwhile are collected in a second buffer, which the
+ * next force then commits as a group. The log is split into generations,
+ * one file each; rotating to a new generation lets the old files be deleted
+ * once a snapshot covers them.
+ */
+final class WriteAheadLog {
+
+	static final byte PUT = 1;
+
+	static final byte REMOVE = 2;
+
+	/**
+	 * The number of buffered bytes above which appending waits for the
+	 * background thread.
+	 */
+	private static final int MAXIMUM_PENDING = 4 << 20;
+
+	private final Path directory;
+
+	private final CRC32 checksum = new CRC32();
+
+	private final Object lock = new Object();
+
+	private final Thread syncer;
+
+	// the fields below are guarded by the lock
+
+	private FileChannel channel;
+
+	private byte[] buffer = new byte[8192];
+
+	private int length;
+
+	/**
+	 * The buffer written by the background thread, reused after it is done.
+	 */
+	private byte[] spare = new byte[8192];
+
+	/**
+	 * The records of the former generations which are not written yet, with
+	 * their files.
+	 */
+	private List<Retired> retired = new ArrayList<>();
+
+	/**
+	 * The number of records appended and the number of those forced to the
+	 * disk.
+	 */
+	private long appended;
+
+	private long synced;
+
+	/**
+	 * The number of bytes appended to the current generation.
+	 */
+	private long bytes;
+
+	private IOException failure;
+
+	private boolean closed;
+
+	/**
+	 * Creates the file of the given generation and starts the background
+	 * thread writing it.
+	 */
+	WriteAheadLog(Path directory, int generation) throws IOException {
+		this.directory = directory;
+		this.channel = create(generation);
+		this.syncer = new Thread(this::run, "Dictionary log " + directory.getFileName());
+		syncer.setDaemon(true);
+		syncer.start();
+	}
+
+	static Path file(Path directory, int generation) {
+		return directory.resolve("log-" + generation);
+	}
+
+	private FileChannel create(int generation) throws IOException {
+		FileChannel channel = FileChannel.open(file(directory, generation), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE);
+		forceDirectory(directory);
+		return channel;
+	}
+
+	/**
+	 * Makes the creation, renaming and deletion of the files of the
+	 * directory durable, where the platform allows forcing a directory.
+	 */
+	static void forceDirectory(Path directory) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// directories cannot be opened on some platforms
+		}
+	}
+
+	/**
+	 * Applies the records of the file to the dictionary, and truncates the
+	 * file after the last valid record.
+	 *
+	 * @return the length of the valid records
+	 */
+	static long replay(Path file, Dictionary dictionary) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long size = channel.size();
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			CRC32 checksum = new CRC32();
+			byte[] value = new byte[64];
+			long valid = 0;
+			while (valid < size) {
+				try {
+					checksum.reset();
+					int operation = in.readByte();
+					int key = in.readInt();
+					checksum.update(operation);
+					updateInt(checksum, key);
+					long recordLength = 9;
+					int valueLength = 0;
+					if (operation == PUT) {
+						valueLength = in.readInt();
+						if (valueLength < 0 || valueLength > size - valid) {
+							break;
+						}
+						if (value.length < valueLength) {
+							value = new byte[valueLength];
+						}
+						in.readFully(value, 0, valueLength);
+						updateInt(checksum, valueLength);
+						checksum.update(value, 0, valueLength);
+						recordLength += 4 + valueLength;
+					} else if (operation != REMOVE) {
+						break;
+					}
+					if (in.readInt() != (int) checksum.getValue()) {
+						break;
+					}
+					if (operation == PUT) {
+						dictionary.put(key, new String(value, 0, valueLength, StandardCharsets.UTF_8));
+					} else {
+						dictionary.remove(key);
+					}
+					valid += recordLength;
+				} catch (EOFException e) {
+					break;
+				}
+			}
+			if (valid < size) {
+				// the torn tail of a write interrupted by a crash
+				channel.truncate(valid);
+				channel.force(true);
+			}
+			return valid;
+		}
+	}
+
+	private static void updateInt(CRC32 checksum, int value) {
+		checksum.update(value >>> 24);
+		checksum.update(value >>> 16);
+		checksum.update(value >>> 8);
+		checksum.update(value);
+	}
+
+	/**
+	 * Appends a record to the buffer of the current generation.
+	 *
+	 * @param value
+	 *            the UTF-8 bytes of the value of a <code>put</code>, or
+	 *            <code>null</code>
+	 * @throws UncheckedIOException
+	 *             if writing the log has failed
+	 */
+	void append(byte operation, int key, byte[] value) {
+		int recordLength = value == null ? 9 : 13 + value.length;
+		synchronized (lock) {
+			checkUsable();
+			while (length > 0 && length + recordLength > MAXIMUM_PENDING) {
+				await();
+				checkUsable();
+			}
+			if (buffer.length - length < recordLength) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + recordLength));
+			}
+			int start = length;
+			buffer[length++] = operation;
+			putInt(key);
+			if (value != null) {
+				putInt(value.length);
+				System.arraycopy(value, 0, buffer, length, value.length);
+				length += value.length;
+			}
+			checksum.reset();
+			checksum.update(buffer, start, length - start);
+			putInt((int) checksum.getValue());
+			appended++;
+			bytes += recordLength;
+			if (length == recordLength) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private void putInt(int value) {
+		buffer[length] = (byte) (value >>> 24);
+		buffer[length + 1] = (byte) (value >>> 16);
+		buffer[length + 2] = (byte) (value >>> 8);
+		buffer[length + 3] = (byte) value;
+		length += 4;
+	}
+
+	private void checkUsable() {
+		if (failure != null) {
+			throw new UncheckedIOException("Dictionary log failed", failure);
+		}
+		if (closed) {
+			throw new IllegalStateException("Dictionary is closed");
+		}
+	}
+
+	private void await() {
+		try {
+			lock.wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the dictionary log", e);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes appended to the current generation.
+	 */
+	long bytes() {
+		synchronized (lock) {
+			return bytes;
+		}
+	}
+
+	/**
+	 * Starts a new generation: the records appended later go to its file.
+	 */
+	void rotate(int generation) throws IOException {
+		FileChannel next = create(generation);
+		synchronized (lock) {
+			retired.add(new Retired(channel, Arrays.copyOf(buffer, length)));
+			channel = next;
+			length = 0;
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * Waits until the records appended so far are forced to the disk.
+	 */
+	void sync() throws IOException {
+		synchronized (lock) {
+			long target = appended;
+			lock.notifyAll();
+			while (synced < target && failure == null) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+			}
+			if (failure != null) {
+				throw new IOException("Dictionary log failed", failure);
+			}
+		}
+	}
+
+	/**
+	 * Forces the remaining records to the disk and closes the file.
+	 */
+	void close() throws IOException {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			lock.notifyAll();
+		}
+		try {
+			syncer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			channel.close();
+		}
+		synchronized (lock) {
+			if (failure != null) {
+				throw new IOException("Dictionary log failed", failure);
+			}
+		}
+	}
+
+	/**
+	 * The loop of the background thread: takes the buffered records, writes
+	 * and forces them, and repeats until the log is closed.
+	 */
+	private void run() {
+		while (true) {
+			byte[] batch;
+			int batchLength;
+			long target;
+			List<Retired> files;
+			FileChannel current;
+			synchronized (lock) {
+				while (length == 0 && retired.isEmpty() && !closed) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						// only close stops the thread
+					}
+				}
+				if (length == 0 && retired.isEmpty()) {
+					return;
+				}
+				batch = buffer;
+				batchLength = length;
+				buffer = spare;
+				length = 0;
+				target = appended;
+				files = retired;
+				retired = new ArrayList<>();
+				current = channel;
+				// writers waiting for room can go on
+				lock.notifyAll();
+			}
+			try {
+				for (Retired file : files) {
+					write(file.channel, file.records, file.records.length);
+					file.channel.close();
+				}
+				write(current, batch, batchLength);
+			} catch (IOException e) {
+				synchronized (lock) {
+					failure = e;
+					lock.notifyAll();
+				}
+				return;
+			}
+			synchronized (lock) {
+				spare = batch;
+				synced = target;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private static void write(FileChannel channel, byte[] records, int length) throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap(records, 0, length);
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		channel.force(false);
+	}
+
+	/**
+	 * The file of a former generation with its records not written yet.
+	 */
+	private static final class Retired {
+
+		final FileChannel channel;
+
+		final byte[] records;
+
+		Retired(FileChannel channel, byte[] records) {
+			this.channel = channel;
+			this.records = records;
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package hu.elte.txtuml.stdlib.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Tests the reverse index of {@link BidirectionalDictionaryImplementation}
+ * against a model in which several keys may share a value.
+ */
+public class BidirectionalDictionaryImplementationTest {
+
+	@Test
+	public void sharedValuesKeepTheEarliestKey() {
+		BidirectionalDictionaryImplementation dictionary = new BidirectionalDictionaryImplementation();
+		dictionary.putAll(new int[] { 1, 2, 3 }, new String[] { "a", "a", "a" });
+		assertEquals(3, dictionary.size());
+		assertEquals(1, dictionary.keyOf("a"));
+		dictionary.remove(1);
+		assertEquals(2, dictionary.keyOf("a"));
+		dictionary.put(2, "b");
+		assertEquals(3, dictionary.keyOf("a"));
+		assertEquals(2, dictionary.keyOf("b"));
+		dictionary.remove(3);
+		assertFalse(dictionary.containsValue("a"));
+		assertEquals(-1, dictionary.keyOf("a", -1));
+	}
+
+	@Test
+	public void forcePutRemovesTheOtherKeys() {
+		BidirectionalDictionaryImplementation dictionary = new BidirectionalDictionaryImplementation();
+		dictionary.putAll(new int[] { 1, 2, 3, 4 }, new String[] { "a", "a", "a", "b" });
+		assertEquals("b", dictionary.forcePut(4, "a"));
+		assertEquals(1, dictionary.size());
+		assertEquals(4, dictionary.keyOf("a"));
+		assertFalse(dictionary.containsValue("b"));
+	}
+
+	@Test
+	public void randomOperations() {
+		BidirectionalDictionaryImplementation dictionary = new BidirectionalDictionaryImplementation();
+		Map<Integer, String> expected = new TreeMap<>();
+		Map<String, LinkedHashSet<Integer>> expectedKeys = new HashMap<>();
+		Random random = new Random(1);
+		for (int i = 0; i < 100000; i++) {
+			int key = random.nextInt(200);
+			String value = "v" + random.nextInt(50);
+			switch (random.nextInt(8)) {
+			case 0:
+				String old = expected.remove(key);
+				assertEquals(old, dictionary.remove(key));
+				if (old != null) {
+					unlink(expectedKeys, key, old);
+				}
+				break;
+			case 1:
+				String merged = dictionary.merge(key, value, (a, b) -> a.length() > 3 ? null : a + b);
+				String previous = expected.get(key);
+				if (previous != null) {
+					unlink(expectedKeys, key, previous);
+				}
+				if (merged == null) {
+					expected.remove(key);
+				} else {
+					expected.put(key, merged);
+					link(expectedKeys, key, merged);
+				}
+				break;
+			case 2:
+				assertEquals(expected.get(key), dictionary.forcePut(key, value));
+				LinkedHashSet<Integer> keys = expectedKeys.remove(value);
+				if (keys != null) {
+					for (int other : keys) {
+						if (other != key) {
+							expected.remove(other);
+						}
+					}
+				}
+				String replaced = expected.put(key, value);
+				if (replaced != null && !replaced.equals(value)) {
+					unlink(expectedKeys, key, replaced);
+				}
+				link(expectedKeys, key, value);
+				break;
+			default:
+				assertEquals(expected.get(key), dictionary.put(key, value));
+				put(expected, expectedKeys, key, value);
+			}
+			if (i % 1000 == 0) {
+				check(dictionary, expected, expectedKeys);
+			}
+		}
+		check(dictionary, expected, expectedKeys);
+	}
+
+	private static void put(Map<Integer, String> expected, Map<String, LinkedHashSet<Integer>> expectedKeys,
+			int key, String value) {
+		String old = expected.put(key, value);
+		if (value.equals(old)) {
+			return;
+		}
+		if (old != null) {
+			unlink(expectedKeys, key, old);
+		}
+		link(expectedKeys, key, value);
+	}
+
+	private static void link(Map<String, LinkedHashSet<Integer>> expectedKeys, int key, String value) {
+		expectedKeys.computeIfAbsent(value, v -> new LinkedHashSet<>()).add(key);
+	}
+
+	private static void unlink(Map<String, LinkedHashSet<Integer>> expectedKeys, int key, String value) {
+		LinkedHashSet<Integer> keys = expectedKeys.get(value);
+		keys.remove(key);
+		if (keys.isEmpty()) {
+			expectedKeys.remove(value);
+		}
+	}
+
+	private static void check(BidirectionalDictionaryImplementation dictionary, Map<Integer, String> expected,
+			Map<String, LinkedHashSet<Integer>> expectedKeys) {
+		assertEquals(expected, DurableDictionaryImplementationTest.contents(dictionary));
+		for (int i = 0; i < 60; i++) {
+			String value = "v" + i;
+			LinkedHashSet<Integer> keys = expectedKeys.get(value);
+			assertEquals(keys != null, dictionary.containsValue(value));
+			if (keys != null) {
+				assertTrue(expected.containsKey(dictionary.keyOf(value)));
+				assertEquals((int) keys.iterator().next(), dictionary.keyOf(value));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package hu.elte.txtuml.stdlib.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Tests the arena of {@link CompactDictionaryImplementation}: its contents
+ * are compared to a model while values are replaced, removed and shared, so
+ * that the arena is compacted many times.
+ */
+public class CompactDictionaryImplementationTest {
+
+	@Test
+	public void sharedValueIsCompactedOnce() {
+		CompactDictionaryImplementation dictionary = new CompactDictionaryImplementation(true);
+		Map<Integer, String> expected = new TreeMap<>();
+		String shared = repeat('s', 200);
+		for (int key = 0; key < 8; key++) {
+			put(dictionary, expected, key, shared);
+		}
+		for (int key = 1; key < 8; key++) {
+			dictionary.remove(key);
+			expected.remove(key);
+		}
+		for (int key = 1; key < 8; key++) {
+			put(dictionary, expected, key, shared);
+		}
+		for (int key = 8; key < 100; key++) {
+			put(dictionary, expected, key, repeat((char) ('a' + key % 26), 40) + key);
+		}
+		assertEquals(expected, DurableDictionaryImplementationTest.contents(dictionary));
+	}
+
+	@Test
+	public void randomOperationsWithDeduplication() {
+		randomOperations(true);
+	}
+
+	@Test
+	public void randomOperationsWithoutDeduplication() {
+		randomOperations(false);
+	}
+
+	private static void randomOperations(boolean deduplicate) {
+		CompactDictionaryImplementation dictionary = new CompactDictionaryImplementation(deduplicate);
+		Map<Integer, String> expected = new TreeMap<>();
+		Random random = new Random(deduplicate ? 1 : 2);
+		for (int i = 0; i < 100000; i++) {
+			int key = random.nextInt(100);
+			switch (random.nextInt(4)) {
+			case 0:
+				assertEquals(expected.remove(key), dictionary.remove(key));
+				break;
+			case 1:
+				int[] keys = { key, random.nextInt(100), random.nextInt(100) };
+				String[] values = { value(random), value(random), value(random) };
+				dictionary.putAll(keys, values);
+				for (int j = 0; j < keys.length; j++) {
+					expected.put(keys[j], values[j]);
+				}
+				break;
+			default:
+				put(dictionary, expected, key, value(random));
+			}
+			if (i % 1000 == 0) {
+				assertEquals(expected, DurableDictionaryImplementationTest.contents(dictionary));
+			}
+		}
+		assertEquals(expected, DurableDictionaryImplementationTest.contents(dictionary));
+	}
+
+	/**
+	 * Returns a short random value, or one of a few long values which many
+	 * keys share.
+	 */
+	private static String value(Random random) {
+		int n = random.nextInt(5);
+		return n == 0 ? DurableDictionaryImplementationTest.value(random) : repeat((char) ('a' + n), 150 + 10 * n) + "éő";
+	}
+
+	private static void put(Dictionary dictionary, Map<Integer, String> expected, int key, String value) {
+		assertEquals(expected.put(key, value), dictionary.put(key, value));
+	}
+
+	private static String repeat(char c, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,291 @@
+package hu.elte.txtuml.stdlib.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the recovery of {@link DurableDictionaryImplementation}: its
+ * contents are compared to a model after reopening it, after its log is
+ * truncated, and after the process writing it is killed.
+ */
+public class DurableDictionaryImplementationTest {
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("durable");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		delete(directory);
+	}
+
+	@Test
+	public void reopenRestoresSnapshotAndLogs() throws IOException, InterruptedException {
+		Map<Integer, String> expected = new TreeMap<>();
+		Random random = new Random(1);
+		for (int round = 0; round < 5; round++) {
+			try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory, 4096)) {
+				assertEquals("round " + round, expected, contents(dictionary));
+				for (int i = 0; i < 3000; i++) {
+					apply(dictionary, expected, random);
+				}
+				awaitCompaction();
+			}
+			assertEquals(1, files("snapshot-").size());
+		}
+		// the last round has written logs after its snapshot
+		assertFalse(files("log-").isEmpty());
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory, 4096)) {
+			assertEquals(expected, contents(dictionary));
+		}
+	}
+
+	@Test
+	public void unfinishedSnapshotIsIgnored() throws IOException {
+		Map<Integer, String> expected = new TreeMap<>();
+		Random random = new Random(2);
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory)) {
+			for (int i = 0; i < 1000; i++) {
+				apply(dictionary, expected, random);
+			}
+		}
+		Path temporary = directory.resolve("snapshot-99.tmp");
+		Files.write(temporary, new byte[] { 1, 2, 3 });
+
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory)) {
+			assertEquals(expected, contents(dictionary));
+		}
+		assertFalse(Files.exists(temporary));
+	}
+
+	@Test
+	public void truncatedLogLosesOnlyItsTail() throws IOException {
+		List<Object[]> operations = new ArrayList<>();
+		Random random = new Random(3);
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory)) {
+			for (int i = 0; i < 2000; i++) {
+				operations.add(apply(dictionary, new TreeMap<>(), random));
+			}
+		}
+		Path log = files("log-").get(0);
+		long size = Files.size(log);
+		try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+			channel.truncate(size - 5);
+		}
+
+		Map<Integer, String> expected = new TreeMap<>();
+		for (Object[] operation : operations.subList(0, operations.size() - 1)) {
+			apply(expected, operation);
+		}
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory)) {
+			assertEquals(expected, contents(dictionary));
+			dictionary.put(-1, "after recovery");
+			expected.put(-1, "after recovery");
+		}
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory)) {
+			assertEquals(expected, contents(dictionary));
+		}
+	}
+
+	@Test
+	public void killedWriterKeepsSyncedOperations() throws IOException, InterruptedException {
+		int operations = 20500;
+		String javaCommand = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		Process process = new ProcessBuilder(javaCommand, "-cp", System.getProperty("java.class.path"),
+				Writer.class.getName(), directory.toString(), String.valueOf(operations))
+						.redirectErrorStream(true).start();
+		int synced = -1;
+		try (BufferedReader out = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = out.readLine()) != null) {
+				if (line.matches("\\d+")) {
+					synced = Integer.parseInt(line);
+				}
+			}
+		}
+		assertEquals(Writer.KILLED, process.waitFor());
+		assertTrue(synced > 0);
+
+		Map<Integer, String> recovered;
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory)) {
+			recovered = contents(dictionary);
+		}
+		// the recovered contents are those after a prefix of the operations,
+		// which includes every synced one
+		Random random = new Random(Writer.SEED);
+		Map<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < operations; i++) {
+			if (i >= synced && expected.equals(recovered)) {
+				return;
+			}
+			apply(expected, operation(random));
+		}
+		if (!expected.equals(recovered)) {
+			fail("The recovered contents are not those after any prefix from " + synced + " operations");
+		}
+	}
+
+	@Test
+	public void failedCompactionIsReportedAndRetried() throws IOException, InterruptedException {
+		Map<Integer, String> expected = new TreeMap<>();
+		Random random = new Random(4);
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory, 1000)) {
+			// a directory in place of the next snapshot makes it fail
+			Path blocker = Files.createDirectories(directory.resolve("snapshot-2.tmp").resolve("blocker"));
+			for (int i = 0; i < 1000; i++) {
+				apply(dictionary, expected, random);
+			}
+			awaitCompaction();
+			try {
+				dictionary.sync();
+				fail("The failure of compaction is not reported");
+			} catch (IOException e) {
+				assertTrue(e.getCause() != null && e.getCause().getCause() == null);
+			}
+			dictionary.sync();
+
+			Files.delete(blocker);
+			Files.delete(blocker.getParent());
+			Thread.sleep(1100);
+			for (int i = 0; i < 1000; i++) {
+				apply(dictionary, expected, random);
+			}
+			awaitCompaction();
+			dictionary.sync();
+			assertEquals(1, files("snapshot-").size());
+		}
+		try (DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(directory, 1000)) {
+			assertEquals(expected, contents(dictionary));
+		}
+	}
+
+	/**
+	 * Performs operations on a dictionary in a separate process, printing
+	 * the number of operations after every sync, and kills the process.
+	 */
+	public static class Writer {
+
+		static final long SEED = 5;
+
+		static final int KILLED = 3;
+
+		public static void main(String[] args) throws IOException {
+			DurableDictionaryImplementation dictionary = new DurableDictionaryImplementation(Paths.get(args[0]),
+					16 << 10);
+			int operations = Integer.parseInt(args[1]);
+			Random random = new Random(SEED);
+			for (int i = 0; i < operations; i++) {
+				apply(dictionary, operation(random));
+				if (i % 1000 == 999) {
+					dictionary.sync();
+					System.out.println(i + 1);
+					System.out.flush();
+				}
+			}
+			// neither closed nor synced at the end
+			Runtime.getRuntime().halt(KILLED);
+		}
+	}
+
+	/**
+	 * Returns a random put (a key and a value) or remove (a key).
+	 */
+	static Object[] operation(Random random) {
+		int key = random.nextInt(1000);
+		return random.nextInt(4) == 0 ? new Object[] { key } : new Object[] { key, value(random) };
+	}
+
+	static String value(Random random) {
+		StringBuilder value = new StringBuilder();
+		int length = random.nextInt(40);
+		for (int i = 0; i < length; i++) {
+			// some characters are encoded in more than one byte
+			value.append(random.nextInt(10) == 0 ? (char) (0x100 + random.nextInt(0x1000))
+					: (char) ('a' + random.nextInt(26)));
+		}
+		return value.toString();
+	}
+
+	private static Object[] apply(Dictionary dictionary, Map<Integer, String> expected, Random random) {
+		Object[] operation = operation(random);
+		apply(dictionary, operation);
+		apply(expected, operation);
+		return operation;
+	}
+
+	private static void apply(Dictionary dictionary, Object[] operation) {
+		if (operation.length == 1) {
+			dictionary.remove((Integer) operation[0]);
+		} else {
+			dictionary.put((Integer) operation[0], (String) operation[1]);
+		}
+	}
+
+	private static void apply(Map<Integer, String> expected, Object[] operation) {
+		if (operation.length == 1) {
+			expected.remove(operation[0]);
+		} else {
+			expected.put((Integer) operation[0], (String) operation[1]);
+		}
+	}
+
+	static Map<Integer, String> contents(Dictionary dictionary) {
+		Map<Integer, String> contents = new TreeMap<>();
+		dictionary.forEach(contents::put);
+		assertEquals(contents.size(), dictionary.size());
+		return contents;
+	}
+
+	private static void awaitCompaction() throws InterruptedException {
+		// compaction runs in a thread of its own
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("Dictionary compaction ")) {
+				thread.join();
+			}
+		}
+	}
+
+	private List<Path> files(String prefix) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+package hu.elte.txtuml.stdlib.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the record format, the replay and the rotation of
+ * {@link WriteAheadLog}.
+ */
+public class WriteAheadLogTest {
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("wal");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		DurableDictionaryImplementationTest.delete(directory);
+	}
+
+	@Test
+	public void replayAppliesEveryRecord() throws IOException {
+		Map<Integer, String> expected = new TreeMap<>();
+		WriteAheadLog log = new WriteAheadLog(directory, 1);
+		Random random = new Random(1);
+		for (int i = 0; i < 10000; i++) {
+			append(log, expected, random);
+		}
+		log.close();
+
+		assertEquals(expected, replay(1));
+	}
+
+	@Test
+	public void replayTruncatesTornTail() throws IOException {
+		Map<Integer, String> expected = new TreeMap<>();
+		WriteAheadLog log = new WriteAheadLog(directory, 1);
+		Random random = new Random(2);
+		for (int i = 0; i < 100; i++) {
+			append(log, expected, random);
+		}
+		log.close();
+		Path file = WriteAheadLog.file(directory, 1);
+		long valid = Files.size(file);
+		byte[] value = "the last value".getBytes(StandardCharsets.UTF_8);
+		log = new WriteAheadLog(directory, 2);
+		log.append(WriteAheadLog.PUT, 7, value);
+		log.close();
+		byte[] record = Files.readAllBytes(WriteAheadLog.file(directory, 2));
+		Files.delete(WriteAheadLog.file(directory, 2));
+
+		// every prefix of the last record is torn
+		for (int length = 1; length < record.length; length++) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				channel.write(ByteBuffer.wrap(record, 0, length));
+			}
+			assertEquals(expected, replay(1));
+			assertEquals("torn tail of " + length + " bytes", valid, Files.size(file));
+		}
+	}
+
+	@Test
+	public void replayStopsAtCorruptRecord() throws IOException {
+		Map<Integer, String> expected = new TreeMap<>();
+		WriteAheadLog log = new WriteAheadLog(directory, 1);
+		for (int key = 0; key < 10; key++) {
+			log.append(WriteAheadLog.PUT, key, ("value" + key).getBytes(StandardCharsets.UTF_8));
+			if (key < 5) {
+				expected.put(key, "value" + key);
+			}
+		}
+		log.close();
+		Path file = WriteAheadLog.file(directory, 1);
+		// the records are 19 bytes long: flip a byte of the value of key 5
+		long corrupt = 5 * 19 + 10;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer b = ByteBuffer.allocate(1);
+			channel.read(b, corrupt);
+			b.put(0, (byte) (b.get(0) ^ 1));
+			b.rewind();
+			channel.write(b, corrupt);
+		}
+
+		assertEquals(expected, replay(1));
+		assertEquals(5 * 19, Files.size(file));
+	}
+
+	@Test
+	public void rotationKeepsRecordsInOrder() throws IOException {
+		Map<Integer, String> expected = new TreeMap<>();
+		WriteAheadLog log = new WriteAheadLog(directory, 1);
+		Random random = new Random(3);
+		int generation = 1;
+		// rotate while the background thread is writing the former records
+		for (int i = 0; i < 20000; i++) {
+			append(log, expected, random);
+			if (i % 997 == 0) {
+				log.rotate(++generation);
+			}
+		}
+		log.sync();
+		for (int i = 0; i < 1000; i++) {
+			append(log, expected, random);
+		}
+		log.close();
+
+		DictionaryImplementation replayed = new DictionaryImplementation();
+		for (int g = 1; g <= generation; g++) {
+			WriteAheadLog.replay(WriteAheadLog.file(directory, g), replayed);
+		}
+		assertEquals(expected, DurableDictionaryImplementationTest.contents(replayed));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void appendAfterCloseFails() throws IOException {
+		WriteAheadLog log = new WriteAheadLog(directory, 1);
+		log.close();
+		log.append(WriteAheadLog.REMOVE, 1, null);
+	}
+
+	private static void append(WriteAheadLog log, Map<Integer, String> expected, Random random) {
+		int key = random.nextInt(500);
+		if (random.nextInt(4) == 0) {
+			log.append(WriteAheadLog.REMOVE, key, null);
+			expected.remove(key);
+		} else {
+			String value = DurableDictionaryImplementationTest.value(random);
+			log.append(WriteAheadLog.PUT, key, value.getBytes(StandardCharsets.UTF_8));
+			expected.put(key, value);
+		}
+	}
+
+	private Map<Integer, String> replay(int generation) throws IOException {
+		DictionaryImplementation replayed = new DictionaryImplementation();
+		WriteAheadLog.replay(WriteAheadLog.file(directory, generation), replayed);
+		return DurableDictionaryImplementationTest.contents(replayed);
+	}
+
+}
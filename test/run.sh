@@ -0,0 +1,15 @@
+#!/bin/sh
+# Compiles the library with its tests and runs the JUnit tests.
+#
+# Usage: CLASSPATH=<jars> test/run.sh
+#
+# The class path must hold the txtUML API, JUnit 4 and its dependency
+# hamcrest-core.
+set -e
+cd "$(dirname "$0")/.."
+out=build/test
+rm -rf "$out"
+mkdir -p "$out"
+javac -encoding UTF-8 -d "$out" -cp "$CLASSPATH" $(find src test -name '*.java')
+tests=$(cd test && find . -name '*Test.java' | sed -e 's|^\./||' -e 's|\.java$||' -e 's|/|.|g')
+java -cp "$out:$CLASSPATH" org.junit.runner.JUnitCore $tests